@@ -0,0 +1,139 @@
+package hardcoded.benchmark;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * A small benchmark runner used by the benchmarks inside this package.<br><br>
+ * 
+ * Each task is run for a while before it is measured so that the jit has compiled
+ * it. The time and the number of bytes allocated by the current thread are then
+ * measured over as many iterations as fits inside the measure time. Allocation is
+ * only measured if the jvm supports {@code com.sun.management.ThreadMXBean}.
+ * 
+ * @author HardCoded
+ */
+final class BenchmarkRunner {
+	private static final PrintStream OUTPUT = System.out;
+	
+	// The result of each task is written here so that the jit can not remove the task.
+	static volatile Object sink;
+	
+	private final long warmupNanos;
+	private final long measureNanos;
+	private final com.sun.management.ThreadMXBean threads;
+	
+	/**
+	 * Create a runner.
+	 * 
+	 * @param warmupMillis the time each task is run before it is measured.
+	 * @param measureMillis the time each task is measured.
+	 */
+	BenchmarkRunner(long warmupMillis, long measureMillis) {
+		this.warmupNanos = warmupMillis * 1000000L;
+		this.measureNanos = measureMillis * 1000000L;
+		
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported()) {
+			this.threads = (com.sun.management.ThreadMXBean)bean;
+			this.threads.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			this.threads = null;
+		}
+	}
+	
+	/**
+	 * Measure a task and print the result.
+	 * 
+	 * @param name the name of the task.
+	 * @param bytes the size of the input of the task or zero if the task has no input.
+	 * @param task the task to measure.
+	 * @return the result of the measurement.
+	 */
+	Result run(String name, long bytes, Supplier<?> task) {
+		long start = System.nanoTime();
+		do {
+			sink = task.get();
+		} while(System.nanoTime() - start < warmupNanos);
+		
+		long allocated = allocatedBytes();
+		int iterations = 0;
+		start = System.nanoTime();
+		long elapsed;
+		do {
+			sink = task.get();
+			iterations++;
+		} while((elapsed = System.nanoTime() - start) < measureNanos);
+		
+		if(allocated >= 0) allocated = allocatedBytes() - allocated;
+		
+		Result result = new Result(name, bytes, elapsed / (double)iterations, allocated < 0 ? -1:(allocated / (double)iterations));
+		OUTPUT.println(result);
+		return result;
+	}
+	
+	private long allocatedBytes() {
+		if(threads == null) return -1;
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	static void println(String format, Object... args) {
+		OUTPUT.println(String.format(Locale.ENGLISH, format, args));
+	}
+	
+	/**
+	 * Print how the time of a task grows with the size of its input. The exponent is
+	 * one if the time grows linearly and two if the time grows quadratically.
+	 */
+	static void printScaling(String name, Result first, Result last) {
+		if(first == null || last == null || first == last) return;
+		
+		double size = last.bytes / (double)first.bytes;
+		double time = last.nanosPerOp / first.nanosPerOp;
+		println("%-32s %.1fx input took %.1fx time, exponent %.2f", name + " scaling", size, time, Math.log(time) / Math.log(size));
+	}
+	
+	static final class Result {
+		final String name;
+		final long bytes;
+		final double nanosPerOp;
+		final double allocatedPerOp;
+		
+		private Result(String name, long bytes, double nanosPerOp, double allocatedPerOp) {
+			this.name = name;
+			this.bytes = bytes;
+			this.nanosPerOp = nanosPerOp;
+			this.allocatedPerOp = allocatedPerOp;
+		}
+		
+		/**
+		 * Returns the number of bytes allocated per second or -1 if allocation was not measured.
+		 */
+		double allocationRate() {
+			if(allocatedPerOp < 0) return -1;
+			return allocatedPerOp / (nanosPerOp / 1e9);
+		}
+		
+		@Override
+		public String toString() {
+			double seconds = nanosPerOp / 1e9;
+			String throughput, allocation;
+			if(bytes > 0) {
+				throughput = String.format(Locale.ENGLISH, "%9.2f MB/s", bytes / seconds / (1 << 20));
+			} else {
+				throughput = String.format(Locale.ENGLISH, "%9.1f op/s", 1 / seconds);
+			}
+			
+			if(allocatedPerOp < 0) {
+				allocation = "allocation n/a";
+			} else {
+				allocation = String.format(Locale.ENGLISH, "%10.1f KB/op %9.1f MB/s alloc", allocatedPerOp / 1024, allocationRate() / (1 << 20));
+			}
+			
+			return String.format(Locale.ENGLISH, "%-32s %10.3f ms/op %s %s", name, seconds * 1e3, throughput, allocation);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package hardcoded.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import hardcoded.benchmark.BenchmarkRunner.Result;
+import hardcoded.grammar.Grammar;
+import hardcoded.grammar.HCGRGrammarParser;
+import hardcoded.grammar.OptimizedGrammar;
+import hardcoded.lexer.TokenSequence;
+import hardcoded.lexer.Tokenizer;
+import hardcoded.lexer.TokenizerFactory;
+import hardcoded.parser.GLRParser;
+import hardcoded.parser.GLRParserGenerator;
+
+/**
+ * This benchmark measures every step from a grammar file to a parse tree for the
+ * grammars 'res/language_2.gr', 'res/operator.gr' and 'res/test_wiki.gr'.<br><br>
+ * 
+ * For each grammar the time to read the grammar, optimize it, generate the parser and
+ * load a saved parser is measured. The lexer and the parser are then measured on generated inputs that
+ * double in size up to the specified size so that the scaling can be compared.
+ * 
+ * <pre>java hardcoded.benchmark.ParserBenchmark [largest input in kilobytes]</pre>
+ * 
+ * @author HardCoded
+ */
+public class ParserBenchmark {
+	/**
+	 * The largest time in milliseconds a single parse can take before larger inputs are skipped.
+	 */
+	private static final double MAX_PARSE_MILLIS = 1000;
+	
+	private interface InputGenerator {
+		String generate(int length, long seed);
+	}
+	
+	/**
+	 * Generates arithmetic expressions for the grammar 'res/operator.gr'.
+	 * 
+	 * @param length the minimum number of bytes to generate.
+	 * @param seed the seed used for the random generator.
+	 * @return the generated input.
+	 */
+	public static String generateExpression(int length, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder(length + 64);
+		String[] operators = { " + ", " - ", " * ", " / " };
+		int open = 0;
+		
+		sb.append(random.nextInt(1000));
+		while(sb.length() < length || open > 0) {
+			sb.append(operators[random.nextInt(operators.length)]);
+			
+			if(sb.length() < length && random.nextInt(6) == 0) {
+				sb.append('(');
+				open++;
+			}
+			
+			sb.append(random.nextInt(1000));
+			
+			if(open > 0 && random.nextInt(4) == 0) {
+				sb.append(')');
+				open--;
+			}
+		}
+		
+		return sb.toString();
+	}
+	
+	/**
+	 * Generates functions for the grammar 'res/language_2.gr'.
+	 * 
+	 * @param length the minimum number of bytes to generate.
+	 * @param seed the seed used for the random generator.
+	 * @return the generated input.
+	 */
+	public static String generateProgram(int length, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder(length + 256);
+		
+		for(int i = 0; sb.length() < length; i++) {
+			String a = "a" + i;
+			String b = "b" + i;
+			
+			sb.append(random.nextBoolean() ? "export ":"").append("int f").append(i).append("(int ").append(a).append(", int* ").append(b).append(") {\n");
+			sb.append("\tint c = ").append(a).append(" + ").append(random.nextInt(100)).append(";\n");
+			
+			switch(random.nextInt(3)) {
+				case 0: sb.append("\twhile(c < ").append(random.nextInt(100)).append(") { c += 1; }\n"); break;
+				case 1: sb.append("\tif(c == ").append(a).append(") { return c; } else { c = f").append(i).append("(c, ").append(b).append("); }\n"); break;
+				default: sb.append("\tc = ").append(b).append("[").append(random.nextInt(10)).append("] - c;\n"); break;
+			}
+			
+			sb.append("\treturn c;\n}\n");
+		}
+		
+		return sb.toString();
+	}
+	
+	/**
+	 * Generates two long chains of 'a' tokens for the grammar 'res/test_wiki.gr'.
+	 * 
+	 * @param length the minimum number of bytes to generate.
+	 * @param seed the seed used for the random generator.
+	 * @return the generated input.
+	 */
+	public static String generateChain(int length, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder(length + 16);
+		int first = random.nextInt(Math.max(1, length / 2));
+		
+		for(int i = 0; i < first; i += 2) sb.append("a ");
+		sb.append("b ");
+		while(sb.length() < length) sb.append("a ");
+		sb.append('b');
+		
+		return sb.toString();
+	}
+	
+	public static void main(String[] args) throws IOException {
+		int size = (args.length > 0 ? Integer.parseInt(args[0]):8) * 1024;
+		Tokenizer lexer = TokenizerFactory.loadFromFile("res/lexer/hc.lex");
+		BenchmarkRunner runner = new BenchmarkRunner(500, 1000);
+		
+		run(runner, lexer, "res/language_2.gr", size, ParserBenchmark::generateProgram);
+		run(runner, lexer, "res/operator.gr", size, ParserBenchmark::generateExpression);
+		run(runner, lexer, "res/test_wiki.gr", size, ParserBenchmark::generateChain);
+	}
+	
+	private static void run(BenchmarkRunner runner, Tokenizer lexer, String path, int size, InputGenerator generator) throws IOException {
+		BenchmarkRunner.println("Grammar: %s", path);
+		
+		byte[] source = Files.readAllBytes(Paths.get(path));
+		HCGRGrammarParser reader = new HCGRGrammarParser();
+		runner.run("parseGrammar", source.length, () -> reader.parseGrammar(source));
+		
+		Grammar grammar = reader.parseGrammar(source);
+		runner.run("OptimizedGrammar", 0, () -> new OptimizedGrammar(grammar));
+		
+		Grammar optimized = grammar.expand();
+		runner.run("generateParser", 0, () -> new GLRParserGenerator().generateParser(optimized, lexer));
+		
+		GLRParser parser = new GLRParserGenerator().generateParser(optimized, lexer);
+		
+		Path table = Files.createTempFile("parser", ".hcpt");
+		try {
+			parser.save(table);
+			runner.run("loadParser", Files.size(table), () -> load(table, optimized, lexer));
+		} finally {
+			Files.delete(table);
+		}
+		
+		Result firstLexer = null, lastLexer = null;
+		Result firstParser = null, lastParser = null;
+		Result firstForest = null, lastForest = null;
+		
+		for(int length = 1024; length <= size; length <<= 1) {
+			byte[] bytes = generator.generate(length, 232).getBytes();
+			TokenSequence tokens = TokenSequence.of(lexer.parseBuffer(bytes));
+			
+			lastLexer = runner.run("Tokenizer.parse " + bytes.length + " B", bytes.length, () -> lexer.parse(bytes));
+			if(firstLexer == null) firstLexer = lastLexer;
+			
+			if(lastParser != null && lastParser.nanosPerOp / 1e6 > MAX_PARSE_MILLIS) {
+				BenchmarkRunner.println("%-32s skipped", "GLRParser.parse " + bytes.length + " B");
+			} else {
+				lastParser = runner.run("GLRParser.parse " + bytes.length + " B", bytes.length, () -> parser.parse(tokens));
+				if(firstParser == null) firstParser = lastParser;
+			}
+			
+			if(lastForest != null && lastForest.nanosPerOp / 1e6 > MAX_PARSE_MILLIS) {
+				BenchmarkRunner.println("%-32s skipped", "GLRParser.parseForest " + bytes.length + " B");
+			} else {
+				lastForest = runner.run("GLRParser.parseForest " + bytes.length + " B", bytes.length, () -> parser.parseForest(tokens));
+				if(firstForest == null) firstForest = lastForest;
+			}
+		}
+		
+		BenchmarkRunner.printScaling("Tokenizer.parse", firstLexer, lastLexer);
+		BenchmarkRunner.printScaling("GLRParser.parse", firstParser, lastParser);
+		BenchmarkRunner.printScaling("GLRParser.parseForest", firstForest, lastForest);
+		BenchmarkRunner.println("");
+	}
+	
+	private static GLRParser load(Path path, Grammar grammar, Tokenizer lexer) {
+		try {
+			return new GLRParserGenerator().loadParser(path, grammar, lexer);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
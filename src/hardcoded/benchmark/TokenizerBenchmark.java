@@ -0,0 +1,72 @@
+package hardcoded.benchmark;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+import hardcoded.lexer.Tokenizer;
+import hardcoded.lexer.Tokenizer.Strategy;
+import hardcoded.lexer.TokenizerFactory;
+
+/**
+ * This benchmark compares the matching strategies of the tokenizer on
+ * operator heavy input generated for the lexer file 'res/lexer/hc.lex'.
+ * 
+ * <pre>java hardcoded.benchmark.TokenizerBenchmark [size in kilobytes]</pre>
+ * 
+ * @author HardCoded
+ */
+public class TokenizerBenchmark {
+	private static final String[] operators = {
+		"+", "-", "*", "/", "%", "^", "&", "|", "~", "<<", ">>", "==", "!=", ">=", "<=",
+		"&&", "||", "+=", "-=", "*=", "/=", "%=", "^=", ">>=", "<<=", "++", "--", "?", ":"
+	};
+	
+	/**
+	 * Generates a string of numbers and identifiers separated by operators.
+	 * 
+	 * @param length the minimum number of bytes to generate.
+	 * @param seed the seed used for the random generator.
+	 * @return the generated input.
+	 */
+	public static String generateOperators(int length, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder(length + 64);
+		
+		while(sb.length() < length) {
+			switch(random.nextInt(4)) {
+				case 0: sb.append(random.nextInt(1000)); break;
+				case 1: sb.append("var").append(random.nextInt(100)); break;
+				case 2: sb.append('(').append(random.nextInt(10)).append(')'); break;
+				default: sb.append("0x").append(Integer.toHexString(random.nextInt())); break;
+			}
+			
+			sb.append(operators[random.nextInt(operators.length)]);
+			if(random.nextInt(16) == 0) sb.append(";\n");
+		}
+		
+		return sb.toString();
+	}
+	
+	public static void main(String[] args) throws IOException {
+		int size = (args.length > 0 ? Integer.parseInt(args[0]):1024) * 1024;
+		byte[] bytes = generateOperators(size, 232).getBytes();
+		Tokenizer lexer = TokenizerFactory.loadFromFile("res/lexer/hc.lex");
+		
+		System.out.printf(Locale.ENGLISH, "Input: %d bytes, %d tokens\n", bytes.length, lexer.parse(bytes).size());
+		
+		for(Strategy strategy : Strategy.values()) {
+			lexer.setStrategy(strategy);
+			
+			// Warmup so that the jit has compiled the matching loop.
+			for(int i = 0; i < 5; i++) lexer.parse(bytes);
+			
+			int iterations = 10;
+			long start = System.nanoTime();
+			for(int i = 0; i < iterations; i++) lexer.parse(bytes);
+			double seconds = (System.nanoTime() - start) / 1e9 / iterations;
+			
+			System.out.printf(Locale.ENGLISH, "%-10s %8.2f ms/op %8.2f MB/s\n", strategy, seconds * 1e3, bytes.length / seconds / (1 << 20));
+		}
+	}
+}
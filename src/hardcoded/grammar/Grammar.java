@@ -261,6 +261,10 @@ public class Grammar {
 			return pattern.pattern();
 		}
 		
+		public Pattern getPattern() {
+			return pattern;
+		}
+		
 		public String toString() {
 			return "r:" + pattern;
 		}
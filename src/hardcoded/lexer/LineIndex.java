@@ -0,0 +1,172 @@
+package hardcoded.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * This class finds the line and column of an offset inside the input of a tokenizer.<br><br>
+ * 
+ * The offset of the first byte of every line is computed the first time a line
+ * or column is needed. Lines are then found with a binary search. A tab counts
+ * as {@link #getTabWidth()} columns and every other byte counts as one column.
+ * Lines and columns start at one.
+ * 
+ * @author HardCoded
+ */
+public final class LineIndex {
+	/**
+	 * The default number of columns of a tab. Notepad++ and Eclipse counts tabs as four columns.
+	 */
+	public static final int DEFAULT_TAB_WIDTH = 4;
+	
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGHS = 0x8080808080808080L;
+	private static final long NEWLINES = ONES * '\n';
+	private static final long TABS = ONES * '\t';
+	
+	private final ByteBuffer source;
+	private final int tabWidth;
+	
+	// The line and column of a index that only contains a single position.
+	private final int fixedLine;
+	private final int fixedColumn;
+	
+	// The lines that contains at least one tab.
+	private BitSet tabLines;
+	private volatile int[] starts;
+	
+	/**
+	 * Create a line index for a buffer. The position and limit of the buffer are ignored.
+	 * 
+	 * @param source the input.
+	 * @param tabWidth the number of columns of a tab.
+	 * @throws IllegalArgumentException if the tab width was less than one.
+	 */
+	public LineIndex(ByteBuffer source, int tabWidth) {
+		if(source == null) throw new NullPointerException("The source was null.");
+		if(tabWidth < 1) throw new IllegalArgumentException("The tab width must be positive.");
+		this.source = source;
+		this.tabWidth = tabWidth;
+		this.fixedLine = 0;
+		this.fixedColumn = 0;
+	}
+	
+	/**
+	 * Create a line index for a single token where the line and column are already known.
+	 */
+	LineIndex(int line, int column) {
+		this.source = null;
+		this.tabWidth = DEFAULT_TAB_WIDTH;
+		this.fixedLine = line;
+		this.fixedColumn = column;
+	}
+	
+	/**
+	 * Returns the line of an offset.
+	 */
+	public int line(int offset) {
+		if(source == null) return fixedLine;
+		return lineIndex(offset) + 1;
+	}
+	
+	/**
+	 * Returns the column of an offset.
+	 */
+	public int column(int offset) {
+		if(source == null) return fixedColumn;
+		
+		int line = lineIndex(offset);
+		int start = starts[line];
+		if(!tabLines.get(line)) return offset - start + 1;
+		
+		int column = 1;
+		for(int i = start; i < offset; i++) {
+			column += (source.get(i) == '\t') ? tabWidth:1;
+		}
+		
+		return column;
+	}
+	
+	/**
+	 * Returns the number of lines of the input.
+	 */
+	public int getLineCount() {
+		if(source == null) return 1;
+		return getStarts().length;
+	}
+	
+	public int getTabWidth() {
+		return tabWidth;
+	}
+	
+	private int lineIndex(int offset) {
+		int[] starts = getStarts();
+		int index = Arrays.binarySearch(starts, offset);
+		return index < 0 ? (-index - 2):index;
+	}
+	
+	private int[] getStarts() {
+		int[] result = starts;
+		if(result == null) {
+			synchronized(this) {
+				result = starts;
+				if(result == null) {
+					starts = result = build();
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Find the start of every line. Eight bytes are tested at the same time and
+	 * only groups that contains a newline or a tab are read one byte at a time.
+	 */
+	private int[] build() {
+		ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int length = buffer.capacity();
+		
+		BitSet tabs = new BitSet();
+		int[] result = new int[16];
+		int count = 1;
+		
+		int index = 0;
+		while(index < length) {
+			if(index + 8 <= length) {
+				long word = buffer.getLong(index);
+				if(!hasZeroByte(word ^ NEWLINES) && !hasZeroByte(word ^ TABS)) {
+					index += 8;
+					continue;
+				}
+			}
+			
+			int end = Math.min(index + 8, length);
+			for(; index < end; index++) {
+				byte c = buffer.get(index);
+				
+				if(c == '\n') {
+					if(count == result.length) result = Arrays.copyOf(result, count << 1);
+					result[count++] = index + 1;
+				} else if(c == '\t') {
+					tabs.set(count - 1);
+				}
+			}
+		}
+		
+		tabLines = tabs;
+		return Arrays.copyOf(result, count);
+	}
+	
+	private static boolean hasZeroByte(long value) {
+		return ((value - ONES) & ~value & HIGHS) != 0;
+	}
+	
+	@Override
+	public String toString() {
+		if(source == null) return "LineIndex(line=" + fixedLine + ", column=" + fixedColumn + ")";
+		return "LineIndex(tabWidth=" + tabWidth + ")";
+	}
+}
@@ -11,11 +11,11 @@ public class Token {
 	// TODO: Maybe use the words trailing? leading?
 	protected final String value;
 	protected String group;
+	protected int groupId = -1;
 	protected Token prev;
 	protected Token next;
 	
-	protected int line;
-	protected int column;
+	protected LineIndex lines;
 	protected int fileOffset;
 	
 	protected Token(String value, String group) {
@@ -24,11 +24,11 @@ public class Token {
 	}
 	
 	public int line() {
-		return line;
+		return lines == null ? 0:lines.line(fileOffset);
 	}
 	
 	public int column() {
-		return column;
+		return lines == null ? 0:lines.column(fileOffset);
 	}
 	
 	/**
@@ -42,6 +42,16 @@ public class Token {
 		return group;
 	}
 	
+	/**
+	 * Returns the id of the group inside the tokenizer that created this token
+	 * or -1 if the token has no group.
+	 * 
+	 * @see Tokenizer#getGroupId(String)
+	 */
+	public int groupId() {
+		return groupId;
+	}
+	
 	public String value() {
 		return value;
 	}
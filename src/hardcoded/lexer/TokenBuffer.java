@@ -0,0 +1,158 @@
+package hardcoded.lexer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This is a compact list of tokens created by {@link Tokenizer#parseBuffer(byte[])}
+ * or {@link Tokenizer#parseBuffer(java.nio.file.Path)}.<br><br>
+ * 
+ * Each token is stored as three integers inside parallel arrays: the offset, the
+ * length and the group id. The value of a token is only created as a string when
+ * {@link #value(int)} is called and the line and column are found by a {@link LineIndex}.
+ * 
+ * @author HardCoded
+ */
+public final class TokenBuffer {
+	/**
+	 * The number of tokens a buffer has room for before it grows. A guess from the size of
+	 * the input reserves a lot of memory for inputs with long tokens, so the buffer starts
+	 * small and grows by half of its size each time it is full.
+	 */
+	static final int DEFAULT_CAPACITY = 256;
+	
+	private final ByteBuffer bytes;
+	
+	// The name and discard flag of each group id offset by one.
+	private final String[] groups;
+	private final boolean[] discards;
+	
+	private int[] offsets;
+	private int[] lengths;
+	private int[] groupIds;
+	private int size;
+	
+	private final LineIndex lines;
+	
+	TokenBuffer(ByteBuffer bytes, String[] groups, boolean[] discards, int tabWidth) {
+		this(bytes, groups, discards, new LineIndex(bytes, tabWidth), DEFAULT_CAPACITY);
+	}
+	
+	TokenBuffer(ByteBuffer bytes, String[] groups, boolean[] discards, LineIndex lines, int capacity) {
+		this.bytes = bytes;
+		this.groups = groups;
+		this.discards = discards;
+		this.lines = lines;
+		
+		capacity = Math.max(16, capacity);
+		this.offsets = new int[capacity];
+		this.lengths = new int[capacity];
+		this.groupIds = new int[capacity];
+	}
+	
+	void add(int group, boolean discard, int offset, int length) {
+		if(size == offsets.length) {
+			int capacity = size + (size >>> 1);
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			groupIds = Arrays.copyOf(groupIds, capacity);
+		}
+		
+		offsets[size] = offset;
+		lengths[size] = length;
+		groupIds[size] = group;
+		size++;
+	}
+	
+	/**
+	 * Returns the number of tokens inside this buffer.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Get the offset from the start of the input that this token was read from.
+	 */
+	public int offset(int index) {
+		checkIndex(index);
+		return offsets[index];
+	}
+	
+	public int length(int index) {
+		checkIndex(index);
+		return lengths[index];
+	}
+	
+	/**
+	 * Get the line of a token. This is found with a binary search.
+	 * @see LineIndex
+	 */
+	public int line(int index) {
+		checkIndex(index);
+		return lines.line(offsets[index]);
+	}
+	
+	public int column(int index) {
+		checkIndex(index);
+		return lines.column(offsets[index]);
+	}
+	
+	/**
+	 * Returns the index used to find the line and column of the tokens.
+	 */
+	public LineIndex getLineIndex() {
+		return lines;
+	}
+	
+	/**
+	 * Get the id of the group of a token. Tokens that did not match any group and
+	 * has no default group gets the id -1.
+	 * 
+	 * @see Tokenizer#getGroupId(String)
+	 */
+	public int groupId(int index) {
+		checkIndex(index);
+		return groupIds[index];
+	}
+	
+	/**
+	 * Get the name of the group of a token.
+	 */
+	public String group(int index) {
+		return groups[groupId(index) + 1];
+	}
+	
+	/**
+	 * Create the value of a token. This allocates a new string each time it is called.
+	 */
+	public String value(int index) {
+		checkIndex(index);
+		return TokenizerString.decode(bytes, offsets[index], lengths[index]);
+	}
+	
+	/**
+	 * Compares the value of a token without creating a string.
+	 */
+	public boolean valueEquals(int index, String value) {
+		checkIndex(index);
+		return TokenizerString.valueEquals(bytes, offsets[index], lengths[index], value);
+	}
+	
+	/**
+	 * Create a symbol for a token.
+	 */
+	public TokenizerSymbol symbol(int index) {
+		int id = groupId(index);
+		return new TokenizerSymbol(groups[id + 1], id, discards[id + 1], value(index), lines, offsets[index]);
+	}
+	
+	private void checkIndex(int index) {
+		if(index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+	
+	@Override
+	public String toString() {
+		return "TokenBuffer(size=" + size + ")";
+	}
+}
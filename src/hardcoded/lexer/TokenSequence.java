@@ -0,0 +1,127 @@
+package hardcoded.lexer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A immutable list of tokens stored inside a array. Unlike walking a {@link Token}
+ * chain every token can be found by its index and the number of remaining tokens
+ * is known without walking the rest of the input.
+ * 
+ * @author HardCoded
+ */
+public final class TokenSequence {
+	private final Token[] tokens;
+	
+	private TokenSequence(Token[] tokens) {
+		this.tokens = tokens;
+	}
+	
+	/**
+	 * Create a sequence from a token and all the tokens that comes after it.
+	 * Tokens without a value, like the start of a chain created by {@link TokenizerOld},
+	 * are not added to the sequence.
+	 * 
+	 * @param token the first token or null for a empty sequence.
+	 */
+	public static TokenSequence of(Token token) {
+		int count = 0;
+		for(Token t = token; t != null; t = t.next) {
+			if(t.value != null) count++;
+		}
+		
+		Token[] array = new Token[count];
+		int index = 0;
+		for(Token t = token; t != null; t = t.next) {
+			if(t.value != null) array[index++] = t;
+		}
+		
+		return new TokenSequence(array);
+	}
+	
+	public static TokenSequence of(List<Token> list) {
+		return new TokenSequence(list.toArray(new Token[0]));
+	}
+	
+	/**
+	 * Create a sequence from the tokens inside a buffer. The tokens are linked
+	 * together so that {@link Token#next()} and {@link Token#prev()} still works.
+	 */
+	public static TokenSequence of(TokenBuffer buffer) {
+		Token[] array = new Token[buffer.size()];
+		LineIndex lines = buffer.getLineIndex();
+		
+		for(int i = 0; i < array.length; i++) {
+			Token token = new Token(buffer.value(i), buffer.group(i));
+			token.groupId = buffer.groupId(i);
+			token.fileOffset = buffer.offset(i);
+			token.lines = lines;
+			
+			if(i > 0) {
+				token.prev = array[i - 1];
+				token.prev.next = token;
+			}
+			
+			array[i] = token;
+		}
+		
+		return new TokenSequence(array);
+	}
+	
+	/**
+	 * Returns the number of tokens inside this sequence.
+	 */
+	public int size() {
+		return tokens.length;
+	}
+	
+	public boolean isEmpty() {
+		return tokens.length == 0;
+	}
+	
+	public Token get(int index) {
+		return tokens[index];
+	}
+	
+	/**
+	 * Get the number of tokens after the token at a index.
+	 */
+	public int remaining(int index) {
+		return Math.max(0, tokens.length - index - 1);
+	}
+	
+	/**
+	 * Get the index of a token inside this sequence.
+	 * @return -1 if the token was not found
+	 */
+	public int indexOf(Token token) {
+		for(int i = 0; i < tokens.length; i++) {
+			if(tokens[i] == token) return i;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Returns the values of the count amount of tokens starting from a index concatinated together.
+	 * @param index the index of the first token.
+	 * @param separator the string that will separate the concatinated tokens.
+	 * @param count the number of tokens.
+	 * @return returns a string of the concatinated tokens.
+	 */
+	public String toString(int index, CharSequence separator, int count) {
+		StringBuilder sb = new StringBuilder();
+		int end = (int)Math.min(tokens.length, (long)index + count);
+		for(int i = index; i < end; i++) {
+			if(i > index) sb.append(separator);
+			sb.append(tokens[i].value);
+		}
+		
+		return sb.toString();
+	}
+	
+	@Override
+	public String toString() {
+		return Arrays.toString(tokens);
+	}
+}
@@ -1,9 +1,20 @@
 package hardcoded.lexer;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -18,9 +29,17 @@ import hardcoded.utils.StringUtils;
 public class Tokenizer implements Serializable {
 	private static final long serialVersionUID = -39792822918295242L;
 	private transient ImmutableTokenzier immutable;
+	private transient CompiledRules compiled;
 	
 	private final Map<String, SymbolGroup> groups;
 	
+	/**
+	 * Each group name gets a unique id the first time it is used by this tokenizer.
+	 * The id is the index of the name inside this list and is never reused.
+	 */
+	private final List<String> groupNames;
+	private final Map<String, Integer> groupIds;
+	
 	/**
 	 * If a token didn't match any group it will default to this value.
 	 */
@@ -32,12 +51,26 @@ public class Tokenizer implements Serializable {
 	 */
 	private boolean autoDiscard = true;
 	
+	/**
+	 * The strategy used to match the rules of this tokenizer.
+	 */
+	private Strategy strategy = Strategy.AUTOMATON;
+	
+	/**
+	 * The number of columns a tab counts as when the column of a token is computed.
+	 */
+	private int tabWidth = LineIndex.DEFAULT_TAB_WIDTH;
+	
 	protected Tokenizer() {
 		groups = new LinkedHashMap<>();
+		groupNames = new ArrayList<>();
+		groupIds = new HashMap<>();
 	}
 	
 	public void setDefaultGroup(String string) {
+		if(string != null) register(string);
 		this.defaultGroup = string;
+		compiled = null;
 	}
 	
 	public String getDefaultGroup() {
@@ -64,9 +97,10 @@ public class Tokenizer implements Serializable {
 	public SymbolGroup add(String name, boolean discard) {
 		if(contains(name)) return null;
 		
-		SymbolGroup group = new SymbolGroup(name);
+		SymbolGroup group = new SymbolGroup(name, register(name));
 		group.setDiscard(discard);
 		groups.put(name, group);
+		compiled = null;
 		return group;
 	}
 	
@@ -82,6 +116,35 @@ public class Tokenizer implements Serializable {
 		return autoDiscard;
 	}
 	
+	/**
+	 * Set the strategy that this lexer uses to match its rules.
+	 * @param strategy
+	 * @throws NullPointerException if the strategy was null.
+	 */
+	public void setStrategy(Strategy strategy) {
+		if(strategy == null) throw new NullPointerException("The strategy was null.");
+		this.strategy = strategy;
+		compiled = null;
+	}
+	
+	public Strategy getStrategy() {
+		return strategy;
+	}
+	
+	/**
+	 * Set the number of columns a tab counts as when the column of a token is computed.
+	 * @param width
+	 * @throws IllegalArgumentException if the width was less than one.
+	 */
+	public void setTabWidth(int width) {
+		if(width < 1) throw new IllegalArgumentException("The tab width must be positive.");
+		this.tabWidth = width;
+	}
+	
+	public int getTabWidth() {
+		return tabWidth;
+	}
+	
 	/**
 	 * Get a group from this tokenizer.
 	 * @param name the group name.
@@ -97,6 +160,7 @@ public class Tokenizer implements Serializable {
 	 * @return true if the group was found and removed.
 	 */
 	public boolean remove(String name) {
+		compiled = null;
 		return groups.remove(name) != null;
 	}
 	
@@ -109,6 +173,47 @@ public class Tokenizer implements Serializable {
 		return groups.containsKey(name);
 	}
 	
+	private int register(String name) {
+		Integer id = groupIds.get(name);
+		if(id == null) {
+			id = groupNames.size();
+			groupNames.add(name);
+			groupIds.put(name, id);
+		}
+		
+		return id;
+	}
+	
+	/**
+	 * Get the id of a group. Each tokenizer gives its groups dense ids starting from
+	 * zero in the order they were added. The ids never change after they are given.
+	 * 
+	 * @param name the group name.
+	 * @return the id of the group or -1 if this tokenizer has never used that name.
+	 */
+	public int getGroupId(String name) {
+		Integer id = groupIds.get(name);
+		return id == null ? -1:id;
+	}
+	
+	/**
+	 * Get the name of a group from its id.
+	 * 
+	 * @param id the group id.
+	 * @return the group name or null if the id does not exist.
+	 */
+	public String getGroupName(int id) {
+		if(id < 0 || id >= groupNames.size()) return null;
+		return groupNames.get(id);
+	}
+	
+	/**
+	 * Returns the number of ids that has been given to groups.
+	 */
+	public int getGroupCount() {
+		return groupNames.size();
+	}
+	
 	/**
 	 * Get a immutable version of this tokenizer.
 	 */
@@ -151,92 +256,505 @@ public class Tokenizer implements Serializable {
 	
 	/**
 	 * Parse a byte array into a list of symbols using
-	 * the patterns given to this lexer.
+	 * the patterns given to this lexer.<br><br>
+	 * 
+	 * Each token is the longest match of all the rules in this lexer.
+	 * If multiple groups matched the same length the group that was added
+	 * first to this lexer is used.
 	 * 
 	 * @param bytes
 	 * @return a list of symbols.
 	 */
 	public List<TokenizerSymbol> parse(byte[] bytes) {
-		TokenizerString string = new TokenizerString(bytes);
 		List<TokenizerSymbol> list = new ArrayList<>();
+		CompiledRules rules = getCompiledRules();
+		LineIndex lines = new LineIndex(ByteBuffer.wrap(bytes), tabWidth);
+		
+		tokenize(rules, new TokenizerString(bytes), (group, discard, offset, length) -> {
+			String value = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+			list.add(new TokenizerSymbol(rules.names[group + 1], group, discard, value, lines, offset));
+		});
+		
+		return list;
+	}
+	
+	/**
+	 * Parse a byte array into a {@link TokenBuffer}. This gives the same tokens
+	 * as {@link #parse(byte[])} but does not create any objects for each token.<br>
+	 * The buffer keeps a reference to the byte array so it should not be modified.
+	 * 
+	 * @param bytes
+	 * @return a buffer containing all tokens.
+	 */
+	public TokenBuffer parseBuffer(byte[] bytes) {
+		CompiledRules rules = getCompiledRules();
+		
+		TokenBuffer buffer = new TokenBuffer(ByteBuffer.wrap(bytes), rules.names, rules.discards, tabWidth);
+		tokenize(rules, new TokenizerString(bytes), buffer::add);
+		return buffer;
+	}
+	
+	/**
+	 * Parse a byte array into a list of symbols using multiple threads. The input is
+	 * split into chunks that are lexed by the pool and the tokens that cross the
+	 * border of a chunk are repaired when the chunks are merged.<br><br>
+	 * 
+	 * This gives the same symbols as {@link #parse(byte[])}. Small inputs are parsed
+	 * on the calling thread.
+	 * 
+	 * @param bytes
+	 * @param pool the pool that lexes the chunks.
+	 * @return a list of symbols.
+	 * @throws NullPointerException if the pool was null.
+	 */
+	public List<TokenizerSymbol> parse(byte[] bytes, ForkJoinPool pool) {
+		if(pool == null) throw new NullPointerException("The pool was null.");
+		TokenBuffer buffer = parseBuffer(bytes, pool);
+		return new ArrayList<>(Arrays.asList(TokenizerParallel.symbols(buffer, pool)));
+	}
+	
+	/**
+	 * Parse a byte array into a {@link TokenBuffer} using multiple threads.
+	 * 
+	 * @param bytes
+	 * @param pool the pool that lexes the chunks.
+	 * @return a buffer containing all tokens.
+	 * @throws NullPointerException if the pool was null.
+	 * @see #parse(byte[], ForkJoinPool)
+	 */
+	public TokenBuffer parseBuffer(byte[] bytes, ForkJoinPool pool) {
+		if(pool == null) throw new NullPointerException("The pool was null.");
+		return new TokenizerParallel(this, getCompiledRules(), bytes, tabWidth).parse(pool);
+	}
+	
+	/**
+	 * Parse a string into a {@link TokenBuffer} using the charset ISO_8859_1.
+	 * 
+	 * @param string
+	 * @return a buffer containing all tokens.
+	 * @throws NullPointerException if the string was null.
+	 */
+	public TokenBuffer parseBuffer(String string) {
+		return parseBuffer(string.getBytes(StandardCharsets.ISO_8859_1));
+	}
+	
+	/**
+	 * Parse a byte array into a document that can be edited. Each edit creates
+	 * a new document where only the tokens close to the edit are lexed again.
+	 * The array is copied.
+	 * 
+	 * @param bytes
+	 * @return a document containing the tokens of the bytes.
+	 * @see TokenizerDocument#edit(int, int, byte[])
+	 */
+	public TokenizerDocument parseDocument(byte[] bytes) {
+		return new TokenizerDocument(this, getCompiledRules(), bytes.clone(), tabWidth);
+	}
+	
+	/**
+	 * Parse a file into a list of symbols. The file is mapped into memory and is
+	 * read without copying it. The value of each symbol is only created when it
+	 * is first used so the symbols keep a reference to the mapped file.
+	 * 
+	 * @param path the file to parse.
+	 * @return a list of symbols.
+	 * @throws IOException if the file could not be mapped or was larger than 2 GB.
+	 * @see #stream(ReadableByteChannel)
+	 */
+	public List<TokenizerSymbol> parse(Path path) throws IOException {
+		ByteBuffer buffer = map(path);
+		List<TokenizerSymbol> list = new ArrayList<>();
+		CompiledRules rules = getCompiledRules();
+		LineIndex lines = new LineIndex(buffer, tabWidth);
+		
+		tokenize(rules, new TokenizerString(buffer), (group, discard, offset, length) -> {
+			list.add(new TokenizerSymbol(rules.names[group + 1], group, discard, buffer, offset, length, lines));
+		});
+		
+		return list;
+	}
+	
+	/**
+	 * Parse a file into a {@link TokenBuffer}. The file is mapped into memory and
+	 * the buffer reads the values of the tokens directly from the mapping.
+	 * 
+	 * @param path the file to parse.
+	 * @return a buffer containing all tokens.
+	 * @throws IOException if the file could not be mapped or was larger than 2 GB.
+	 */
+	public TokenBuffer parseBuffer(Path path) throws IOException {
+		ByteBuffer buffer = map(path);
+		CompiledRules rules = getCompiledRules();
+		
+		TokenBuffer result = new TokenBuffer(buffer, rules.names, rules.discards, tabWidth);
+		tokenize(rules, new TokenizerString(buffer), result::add);
+		return result;
+	}
+	
+	private static MappedByteBuffer map(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("The file '" + path + "' is too large to be mapped. Use a stream instead");
+			}
+			
+			return channel.map(MapMode.READ_ONLY, 0, size);
+		}
+	}
+	
+	/**
+	 * Create a stream that reads tokens from a channel. The stream only keeps a
+	 * window of the input in memory that is large enough to hold the longest
+	 * pending match, so the input can be larger than the available heap.<br><br>
+	 * 
+	 * The stream gives the same tokens as {@link #parse(byte[])} would give for
+	 * the whole input. Closing the stream also closes the channel.
+	 * 
+	 * @param channel a blocking channel.
+	 * @return a stream of tokens.
+	 * @throws NullPointerException if the channel was null.
+	 */
+	public TokenizerStream stream(ReadableByteChannel channel) {
+		return stream(channel, TokenizerStream.DEFAULT_WINDOW_SIZE);
+	}
+	
+	/**
+	 * Create a stream that reads tokens from a channel.
+	 * 
+	 * @param channel a blocking channel.
+	 * @param windowSize the initial size of the window. The window grows if a token is larger.
+	 * @return a stream of tokens.
+	 * @throws NullPointerException if the channel was null.
+	 * @throws IllegalArgumentException if the window size was less than one.
+	 * @see #stream(ReadableByteChannel)
+	 */
+	public TokenizerStream stream(ReadableByteChannel channel, int windowSize) {
+		if(channel == null) throw new NullPointerException("The channel was null.");
+		if(windowSize < 1) throw new IllegalArgumentException("The window size must be positive.");
+		return new TokenizerStream(getCompiledRules(), autoDiscard, tabWidth, channel, windowSize);
+	}
+	
+	/**
+	 * Create a stream that reads tokens from an input stream.
+	 * 
+	 * @param stream
+	 * @return a stream of tokens.
+	 * @throws NullPointerException if the stream was null.
+	 * @see #stream(ReadableByteChannel)
+	 */
+	public TokenizerStream stream(InputStream stream) {
+		if(stream == null) throw new NullPointerException("The stream was null.");
+		return stream(Channels.newChannel(stream));
+	}
+	
+	/**
+	 * This interface receives the tokens found by the lexer.
+	 */
+	interface TokenSink {
+		/**
+		 * @param group the id of the group or -1 if the token had no group.
+		 * @param discard if the group of this token has the discard flag.
+		 * @param offset the offset from the start of the input.
+		 * @param length the length of the token.
+		 */
+		void add(int group, boolean discard, int offset, int length);
+	}
+	
+	/**
+	 * This interface is told where each token starts and can stop the lexer.
+	 */
+	interface TokenSync {
+		/**
+		 * This is called before a matched token is sent to the sink. Unmatched
+		 * characters before the token have already been sent.
+		 * 
+		 * @param offset the offset of the matched token.
+		 * @return true if the lexer should stop before this token.
+		 */
+		boolean mark(int offset);
 		
-		StringBuilder sb = new StringBuilder();
-		boolean hasNull = false;
+		/**
+		 * This is called before each character that did not match any rule. The unmatched
+		 * characters are combined into a single token so the lexer can only stop before the
+		 * first character of a run. If the lexer stops the characters of the run are not
+		 * sent to the sink.
+		 * 
+		 * @param offset the offset of the unmatched character.
+		 * @param start the offset of the first unmatched character of the run.
+		 * @return true if the lexer should stop before the start of the run.
+		 */
+		default boolean markUnmatched(int offset, int start) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Splits the bytes into tokens and sends them to the sink. Characters that did not
+	 * match any rule are combined into tokens of the default group.
+	 */
+	private void tokenize(CompiledRules rules, TokenizerString string, TokenSink sink) {
+		tokenize(rules, string, sink, null);
+	}
+	
+	/**
+	 * Splits the bytes into tokens until the sync stops the lexer or the string has ended.
+	 * 
+	 * @param sync the object that is told where each token starts or null.
+	 * @return the offset where the lexer stopped.
+	 */
+	int tokenize(CompiledRules rules, TokenizerString string, TokenSink sink, TokenSync sync) {
+		return tokenize(rules, string, sink, sync, new TokenizerMatch());
+	}
 		
-		int line = 0;
-		int column = 0;
-		int index = 0;
+	/**
+	 * Splits the bytes into tokens until the sync stops the lexer or the string has ended.
+	 * If the match is tracking the extent of the rules the extent is updated before
+	 * every call to the sink and the sync.
+	 * 
+	 * @param sync the object that is told where each token starts or null.
+	 * @param match the object used to store each match.
+	 * @return the offset where the lexer stopped.
+	 */
+	int tokenize(CompiledRules rules, TokenizerString string, TokenSink sink, TokenSync sync, TokenizerMatch match) {
+		int index = -1;
 		
 		while(string.length() > 0) {
-			TokenizerSymbol sym = parseSingle(string, 0);
-			if(sym != null) {
-				if(hasNull) {
-					hasNull = false;
-					
-					list.add(new TokenizerSymbol(defaultGroup, false, sb.toString(), line, column, index));
-					sb.delete(0, sb.length());
+			boolean found = matchSingle(rules, string, match);
+			if(match.track) {
+				int extent = string.getIndex() + match.scanned + (match.hitEnd ? 1:0);
+				if(extent > match.extent) match.extent = extent;
+			}
+			
+			if(found) {
+				if(index >= 0) {
+					sink.add(rules.defaultId, false, index, string.getIndex() - index);
+					index = -1;
+				}
+				
+				if(sync != null && sync.mark(string.getIndex())) {
+					return string.getIndex();
 				}
 				
-				if(!autoDiscard || !sym.discard()) list.add(sym);
+				SymbolGroup group = rules.groups[match.group];
+				if(!autoDiscard || !group.discard) {
+					sink.add(group.id, group.discard, string.getIndex(), match.length);
+				}
+				
+				string.move(match.length);
 			} else {
-				if(!hasNull) {
-					line = string.getLine();
-					column = string.getColumn();
+				if(index < 0) {
 					index = string.getIndex();
-					hasNull = true;
 				}
 				
-				sb.append(string.charAt(0));
+				if(sync != null && sync.markUnmatched(string.getIndex(), index)) {
+					return index;
+				}
+				
 				string.move(1);
 			}
 		}
 		
-		if(hasNull) {
-			list.add(new TokenizerSymbol(defaultGroup, false, sb.toString(), line, column, index));
+		if(index >= 0) {
+			sink.add(rules.defaultId, false, index, string.getIndex() - index);
 		}
 		
-		return list;
+		return string.getIndex();
 	}
 	
-	private TokenizerSymbol parseSingle(TokenizerString string, int index) {
-		SymbolGroup g = null;
-		int length = -1;
+	/**
+	 * Find the longest match at the start of the string. The field {@code hitEnd}
+	 * of the match is set if any rule needed to read past the end of the string.
+	 * 
+	 * @return true if any rule matched at least one character.
+	 */
+	static boolean matchSingle(CompiledRules rules, TokenizerString string, TokenizerMatch match) {
+		int group = -1;
+		int length = 0;
+		int scanned = 0;
+		boolean hitEnd = false;
 		
-		for(SymbolGroup group : groups.values()) {
-			for(Rule rule : group.rules) {
-				int len = -1;
-				
-				if(rule.string != null) {
-					String rule_string = rule.string;
+		if(rules.automaton != null) {
+			if(rules.automaton.match(string, match)) {
+				group = match.group;
+				length = match.length;
+			}
+			
+			hitEnd = match.hitEnd;
+			scanned = match.scanned;
+		} else if(rules.trie != null) {
+			if(rules.trie.match(string, match)) {
+				group = match.group;
+				length = match.length;
+			}
+			
+			hitEnd = match.hitEnd;
+			scanned = match.scanned;
+		}
+		
+		// Rules that could not be compiled are tested one by one.
+		match.hitEnd = false;
+		match.scanned = 0;
+		for(int i = 0; i < rules.fallback.size(); i++) {
+			int len = rules.fallback.get(i).match(string, match);
+			int index = rules.fallbackGroups[i];
+			
+			if(len > length || (len == length && len > 0 && index < group)) {
+				length = len;
+				group = index;
+			}
+		}
+		
+		match.group = group;
+		match.length = length;
+		match.hitEnd |= hitEnd;
+		if(scanned > match.scanned) match.scanned = scanned;
+		return group >= 0 && length > 0;
+	}
+	
+	/**
+	 * Returns the automaton that matches all the rules of this tokenizer. The automaton
+	 * gives the same tokens as the {@link Strategy#AUTOMATON} strategy even if this
+	 * tokenizer uses another strategy.
+	 * 
+	 * @return the tables of the automaton.
+	 * @throws IllegalStateException if some rule could not be compiled into the automaton.
+	 */
+	public TokenizerTables getTables() {
+		CompiledRules rules = (strategy == Strategy.AUTOMATON) ? getCompiledRules():new CompiledRules(Strategy.AUTOMATON);
+		if(rules.automaton == null || !rules.fallback.isEmpty()) {
+			throw new IllegalStateException("The rules of this tokenizer could not be compiled into a automaton");
+		}
+		
+		TokenizerAutomaton automaton = rules.automaton;
+		int[] next = new int[automaton.size() << 8];
+		int[] accept = new int[automaton.size()];
+		for(int state = 0; state < accept.length; state++) {
+			for(int value = 0; value < 256; value++) {
+				next[(state << 8) | value] = automaton.next(state, value);
+			}
+			
+			// The automaton accepts group indexes so they are changed into group ids.
+			int group = automaton.accept(state);
+			accept[state] = (group < 0) ? -1:rules.groups[group].id;
+		}
+		
+		return new TokenizerTables(next, accept, rules.names.clone(), rules.discards.clone(), rules.defaultId, autoDiscard, tabWidth);
+	}
+	
+	private CompiledRules getCompiledRules() {
+		CompiledRules rules = compiled;
+		if(rules == null) {
+			compiled = rules = new CompiledRules(strategy);
+		}
+		
+		return rules;
+	}
+	
+	/**
+	 * The strategies a tokenizer can use to find the longest match.
+	 * All strategies give the same tokens except for regex alternations
+	 * where the {@link #AUTOMATON} strategy always picks the longest match.
+	 */
+	public enum Strategy {
+		/**
+		 * Test every rule of every group at each position.
+		 */
+		RULES,
+		
+		/**
+		 * Find string rules with a trie and test the remaining rules one by one.
+		 */
+		LITERALS,
+		
+		/**
+		 * Compile all rules into a single deterministic automaton.
+		 */
+		AUTOMATON
+	}
+	
+	/**
+	 * This class contains all the rules of this tokenizer compiled for
+	 * the selected strategy. Rules that the strategy can not compile are
+	 * kept in the fallback list and are matched one by one.
+	 */
+	class CompiledRules {
+		final SymbolGroup[] groups;
+		final int defaultId;
+		
+		// The name and discard flag of each group id offset by one so that the id -1 is the first element.
+		final String[] names;
+		final boolean[] discards;
+		
+		final TokenizerAutomaton automaton;
+		final TokenizerTrie trie;
+		final List<Rule> fallback;
+		final int[] fallbackGroups;
+		
+		private CompiledRules(Strategy strategy) {
+			this.groups = Tokenizer.this.groups.values().toArray(new SymbolGroup[0]);
+			this.defaultId = getGroupId(defaultGroup);
+			this.names = new String[groupNames.size() + 1];
+			this.discards = new boolean[names.length];
+			
+			for(int i = 1; i < names.length; i++) names[i] = groupNames.get(i - 1);
+			for(SymbolGroup group : groups) discards[group.id + 1] = group.discard;
+			
+			TokenizerNfa nfa = new TokenizerNfa();
+			TokenizerTrie literals = new TokenizerTrie();
+			List<Rule> failed = new ArrayList<>();
+			List<Integer> failedGroups = new ArrayList<>();
+			
+			for(int i = 0; i < groups.length; i++) {
+				for(Rule rule : groups[i].rules) {
+					if(strategy == Strategy.LITERALS && rule.string != null) {
+						literals.add(i, rule.string);
+						continue;
+					}
 					
-					if(rule_string.length() <= string.length()) {
-						len = rule_string.length();
-						for(int i = 0; i < rule_string.length(); i++) {
-							if(rule_string.charAt(i) != string.charAt(i)) {
-								len = -1;
-								break;
+					if(strategy == Strategy.AUTOMATON) {
+						try {
+							if(rule.string != null) {
+								nfa.addString(i, rule.string);
+							} else if(rule.open != null) {
+								nfa.addDelimiter(i, rule.open, rule.escape, rule.close);
+							} else {
+								nfa.addRegex(i, rule.pattern.pattern());
 							}
+							
+							continue;
+						} catch(TokenizerNfa.UnsupportedRegexException e) {
+							// This rule will be matched one by one.
 						}
 					}
-				} else {
-					Matcher matcher = rule.pattern.matcher(string);
-					if(matcher.lookingAt()) len = matcher.end();
+					
+					failed.add(rule);
+					failedGroups.add(i);
 				}
+			}
+			
+			TokenizerAutomaton dfa = null;
+			if(strategy == Strategy.AUTOMATON) {
+				dfa = TokenizerAutomaton.compile(nfa);
 				
-				if(len >= length) {
-					length = len;
-					g = group;
+				if(dfa == null) {
+					// The automaton became too large so we match every rule one by one.
+					failed.clear();
+					failedGroups.clear();
+					
+					for(int i = 0; i < groups.length; i++) {
+						for(Rule rule : groups[i].rules) {
+							failed.add(rule);
+							failedGroups.add(i);
+						}
+					}
 				}
 			}
+			
+			this.automaton = dfa;
+			this.trie = (strategy == Strategy.LITERALS) ? literals:null;
+			this.fallback = failed;
+			this.fallbackGroups = failedGroups.stream().mapToInt(Integer::intValue).toArray();
 		}
-		
-		if(g != null && length > 0) {
-			TokenizerSymbol sym = new TokenizerSymbol(g.name, g.discard, string.subSequence(0, length).toString(), string.getLine(), string.getColumn(), string.getIndex());
-			string.move(length);
-			return sym;
-		}
-		
-		return null;
 	}
 	
 	public class SymbolGroup implements Serializable {
@@ -244,20 +762,24 @@ public class Tokenizer implements Serializable {
 		
 		private final List<Rule> rules;
 		private final String name; 
+		private final int id;
 		private boolean discard;
 		
-		private SymbolGroup(String name) {
+		private SymbolGroup(String name, int id) {
 			this.rules = new ArrayList<>();
 			this.name = name;
+			this.id = id;
 		}
 		
 		public SymbolGroup setDiscard(boolean discard) {
 			this.discard = discard;
+			compiled = null;
 			return this;
 		}
 		
 		public SymbolGroup addString(String string) {
 			rules.add(new Rule(StringUtils.unescapeString(string)));
+			compiled = null;
 			return this;
 		}
 		
@@ -265,11 +787,13 @@ public class Tokenizer implements Serializable {
 			for(String string : strings) {
 				rules.add(new Rule(StringUtils.unescapeString(string)));
 			}
+			compiled = null;
 			return this;
 		}
 		
 		public SymbolGroup addRegex(String regex) {
 			rules.add(new Rule(Pattern.compile(regex, Pattern.DOTALL)));
+			compiled = null;
 			return this;
 		}
 		
@@ -277,11 +801,13 @@ public class Tokenizer implements Serializable {
 			for(String regex : patterns) {
 				rules.add(new Rule(Pattern.compile(regex, Pattern.DOTALL)));
 			}
+			compiled = null;
 			return this;
 		}
 		
 		public SymbolGroup addDelimiter(String open, String escape, String close) {
 			rules.add(new Rule(open, escape, close));
+			compiled = null;
 			return this;
 		}
 		
@@ -289,6 +815,14 @@ public class Tokenizer implements Serializable {
 			return name;
 		}
 		
+		/**
+		 * Returns the id of this group.
+		 * @see Tokenizer#getGroupId(String)
+		 */
+		public int getId() {
+			return id;
+		}
+		
 		public boolean shouldDiscard() {
 			return discard;
 		}
@@ -314,9 +848,18 @@ public class Tokenizer implements Serializable {
 		protected final Pattern pattern;
 		protected final String string;
 		
+		// The unescaped delimiter strings
+		protected final String open;
+		protected final String escape;
+		protected final String close;
+		
 		private Rule(String open, String escape, String close) {
-			String S = StringUtils.regexEscape(StringUtils.unescapeString(open));
-			String C = StringUtils.regexEscape(StringUtils.unescapeString(close));
+			this.open = StringUtils.unescapeString(open);
+			this.escape = StringUtils.unescapeString(escape);
+			this.close = StringUtils.unescapeString(close);
+			
+			String S = StringUtils.regexEscape(this.open);
+			String C = StringUtils.regexEscape(this.close);
 			
 			String regex;
 			if(escape.isEmpty()) {
@@ -333,11 +876,48 @@ public class Tokenizer implements Serializable {
 		private Rule(Pattern pattern) {
 			this.pattern = pattern;
 			this.string = null;
+			this.open = null;
+			this.escape = null;
+			this.close = null;
 		}
 		
 		private Rule(String string) {
 			this.pattern = null;
 			this.string = string;
+			this.open = null;
+			this.escape = null;
+			this.close = null;
+		}
+		
+		/**
+		 * Returns the length of the match at the start of the string or -1 if this rule did not match.
+		 * If this rule read to the end of the string the field {@code hitEnd} of the result is set.
+		 */
+		private int match(TokenizerString input, TokenizerMatch result) {
+			if(string == null) {
+				ScanTracker tracker = result.track ? new ScanTracker(input):null;
+				Matcher matcher = pattern.matcher(tracker != null ? tracker:input);
+				boolean found = matcher.lookingAt();
+				if(matcher.hitEnd()) result.hitEnd = true;
+				if(tracker != null && tracker.scanned > result.scanned) result.scanned = tracker.scanned;
+				return found ? matcher.end():-1;
+			}
+			
+			int length = Math.min(string.length(), input.length());
+			for(int i = 0; i < length; i++) {
+				if(string.charAt(i) != input.charAt(i)) {
+					if(i + 1 > result.scanned) result.scanned = i + 1;
+					return -1;
+				}
+			}
+			
+			if(length > result.scanned) result.scanned = length;
+			if(length < string.length()) {
+				result.hitEnd = true;
+				return -1;
+			}
+			
+			return string.length();
 		}
 		
 		@Override
@@ -346,6 +926,37 @@ public class Tokenizer implements Serializable {
 		}
 	}
 	
+	/**
+	 * This class remembers how far a regex has read the input.
+	 */
+	private static class ScanTracker implements CharSequence {
+		private final TokenizerString string;
+		private int scanned;
+		
+		private ScanTracker(TokenizerString string) {
+			this.string = string;
+		}
+		
+		public char charAt(int index) {
+			if(index >= scanned) scanned = index + 1;
+			return string.charAt(index);
+		}
+		
+		public int length() {
+			return string.length();
+		}
+		
+		public CharSequence subSequence(int start, int end) {
+			if(end > scanned) scanned = end;
+			return string.subSequence(start, end);
+		}
+		
+		public String toString() {
+			scanned = string.length();
+			return string.toString();
+		}
+	}
+	
 	private class ImmutableTokenzier extends Tokenizer {
 		private static final long serialVersionUID = 5232114952149326460L;
 		
@@ -358,15 +969,32 @@ public class Tokenizer implements Serializable {
 		public SymbolGroup add(String name, boolean discard) { throw new UnsupportedOperationException("Tokenizer is not modifiable."); }
 		public void setAutoDiscard(boolean enable) { throw new UnsupportedOperationException("Tokenizer is not modifiable."); }
 		public void setDefaultGroup(String string) { throw new UnsupportedOperationException("Tokenizer is not modifiable."); }
+		public void setStrategy(Strategy strategy) { throw new UnsupportedOperationException("Tokenizer is not modifiable."); }
+		public void setTabWidth(int width) { throw new UnsupportedOperationException("Tokenizer is not modifiable."); }
 		public SymbolGroup get(String name) { throw new UnsupportedOperationException("Tokenizer is not modifiable."); }
 		public boolean remove(String name) { throw new UnsupportedOperationException("Tokenizer is not modifiable."); }
 		public boolean contains(String itemName) { return tokenizer.contains(itemName); }
+		public int getGroupId(String name) { return tokenizer.getGroupId(name); }
+		public String getGroupName(int id) { return tokenizer.getGroupName(id); }
+		public int getGroupCount() { return tokenizer.getGroupCount(); }
 		public String getDefaultGroup() { return tokenizer.defaultGroup; }
 		public boolean hasAutoDiscard() { return tokenizer.autoDiscard; }
+		public Strategy getStrategy() { return tokenizer.strategy; }
+		public int getTabWidth() { return tokenizer.tabWidth; }
 		public Tokenizer getImmutableTokenizer() { return this; }
 		public List<TokenizerSymbol> parse(String string, Charset charset) { return tokenizer.parse(string, charset); }
 		public List<TokenizerSymbol> parse(String string) { return tokenizer.parse(string); }
 		public List<TokenizerSymbol> parse(byte[] bytes) { return tokenizer.parse(bytes); }
+		public TokenBuffer parseBuffer(String string) { return tokenizer.parseBuffer(string); }
+		public TokenBuffer parseBuffer(byte[] bytes) { return tokenizer.parseBuffer(bytes); }
+		public TokenizerDocument parseDocument(byte[] bytes) { return tokenizer.parseDocument(bytes); }
+		public List<TokenizerSymbol> parse(byte[] bytes, ForkJoinPool pool) { return tokenizer.parse(bytes, pool); }
+		public TokenBuffer parseBuffer(byte[] bytes, ForkJoinPool pool) { return tokenizer.parseBuffer(bytes, pool); }
+		public List<TokenizerSymbol> parse(Path path) throws IOException { return tokenizer.parse(path); }
+		public TokenBuffer parseBuffer(Path path) throws IOException { return tokenizer.parseBuffer(path); }
+		public TokenizerStream stream(ReadableByteChannel channel, int windowSize) { return tokenizer.stream(channel, windowSize); }
+		public TokenizerStream stream(ReadableByteChannel channel) { return tokenizer.stream(channel); }
+		public TokenizerStream stream(InputStream stream) { return tokenizer.stream(stream); }
 		public boolean equals(Object obj) { return Objects.equals(tokenizer, obj); }
 		public int hashCode() { return tokenizer.hashCode(); }
 		public String toString() { return tokenizer.toString(); }
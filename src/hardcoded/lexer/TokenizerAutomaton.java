@@ -0,0 +1,318 @@
+package hardcoded.lexer;
+
+import java.util.*;
+
+import hardcoded.lexer.TokenizerNfa.State;
+
+/**
+ * This is a minimized deterministic finite automaton that matches all the
+ * compiled rules of a tokenizer at the same time.<br><br>
+ * 
+ * Each state has a transition for every byte value. A match is found by
+ * walking the input until there is no transition left and returning the last
+ * accepting state that was visited. This gives longest match semantics where
+ * each byte is only read once.<br><br>
+ * 
+ * If two groups accept the same input the group that was added first to the
+ * tokenizer is used.
+ * 
+ * @author HardCoded
+ */
+final class TokenizerAutomaton {
+	/**
+	 * The maximum number of states the subset construction is allowed to create.
+	 */
+	static final int MAX_STATES = 1 << 16;
+	
+	/**
+	 * The transition table. The next state of state {@code s} for the byte {@code c}
+	 * is found at {@code next[(s << 8) | c]}. A value of -1 means that there is no transition.
+	 */
+	private final int[] next;
+	
+	/**
+	 * The group each state accepts or -1 if the state does not accept.
+	 */
+	private final int[] accept;
+	
+	private TokenizerAutomaton(int[] next, int[] accept) {
+		this.next = next;
+		this.accept = accept;
+	}
+	
+	/**
+	 * Returns the number of states inside this automaton.
+	 */
+	int size() {
+		return accept.length;
+	}
+	
+	/**
+	 * Returns the next state of a state for a byte or -1 if there is no transition.
+	 */
+	int next(int state, int value) {
+		return next[(state << 8) | value];
+	}
+	
+	/**
+	 * Returns the group index that a state accepts or -1 if the state does not accept.
+	 */
+	int accept(int state) {
+		return accept[state];
+	}
+	
+	/**
+	 * Find the longest match from the start of the string.
+	 * 
+	 * @param string the string to match.
+	 * @param result the object that will get the matched group and length.
+	 * @return true if a non empty match was found.
+	 */
+	boolean match(TokenizerString string, TokenizerMatch result) {
+		final int[] next = this.next;
+		final int[] accept = this.accept;
+		final int length = string.length();
+		
+		int state = 0;
+		int group = -1;
+		int matched = 0;
+		int index = 0;
+		
+		while(index < length) {
+			state = next[(state << 8) | string.charAt(index)];
+			if(state < 0) break;
+			index++;
+			
+			if(accept[state] >= 0) {
+				group = accept[state];
+				matched = index;
+			}
+		}
+		
+		result.group = group;
+		result.length = matched;
+		result.hitEnd = index == length && state >= 0;
+		result.scanned = state < 0 ? (index + 1):index;
+		return group >= 0;
+	}
+	
+	/**
+	 * Converts a nondeterministic automaton into a minimized deterministic automaton.
+	 * 
+	 * @param nfa the automaton to convert.
+	 * @return the minimized automaton or null if it needed more than {@link #MAX_STATES} states.
+	 */
+	static TokenizerAutomaton compile(TokenizerNfa nfa) {
+		List<BitSet> sets = new ArrayList<>();
+		Map<BitSet, Integer> ids = new HashMap<>();
+		
+		IntList next = new IntList();
+		IntList accept = new IntList();
+		
+		BitSet entry = new BitSet();
+		entry.set(nfa.start.id);
+		closure(nfa, entry);
+		
+		sets.add(entry);
+		ids.put(entry, 0);
+		
+		for(int s = 0; s < sets.size(); s++) {
+			BitSet set = sets.get(s);
+			
+			int group = -1;
+			for(int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+				int value = nfa.states.get(i).accept;
+				if(value >= 0 && (group < 0 || value < group)) group = value;
+			}
+			accept.add(group);
+			
+			BitSet[] targets = new BitSet[256];
+			for(int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+				State state = nfa.states.get(i);
+				
+				for(int j = 0; j < state.sets.size(); j++) {
+					long[] chars = state.sets.get(j);
+					int target = state.targets.get(j).id;
+					
+					for(int c = 0; c < 256; c++) {
+						if(!TokenizerNfa.contains(chars, c)) continue;
+						if(targets[c] == null) targets[c] = new BitSet();
+						targets[c].set(target);
+					}
+				}
+			}
+			
+			for(int c = 0; c < 256; c++) {
+				BitSet target = targets[c];
+				if(target == null) {
+					next.add(-1);
+					continue;
+				}
+				
+				closure(nfa, target);
+				Integer id = ids.get(target);
+				if(id == null) {
+					if(sets.size() >= MAX_STATES) return null;
+					
+					id = sets.size();
+					sets.add(target);
+					ids.put(target, id);
+				}
+				
+				next.add(id);
+			}
+		}
+		
+		return minimize(prune(next.toArray(), accept.toArray()), accept.toArray());
+	}
+	
+	private static void closure(TokenizerNfa nfa, BitSet set) {
+		IntList stack = new IntList();
+		for(int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) stack.add(i);
+		
+		while(stack.size() > 0) {
+			State state = nfa.states.get(stack.pop());
+			
+			for(State target : state.epsilon) {
+				if(!set.get(target.id)) {
+					set.set(target.id);
+					stack.add(target.id);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Remove all transitions into states that can never reach an accepting state.
+	 * This makes the matching loop stop as soon as no longer match is possible.
+	 */
+	private static int[] prune(int[] next, int[] accept) {
+		int states = accept.length;
+		
+		List<IntList> reverse = new ArrayList<>(states);
+		for(int i = 0; i < states; i++) reverse.add(new IntList());
+		for(int i = 0; i < next.length; i++) {
+			if(next[i] >= 0) reverse.get(next[i]).add(i >>> 8);
+		}
+		
+		boolean[] alive = new boolean[states];
+		IntList stack = new IntList();
+		for(int i = 0; i < states; i++) {
+			if(accept[i] >= 0) {
+				alive[i] = true;
+				stack.add(i);
+			}
+		}
+		
+		while(stack.size() > 0) {
+			IntList from = reverse.get(stack.pop());
+			for(int i = 0; i < from.size(); i++) {
+				int state = from.get(i);
+				if(!alive[state]) {
+					alive[state] = true;
+					stack.add(state);
+				}
+			}
+		}
+		
+		for(int i = 0; i < next.length; i++) {
+			if(next[i] >= 0 && !alive[next[i]]) next[i] = -1;
+		}
+		
+		return next;
+	}
+	
+	/**
+	 * Minimize the automaton using Moore's partition refinement algorithm.
+	 */
+	private static TokenizerAutomaton minimize(int[] next, int[] accept) {
+		int states = accept.length;
+		int[] partition = new int[states];
+		int count;
+		
+		{
+			Map<Integer, Integer> classes = new HashMap<>();
+			for(int i = 0; i < states; i++) {
+				Integer id = classes.get(accept[i]);
+				if(id == null) classes.put(accept[i], id = classes.size());
+				partition[i] = id;
+			}
+			
+			count = classes.size();
+		}
+		
+		while(true) {
+			Map<List<Integer>, Integer> classes = new HashMap<>();
+			int[] refined = new int[states];
+			
+			for(int i = 0; i < states; i++) {
+				List<Integer> signature = new ArrayList<>(257);
+				signature.add(partition[i]);
+				for(int c = 0; c < 256; c++) {
+					int target = next[(i << 8) | c];
+					signature.add(target < 0 ? -1:partition[target]);
+				}
+				
+				Integer id = classes.get(signature);
+				if(id == null) classes.put(signature, id = classes.size());
+				refined[i] = id;
+			}
+			
+			partition = refined;
+			if(classes.size() == count) break;
+			count = classes.size();
+		}
+		
+		// Renumber the classes so that the start state always gets the id zero.
+		int[] order = new int[count];
+		Arrays.fill(order, -1);
+		int ids = 0;
+		order[partition[0]] = ids++;
+		for(int i = 1; i < states; i++) {
+			if(order[partition[i]] < 0) order[partition[i]] = ids++;
+		}
+		
+		int[] table = new int[count << 8];
+		int[] groups = new int[count];
+		for(int i = 0; i < states; i++) {
+			int id = order[partition[i]];
+			groups[id] = accept[i];
+			
+			for(int c = 0; c < 256; c++) {
+				int target = next[(i << 8) | c];
+				table[(id << 8) | c] = (target < 0) ? -1:order[partition[target]];
+			}
+		}
+		
+		return new TokenizerAutomaton(table, groups);
+	}
+	
+	/**
+	 * A minimal growable list of primitive integers.
+	 */
+	private static final class IntList {
+		private int[] array = new int[16];
+		private int size;
+		
+		void add(int value) {
+			if(size == array.length) array = Arrays.copyOf(array, size << 1);
+			array[size++] = value;
+		}
+		
+		int get(int index) {
+			return array[index];
+		}
+		
+		int pop() {
+			return array[--size];
+		}
+		
+		int size() {
+			return size;
+		}
+		
+		int[] toArray() {
+			return Arrays.copyOf(array, size);
+		}
+	}
+}
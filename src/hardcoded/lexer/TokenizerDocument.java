@@ -0,0 +1,222 @@
+package hardcoded.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import hardcoded.lexer.Tokenizer.CompiledRules;
+
+/**
+ * This is a snapshot of a document and its tokens created by {@link Tokenizer#parseDocument(byte[])}.
+ * An edit creates a new document where only the tokens close to the edit are lexed again.<br><br>
+ * 
+ * For each token the document remembers how far the rules read the input before the
+ * token was created. When the document is edited the lexer restarts at the last token
+ * where no rule had read the changed bytes. The lexer stops when it matches a token at
+ * the same place as a token from the old document after the edit, the remaining tokens
+ * are copied from the old document and moved by the size of the edit.
+ * 
+ * @author HardCoded
+ */
+public final class TokenizerDocument {
+	private final Tokenizer tokenizer;
+	private final CompiledRules rules;
+	private final byte[] bytes;
+	private final TokenBuffer tokens;
+	
+	// The largest offset read by the rules since the previous token plus one.
+	private int[] extents;
+	
+	// The tokens inside this range were created by the last edit.
+	private int changeStart;
+	private int changeEnd;
+	
+	// The state used while lexing
+	private TokenizerMatch match;
+	private TokenizerDocument previous;
+	private int syncOffset;
+	private int syncIndex = -1;
+	
+	TokenizerDocument(Tokenizer tokenizer, CompiledRules rules, byte[] bytes, int tabWidth) {
+		this.tokenizer = tokenizer;
+		this.rules = rules;
+		this.bytes = bytes;
+		this.tokens = new TokenBuffer(ByteBuffer.wrap(bytes), rules.names, rules.discards, tabWidth);
+		this.extents = new int[16];
+		
+		relex(new TokenizerString(bytes));
+		this.changeEnd = tokens.size();
+	}
+	
+	private TokenizerDocument(TokenizerDocument document, int offset, int removed, byte[] inserted) {
+		this.tokenizer = document.tokenizer;
+		this.rules = document.rules;
+		this.bytes = new byte[document.bytes.length - removed + inserted.length];
+		System.arraycopy(document.bytes, 0, bytes, 0, offset);
+		System.arraycopy(inserted, 0, bytes, offset, inserted.length);
+		System.arraycopy(document.bytes, offset + removed, bytes, offset + inserted.length, document.bytes.length - offset - removed);
+		
+		TokenBuffer old = document.tokens;
+		ByteBuffer source = ByteBuffer.wrap(bytes);
+		LineIndex lines = new LineIndex(source, old.getLineIndex().getTabWidth());
+		this.tokens = new TokenBuffer(source, rules.names, rules.discards, lines, old.size() + 16);
+		this.extents = new int[old.size() + 16];
+		
+		// Find the last token where no rule read the changed bytes.
+		int restart = -1;
+		int extent = 0;
+		for(int i = 0; i < old.size(); i++) {
+			extent = Math.max(extent, document.extents[i]);
+			if(extent > offset || old.offset(i) > offset) break;
+			restart = i;
+		}
+		
+		for(int i = 0; i < restart; i++) {
+			add(old.groupId(i), false, old.offset(i), old.length(i), document.extents[i]);
+		}
+		
+		TokenizerString string = new TokenizerString(bytes);
+		if(restart >= 0) {
+			string.setWindow(bytes, old.offset(restart), bytes.length);
+		}
+		
+		this.changeStart = Math.max(0, restart);
+		this.previous = document;
+		this.syncOffset = offset + inserted.length;
+		relex(string);
+		this.changeEnd = tokens.size();
+		
+		if(syncIndex >= 0) {
+			int delta = inserted.length - removed;
+			
+			// The extent of the first token includes the match that was made by the sync.
+			add(old.groupId(syncIndex), false, old.offset(syncIndex) + delta, old.length(syncIndex), match.extent);
+			
+			for(int i = syncIndex + 1; i < old.size(); i++) {
+				add(old.groupId(i), false, old.offset(i) + delta, old.length(i), document.extents[i] + delta);
+			}
+		}
+		
+		this.previous = null;
+	}
+	
+	/**
+	 * Lex the string until the end or until the lexer has synchronized with the previous document.
+	 */
+	private void relex(TokenizerString string) {
+		match = new TokenizerMatch();
+		match.track = true;
+		tokenizer.tokenize(rules, string, this::add, this::sync, match);
+	}
+	
+	private void add(int group, boolean discard, int offset, int length) {
+		add(group, discard, offset, length, match.extent);
+		match.extent = 0;
+	}
+	
+	private void add(int group, boolean discard, int offset, int length, int extent) {
+		if(tokens.size() == extents.length) {
+			extents = Arrays.copyOf(extents, extents.length << 1);
+		}
+		
+		extents[tokens.size()] = extent;
+		tokens.add(group, discard, offset, length);
+	}
+	
+	private boolean sync(int offset) {
+		if(previous == null || offset < syncOffset) return false;
+		
+		// The old token at this offset must start after the removed bytes.
+		int delta = bytes.length - previous.bytes.length;
+		TokenBuffer old = previous.tokens;
+		int low = changeStart;
+		int high = old.size() - 1;
+		int target = offset - delta;
+		
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			int value = old.offset(middle);
+			
+			if(value < target) {
+				low = middle + 1;
+			} else if(value > target) {
+				high = middle - 1;
+			} else {
+				syncIndex = middle;
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Replace a range of this document and lex the changed part again.
+	 * This document is not changed.
+	 * 
+	 * @param offset the offset of the edit.
+	 * @param removed the number of bytes that are removed.
+	 * @param inserted the bytes that are inserted.
+	 * @return a new document with the edit.
+	 * @throws IndexOutOfBoundsException if the range was outside this document.
+	 * @throws NullPointerException if the inserted bytes were null.
+	 */
+	public TokenizerDocument edit(int offset, int removed, byte[] inserted) {
+		if(inserted == null) throw new NullPointerException("The inserted bytes were null.");
+		if(offset < 0 || removed < 0 || offset > bytes.length - removed) {
+			throw new IndexOutOfBoundsException("Offset: " + offset + ", Removed: " + removed + ", Length: " + bytes.length);
+		}
+		
+		return new TokenizerDocument(this, offset, removed, inserted);
+	}
+	
+	/**
+	 * Replace a range of this document using the charset ISO_8859_1.
+	 * 
+	 * @see #edit(int, int, byte[])
+	 */
+	public TokenizerDocument edit(int offset, int removed, String inserted) {
+		return edit(offset, removed, inserted.getBytes(StandardCharsets.ISO_8859_1));
+	}
+	
+	/**
+	 * Returns the tokens of this document.
+	 */
+	public TokenBuffer getTokens() {
+		return tokens;
+	}
+	
+	/**
+	 * Returns the index of the first token that was lexed again by the edit that created this document.
+	 */
+	public int getChangeStart() {
+		return changeStart;
+	}
+	
+	/**
+	 * Returns the index after the last token that was lexed again by the edit that created this document.
+	 * The tokens after this index were copied from the previous document.
+	 */
+	public int getChangeEnd() {
+		return changeEnd;
+	}
+	
+	/**
+	 * Returns the number of bytes inside this document.
+	 */
+	public int length() {
+		return bytes.length;
+	}
+	
+	/**
+	 * Returns a copy of the bytes of this document.
+	 */
+	public byte[] getBytes() {
+		return bytes.clone();
+	}
+	
+	@Override
+	public String toString() {
+		return "TokenizerDocument(length=" + bytes.length + ", tokens=" + tokens.size() + ")";
+	}
+}
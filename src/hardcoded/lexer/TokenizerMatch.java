@@ -0,0 +1,43 @@
+package hardcoded.lexer;
+
+/**
+ * This class is used by the Tokenizer to return the result of a match
+ * without allocating a new object for each token.
+ * 
+ * @author HardCoded
+ */
+final class TokenizerMatch {
+	/**
+	 * The index of the group that matched or -1 if nothing matched.
+	 */
+	int group = -1;
+	
+	/**
+	 * The number of characters that matched.
+	 */
+	int length;
+	
+	/**
+	 * This is true if the matcher read to the end of the input and a longer
+	 * input could have given a different result.
+	 */
+	boolean hitEnd;
+	
+	/**
+	 * The number of characters that the matcher read from the input.
+	 */
+	int scanned;
+	
+	/**
+	 * If this is true the lexer keeps track of how far the rules have read
+	 * the input. Regex rules are only tracked when this is set.
+	 */
+	boolean track;
+	
+	/**
+	 * The largest offset that was read by any match since the last token was
+	 * sent to the sink plus one. If a match needed more input this is one
+	 * past the end of the input. This is only updated if {@link #track} is set.
+	 */
+	int extent;
+}
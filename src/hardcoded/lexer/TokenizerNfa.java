@@ -0,0 +1,585 @@
+package hardcoded.lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is used by the TokenizerAutomaton to convert tokenizer rules
+ * into a nondeterministic finite automaton.<br><br>
+ * 
+ * Only a subset of the java regex syntax can be converted. Groups, alternations,
+ * character classes, the predefined classes {@code \d \w \s} and the greedy
+ * quantifiers {@code * + ? {n,m}} are supported. Lookarounds, anchors,
+ * backreferences and lazy or possessive quantifiers can not be expressed as a
+ * finite automaton with longest match semantics and will throw a
+ * {@link UnsupportedRegexException}.
+ * 
+ * @author HardCoded
+ */
+final class TokenizerNfa {
+	/**
+	 * The maximum number of times a bounded quantifier is allowed to expand a node.
+	 */
+	private static final int MAX_REPEAT = 256;
+	
+	final List<State> states;
+	final State start;
+	
+	TokenizerNfa() {
+		this.states = new ArrayList<>();
+		this.start = newState();
+	}
+	
+	/**
+	 * Add a string rule to this automaton.
+	 * 
+	 * @param group the value that the end state should accept with.
+	 * @param string the string that should be matched.
+	 */
+	void addString(int group, String string) {
+		Node node = new Node(Node.CONCAT);
+		for(int i = 0; i < string.length(); i++) {
+			node.add(Node.set(single(string.charAt(i))));
+		}
+		
+		addNode(group, node);
+	}
+	
+	/**
+	 * Add a regex rule to this automaton.
+	 * 
+	 * @param group the value that the end state should accept with.
+	 * @param regex the regex that should be matched.
+	 * @throws UnsupportedRegexException if the regex could not be converted.
+	 */
+	void addRegex(int group, String regex) throws UnsupportedRegexException {
+		addNode(group, new Parser(regex).parse());
+	}
+	
+	/**
+	 * Add a delimiter rule to this automaton. A delimiter without a escape string
+	 * is matched until the first occurrence of the close string.
+	 * 
+	 * @param group the value that the end state should accept with.
+	 * @param open the unescaped open string.
+	 * @param escape the unescaped escape string.
+	 * @param close the unescaped close string.
+	 * @throws UnsupportedRegexException if the delimiter could not be converted.
+	 */
+	void addDelimiter(int group, String open, String escape, String close) throws UnsupportedRegexException {
+		if(close.isEmpty()) throw new UnsupportedRegexException("Empty delimiter close string");
+		
+		if(escape.isEmpty()) {
+			Fragment frag = build(literal(open));
+			State end = frag.end;
+			
+			// Build the knuth-morris-pratt automaton of the close string.
+			// The state 'k' means that we have matched k characters of the close string.
+			int length = close.length();
+			State[] kmp = new State[length + 1];
+			kmp[0] = end;
+			for(int i = 1; i <= length; i++) kmp[i] = newState();
+			
+			int[] fail = new int[length];
+			for(int i = 1, k = 0; i < length; i++) {
+				while(k > 0 && close.charAt(i) != close.charAt(k)) k = fail[k - 1];
+				if(close.charAt(i) == close.charAt(k)) k++;
+				fail[i] = k;
+			}
+			
+			for(int k = 0; k < length; k++) {
+				int[] target = new int[256];
+				for(int c = 0; c < 256; c++) {
+					int j = k;
+					while(j > 0 && close.charAt(j) != c) j = fail[j - 1];
+					target[c] = (close.charAt(j) == c) ? (j + 1):0;
+				}
+				
+				for(int t = 0; t <= length; t++) {
+					long[] set = new long[4];
+					for(int c = 0; c < 256; c++) {
+						if(target[c] == t) set[c >>> 6] |= 1L << c;
+					}
+					
+					if(!isEmpty(set)) kmp[k].edge(set, kmp[t]);
+				}
+			}
+			
+			start.epsilon(frag.start);
+			kmp[length].accept = group;
+			return;
+		}
+		
+		if(escape.length() != 1 || close.length() != 1) {
+			throw new UnsupportedRegexException("Multi character delimiter escapes are not supported");
+		}
+		
+		// With single characters this is the same as 'S (?: E. | [^EC] )* C'
+		long[] other = complement(union(single(escape.charAt(0)), single(close.charAt(0))));
+		
+		Node body = new Node(Node.ALTERNATION);
+		body.add(new Node(Node.CONCAT).add(Node.set(single(escape.charAt(0)))).add(Node.set(complement(new long[4]))));
+		body.add(Node.set(other));
+		
+		Node node = new Node(Node.CONCAT);
+		node.add(literal(open));
+		node.add(Node.repeat(body, 0, -1));
+		node.add(literal(close));
+		addNode(group, node);
+	}
+	
+	private void addNode(int group, Node node) {
+		Fragment frag = build(node);
+		start.epsilon(frag.start);
+		frag.end.accept = group;
+	}
+	
+	private Node literal(String string) {
+		Node node = new Node(Node.CONCAT);
+		for(int i = 0; i < string.length(); i++) {
+			node.add(Node.set(single(string.charAt(i))));
+		}
+		
+		return node;
+	}
+	
+	private State newState() {
+		State state = new State(states.size());
+		states.add(state);
+		return state;
+	}
+	
+	private Fragment build(Node node) {
+		switch(node.type) {
+			case Node.SET: {
+				State a = newState();
+				State b = newState();
+				a.edge(node.set, b);
+				return new Fragment(a, b);
+			}
+			case Node.CONCAT: {
+				State a = newState();
+				State last = a;
+				for(Node child : node.nodes) {
+					Fragment frag = build(child);
+					last.epsilon(frag.start);
+					last = frag.end;
+				}
+				
+				return new Fragment(a, last);
+			}
+			case Node.ALTERNATION: {
+				State a = newState();
+				State b = newState();
+				for(Node child : node.nodes) {
+					Fragment frag = build(child);
+					a.epsilon(frag.start);
+					frag.end.epsilon(b);
+				}
+				
+				return new Fragment(a, b);
+			}
+			case Node.REPEAT: {
+				Node child = node.nodes.get(0);
+				State a = newState();
+				State last = a;
+				
+				for(int i = 0; i < node.min; i++) {
+					Fragment frag = build(child);
+					last.epsilon(frag.start);
+					last = frag.end;
+				}
+				
+				State b = newState();
+				last.epsilon(b);
+				
+				if(node.max < 0) {
+					Fragment frag = build(child);
+					last.epsilon(frag.start);
+					frag.end.epsilon(frag.start);
+					frag.end.epsilon(b);
+				} else {
+					for(int i = node.min; i < node.max; i++) {
+						Fragment frag = build(child);
+						last.epsilon(frag.start);
+						frag.end.epsilon(b);
+						last = frag.end;
+					}
+				}
+				
+				return new Fragment(a, b);
+			}
+		}
+		
+		throw new IllegalStateException("Invalid node type " + node.type);
+	}
+	
+	static long[] single(int c) {
+		long[] set = new long[4];
+		if(c < 256) set[c >>> 6] |= 1L << c;
+		return set;
+	}
+	
+	static long[] range(int a, int b) {
+		long[] set = new long[4];
+		for(int c = a; c <= Math.min(b, 255); c++) set[c >>> 6] |= 1L << c;
+		return set;
+	}
+	
+	static long[] union(long[] a, long[] b) {
+		return new long[] { a[0] | b[0], a[1] | b[1], a[2] | b[2], a[3] | b[3] };
+	}
+	
+	static long[] complement(long[] a) {
+		return new long[] { ~a[0], ~a[1], ~a[2], ~a[3] };
+	}
+	
+	static boolean isEmpty(long[] a) {
+		return (a[0] | a[1] | a[2] | a[3]) == 0;
+	}
+	
+	static boolean contains(long[] set, int c) {
+		return (set[c >>> 6] & (1L << c)) != 0;
+	}
+	
+	static final class State {
+		final int id;
+		final List<long[]> sets;
+		final List<State> targets;
+		final List<State> epsilon;
+		
+		/**
+		 * The group that this state accepts or -1 if this state does not accept.
+		 */
+		int accept = -1;
+		
+		private State(int id) {
+			this.id = id;
+			this.sets = new ArrayList<>(1);
+			this.targets = new ArrayList<>(1);
+			this.epsilon = new ArrayList<>(2);
+		}
+		
+		private void edge(long[] set, State target) {
+			sets.add(set);
+			targets.add(target);
+		}
+		
+		private void epsilon(State target) {
+			epsilon.add(target);
+		}
+	}
+	
+	private static final class Fragment {
+		private final State start;
+		private final State end;
+		
+		private Fragment(State start, State end) {
+			this.start = start;
+			this.end = end;
+		}
+	}
+	
+	private static final class Node {
+		private static final int SET = 0;
+		private static final int CONCAT = 1;
+		private static final int ALTERNATION = 2;
+		private static final int REPEAT = 3;
+		
+		private final List<Node> nodes;
+		private final int type;
+		private long[] set;
+		private int min;
+		private int max;
+		
+		private Node(int type) {
+			this.nodes = new ArrayList<>();
+			this.type = type;
+		}
+		
+		private Node add(Node node) {
+			nodes.add(node);
+			return this;
+		}
+		
+		private static Node set(long[] set) {
+			Node node = new Node(SET);
+			node.set = set;
+			return node;
+		}
+		
+		private static Node repeat(Node child, int min, int max) {
+			Node node = new Node(REPEAT);
+			node.nodes.add(child);
+			node.min = min;
+			node.max = max;
+			return node;
+		}
+	}
+	
+	/**
+	 * A recursive descent parser for the supported regex subset.
+	 */
+	private static final class Parser {
+		private final String regex;
+		private int index;
+		
+		private Parser(String regex) {
+			this.regex = regex;
+		}
+		
+		private Node parse() throws UnsupportedRegexException {
+			Node node = parseAlternation();
+			if(index < regex.length()) throw unsupported("Unexpected character");
+			return node;
+		}
+		
+		private boolean has() {
+			return index < regex.length();
+		}
+		
+		private char peek() {
+			return regex.charAt(index);
+		}
+		
+		private UnsupportedRegexException unsupported(String message) {
+			return new UnsupportedRegexException(message + " at index " + index + " in '" + regex + "'");
+		}
+		
+		private Node parseAlternation() throws UnsupportedRegexException {
+			Node first = parseConcat();
+			if(!has() || peek() != '|') return first;
+			
+			Node node = new Node(Node.ALTERNATION).add(first);
+			while(has() && peek() == '|') {
+				index++;
+				node.add(parseConcat());
+			}
+			
+			return node;
+		}
+		
+		private Node parseConcat() throws UnsupportedRegexException {
+			Node node = new Node(Node.CONCAT);
+			while(has() && peek() != '|' && peek() != ')') {
+				node.add(parseRepeat());
+			}
+			
+			return node;
+		}
+		
+		private Node parseRepeat() throws UnsupportedRegexException {
+			Node node = parseAtom();
+			
+			while(has()) {
+				int min, max;
+				char c = peek();
+				if(c == '*') {
+					min = 0; max = -1;
+					index++;
+				} else if(c == '+') {
+					min = 1; max = -1;
+					index++;
+				} else if(c == '?') {
+					min = 0; max = 1;
+					index++;
+				} else if(c == '{') {
+					index++;
+					min = parseNumber();
+					max = min;
+					if(has() && peek() == ',') {
+						index++;
+						max = (has() && peek() == '}') ? -1:parseNumber();
+					}
+					
+					if(!has() || peek() != '}') throw unsupported("Invalid bounded quantifier");
+					index++;
+					
+					if(max >= 0 && max < min) throw unsupported("Invalid bounded quantifier");
+					if(min > MAX_REPEAT || max > MAX_REPEAT) throw unsupported("Bounded quantifier too large");
+				} else {
+					break;
+				}
+				
+				if(has() && (peek() == '?' || peek() == '+')) {
+					throw unsupported("Lazy and possessive quantifiers are not supported");
+				}
+				
+				node = Node.repeat(node, min, max);
+			}
+			
+			return node;
+		}
+		
+		private int parseNumber() throws UnsupportedRegexException {
+			int start = index;
+			while(has() && peek() >= '0' && peek() <= '9') index++;
+			if(start == index || index - start > 4) throw unsupported("Invalid number");
+			return Integer.parseInt(regex.substring(start, index));
+		}
+		
+		private Node parseAtom() throws UnsupportedRegexException {
+			char c = peek();
+			index++;
+			
+			switch(c) {
+				case '(': {
+					if(has() && peek() == '?') {
+						if(index + 1 < regex.length() && regex.charAt(index + 1) == ':') {
+							index += 2;
+						} else {
+							throw unsupported("Lookarounds and inline flags are not supported");
+						}
+					}
+					
+					Node node = parseAlternation();
+					if(!has() || peek() != ')') throw unsupported("Unclosed group");
+					index++;
+					return node;
+				}
+				case '[': return Node.set(parseClass());
+				case '.': return Node.set(complement(new long[4]));
+				case '\\': return Node.set(parseEscape(false));
+				case '^': case '$': throw unsupported("Anchors are not supported");
+				case ')': case '*': case '+': case '?': case '{': throw unsupported("Dangling meta character");
+				default: return Node.set(single(c));
+			}
+		}
+		
+		private long[] parseClass() throws UnsupportedRegexException {
+			boolean negate = false;
+			if(has() && peek() == '^') {
+				negate = true;
+				index++;
+			}
+			
+			if(has() && peek() == ']') throw unsupported("Empty character classes are not supported");
+			
+			long[] set = new long[4];
+			while(true) {
+				if(!has()) throw unsupported("Unclosed character class");
+				
+				char c = peek();
+				index++;
+				
+				if(c == ']') break;
+				if(c == '[') throw unsupported("Nested character classes are not supported");
+				if(c == '&' && has() && peek() == '&') throw unsupported("Class intersections are not supported");
+				
+				int lower;
+				if(c == '\\') {
+					if(has() && "dDwWsS".indexOf(peek()) != -1) {
+						set = union(set, parseEscape(true));
+						continue;
+					}
+					
+					lower = escapedChar();
+				} else {
+					lower = c;
+				}
+				
+				if(index + 1 < regex.length() && peek() == '-' && regex.charAt(index + 1) != ']') {
+					index++;
+					
+					int upper;
+					char d = peek();
+					index++;
+					
+					if(d == '\\') {
+						upper = escapedChar();
+					} else if(d == '[') {
+						throw unsupported("Nested character classes are not supported");
+					} else {
+						upper = d;
+					}
+					
+					if(upper < lower) throw unsupported("Invalid character range");
+					set = union(set, range(lower, upper));
+				} else {
+					set = union(set, single(lower));
+				}
+			}
+			
+			return negate ? complement(set):set;
+		}
+		
+		private long[] parseEscape(boolean inClass) throws UnsupportedRegexException {
+			if(!has()) throw unsupported("Trailing escape character");
+			
+			switch(peek()) {
+				case 'd': index++; return range('0', '9');
+				case 'D': index++; return complement(range('0', '9'));
+				case 'w': index++; return word();
+				case 'W': index++; return complement(word());
+				case 's': index++; return space();
+				case 'S': index++; return complement(space());
+			}
+			
+			return single(escapedChar());
+		}
+		
+		/**
+		 * Reads the escaped character after a backslash and returns its value.
+		 */
+		private int escapedChar() throws UnsupportedRegexException {
+			if(!has()) throw unsupported("Trailing escape character");
+			
+			char c = peek();
+			index++;
+			
+			switch(c) {
+				case 't': return '\t';
+				case 'n': return '\n';
+				case 'r': return '\r';
+				case 'f': return '\f';
+				case 'a': return 0x07;
+				case 'e': return 0x1b;
+				case '0': {
+					int start = index;
+					while(has() && index - start < 3 && peek() >= '0' && peek() <= '7') index++;
+					if(start == index) throw unsupported("Invalid octal escape");
+					return Integer.parseInt(regex.substring(start, index), 8);
+				}
+				case 'x': return parseHex(2);
+				case 'u': return parseHex(4);
+			}
+			
+			if(Character.isLetterOrDigit(c)) {
+				throw unsupported("The escape '\\" + c + "' is not supported");
+			}
+			
+			return c;
+		}
+		
+		private int parseHex(int length) throws UnsupportedRegexException {
+			if(index + length > regex.length()) throw unsupported("Invalid hex escape");
+			
+			try {
+				int value = Integer.parseInt(regex.substring(index, index + length), 16);
+				index += length;
+				return value;
+			} catch(NumberFormatException e) {
+				throw unsupported("Invalid hex escape");
+			}
+		}
+		
+		private static long[] word() {
+			return union(union(range('a', 'z'), range('A', 'Z')), union(range('0', '9'), single('_')));
+		}
+		
+		private static long[] space() {
+			return union(union(single(' '), single('\t')), union(range('\n', '\r'), new long[4]));
+		}
+	}
+	
+	/**
+	 * Thrown when a rule can not be converted into a finite automaton.
+	 */
+	static final class UnsupportedRegexException extends Exception {
+		private static final long serialVersionUID = -1836393124128512374L;
+		
+		UnsupportedRegexException(String message) {
+			super(message);
+		}
+	}
+}
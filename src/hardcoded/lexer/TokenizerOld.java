@@ -30,18 +30,17 @@ public class TokenizerOld {
 	}
 	
 	public static Token generateTokenChain(Tokenizer lexer, byte[] bytes) {
-		List<TokenizerSymbol> symbols = lexer.parse(bytes);
-		if(symbols.isEmpty()) return new Token(null, null);
+		TokenBuffer buffer = lexer.parseBuffer(bytes);
+		if(buffer.size() == 0) return new Token(null, null);
 		
-		List<Token> list = new ArrayList<>();
+		List<Token> list = new ArrayList<>(buffer.size() + 1);
 		list.add(new Token(null, null));
-		for(TokenizerSymbol symbol : symbols) {
-			Token token = new Token(symbol.value(), symbol.group());
-			token.fileOffset = symbol.fileOffset();
-			token.column = symbol.column();
-			token.line = symbol.line();
+		for(int i = 0; i < buffer.size(); i++) {
+			Token token = new Token(buffer.value(i), buffer.group(i));
+			token.groupId = buffer.groupId(i);
+			token.fileOffset = buffer.offset(i);
+			token.lines = buffer.getLineIndex();
 			list.add(token);
-			
 		}
 		
 		Token entry = list.get(0);
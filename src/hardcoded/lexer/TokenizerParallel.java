@@ -0,0 +1,246 @@
+package hardcoded.lexer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import hardcoded.lexer.Tokenizer.CompiledRules;
+import hardcoded.lexer.Tokenizer.TokenSync;
+
+/**
+ * This class splits the input of a tokenizer into chunks that are lexed at the
+ * same time by a {@link ForkJoinPool}.<br><br>
+ * 
+ * Each chunk starts lexing at its first byte without knowing if a token from the
+ * previous chunk covers that byte. The chunk remembers the offset where every token
+ * starts, called a sync point. This is the offset of a matched token or of the first
+ * byte of a run of unmatched bytes. A token always starts in the same lexer state so
+ * all tokens of a chunk after a sync point are correct if the sequential lexer also
+ * starts a token at that offset.<br><br>
+ * 
+ * The chunks are merged in order. The end of the previous chunk is the offset of
+ * the first token that starts after its last byte. A run of unmatched bytes that
+ * starts before the last byte is a single token so the chunk can not stop inside it.
+ * If the run is longer than the chunk the chunk stops before the run instead and
+ * the run is lexed again by the merge. If that offset is a sync
+ * point of the next chunk the remaining tokens are copied, otherwise the input is
+ * lexed again from that offset until a sync point is found. This gives the same
+ * tokens as the sequential lexer. Tokens only store their offset so the chunks
+ * never need to know the line of their first byte.
+ * 
+ * @author HardCoded
+ */
+final class TokenizerParallel {
+	/**
+	 * The smallest number of bytes that is lexed by a single task.
+	 */
+	static final int MIN_CHUNK_SIZE = 1 << 16;
+	
+	private final Tokenizer tokenizer;
+	private final CompiledRules rules;
+	private final byte[] bytes;
+	private final ByteBuffer source;
+	private final LineIndex lines;
+	
+	TokenizerParallel(Tokenizer tokenizer, CompiledRules rules, byte[] bytes, int tabWidth) {
+		this.tokenizer = tokenizer;
+		this.rules = rules;
+		this.bytes = bytes;
+		this.source = ByteBuffer.wrap(bytes);
+		this.lines = new LineIndex(source, tabWidth);
+	}
+	
+	/**
+	 * Lex the input using the pool.
+	 * 
+	 * @param pool the pool that runs the chunks.
+	 * @return a buffer containing all tokens.
+	 */
+	TokenBuffer parse(ForkJoinPool pool) {
+		int parallelism = pool.getParallelism();
+		int count = (int)Math.min(parallelism * 4L, bytes.length / MIN_CHUNK_SIZE);
+		
+		if(parallelism < 2 || count < 2) {
+			TokenBuffer buffer = new TokenBuffer(source, rules.names, rules.discards, lines, TokenBuffer.DEFAULT_CAPACITY);
+			tokenizer.tokenize(rules, new TokenizerString(bytes), buffer::add, null);
+			return buffer;
+		}
+		
+		Chunk[] chunks = new Chunk[count];
+		for(int i = 0; i < count; i++) {
+			int start = (int)((long)bytes.length * i / count);
+			int limit = (int)((long)bytes.length * (i + 1) / count);
+			chunks[i] = new Chunk(start, limit);
+		}
+		
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected void compute() {
+				invokeAll(chunks);
+			}
+		});
+		
+		return merge(chunks);
+	}
+	
+	/**
+	 * Create symbols for all tokens inside the buffer using the pool.
+	 */
+	static TokenizerSymbol[] symbols(TokenBuffer buffer, ForkJoinPool pool) {
+		TokenizerSymbol[] symbols = new TokenizerSymbol[buffer.size()];
+		pool.invoke(new SymbolTask(buffer, symbols, 0, symbols.length));
+		return symbols;
+	}
+	
+	private TokenBuffer merge(Chunk[] chunks) {
+		int capacity = 0;
+		for(Chunk chunk : chunks) capacity += chunk.tokens.size();
+		
+		TokenBuffer result = new TokenBuffer(source, rules.names, rules.discards, lines, capacity);
+		
+		// The offset where the sequential lexer would try to match the next token.
+		int offset = 0;
+		
+		for(int i = 0; i < chunks.length; i++) {
+			Chunk chunk = chunks[i];
+			
+			if(offset < chunk.end) {
+				int from = (i == 0) ? 0:chunk.findSync(offset);
+				
+				if(from < 0) {
+					// Lex the input again until we reach a sync point of this chunk.
+					TokenizerString string = new TokenizerString(bytes);
+					string.setWindow(bytes, offset, bytes.length);
+					
+					offset = tokenizer.tokenize(rules, string, result::add, new TokenSync() {
+						@Override
+						public boolean mark(int index) {
+							return index >= chunk.limit || chunk.findSync(index) >= 0;
+						}
+						
+						@Override
+						public boolean markUnmatched(int index, int start) {
+							return index == start && mark(index);
+						}
+					});
+					
+					from = (offset < chunk.limit) ? chunk.findSync(offset):-1;
+				}
+				
+				if(from >= 0) {
+					TokenBuffer tokens = chunk.tokens;
+					for(int j = from; j < tokens.size(); j++) {
+						int id = tokens.groupId(j);
+						result.add(id, rules.discards[id + 1], tokens.offset(j), tokens.length(j));
+					}
+					
+					offset = chunk.end;
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	private class Chunk extends RecursiveAction implements TokenSync {
+		private static final long serialVersionUID = 1L;
+		
+		private final int start;
+		private final int limit;
+		
+		// The offset of the first token that starts at or after the limit, or the start of a
+		// run of unmatched bytes that continued too far after the limit.
+		private int end;
+		private TokenBuffer tokens;
+		
+		// The offset where each token starts and the number of tokens before it.
+		private int[] syncOffsets;
+		private int[] syncIndices;
+		private int syncCount;
+		
+		private Chunk(int start, int limit) {
+			this.start = start;
+			this.limit = limit;
+		}
+		
+		@Override
+		protected void compute() {
+			syncOffsets = new int[TokenBuffer.DEFAULT_CAPACITY];
+			syncIndices = new int[TokenBuffer.DEFAULT_CAPACITY];
+			tokens = new TokenBuffer(source, rules.names, rules.discards, lines, TokenBuffer.DEFAULT_CAPACITY);
+			
+			TokenizerString string = new TokenizerString(bytes);
+			string.setWindow(bytes, start, bytes.length);
+			end = tokenizer.tokenize(rules, string, tokens::add, this);
+		}
+		
+		@Override
+		public boolean mark(int offset) {
+			if(offset >= limit) return true;
+			addSync(offset, tokens.size());
+			return false;
+		}
+		
+		@Override
+		public boolean markUnmatched(int offset, int start) {
+			if(offset == start) return mark(offset);
+			
+			// A chunk does not lex more than its own size after the limit.
+			if(offset - limit <= limit - this.start) return false;
+			
+			// The run is not added to the tokens so its sync point is removed.
+			syncCount--;
+			return true;
+		}
+		
+		private void addSync(int offset, int index) {
+			if(syncCount == syncOffsets.length) {
+				syncOffsets = Arrays.copyOf(syncOffsets, syncCount << 1);
+				syncIndices = Arrays.copyOf(syncIndices, syncCount << 1);
+			}
+			
+			syncOffsets[syncCount] = offset;
+			syncIndices[syncCount] = index;
+			syncCount++;
+		}
+		
+		/**
+		 * Returns the index of the first token at the sync point or -1 if the offset was not a sync point.
+		 */
+		private int findSync(int offset) {
+			int index = Arrays.binarySearch(syncOffsets, 0, syncCount, offset);
+			return index < 0 ? -1:syncIndices[index];
+		}
+	}
+	
+	private static class SymbolTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 1 << 13;
+		
+		private final TokenBuffer buffer;
+		private final TokenizerSymbol[] symbols;
+		private final int from;
+		private final int to;
+		
+		private SymbolTask(TokenBuffer buffer, TokenizerSymbol[] symbols, int from, int to) {
+			this.buffer = buffer;
+			this.symbols = symbols;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from <= THRESHOLD) {
+				for(int i = from; i < to; i++) symbols[i] = buffer.symbol(i);
+				return;
+			}
+			
+			int middle = (from + to) >>> 1;
+			invokeAll(new SymbolTask(buffer, symbols, from, middle), new SymbolTask(buffer, symbols, middle, to));
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package hardcoded.lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import hardcoded.lexer.Tokenizer.CompiledRules;
+import hardcoded.lexer.Tokenizer.SymbolGroup;
+
+/**
+ * This is a cursor that reads tokens from a channel created by {@link Tokenizer#stream(ReadableByteChannel)}.<br><br>
+ * 
+ * The input is read into a window that only keeps the bytes of the token that
+ * is being matched. When a rule needs to read past the end of the window the
+ * unused bytes are removed and more bytes are read from the channel. The window
+ * only grows if a single token is larger than the window.<br><br>
+ * 
+ * The values of the current token are only valid until {@link #next()} is called again.
+ * 
+ * <pre>
+ * try(TokenizerStream stream = lexer.stream(channel)) {
+ *     while(stream.next()) {
+ *         System.out.println(stream.group() + ": " + stream.value());
+ *     }
+ * }
+ * </pre>
+ * 
+ * @author HardCoded
+ */
+public final class TokenizerStream implements Closeable {
+	/**
+	 * The default size of the window in bytes.
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 8192;
+	
+	private final CompiledRules rules;
+	private final boolean autoDiscard;
+	private final int tabWidth;
+	private final ReadableByteChannel channel;
+	private final TokenizerMatch match;
+	private final TokenizerString string;
+	
+	private byte[] window;
+	private int limit;
+	private boolean eof;
+	
+	// The offset of the first byte of the window from the start of the input.
+	private long base;
+	
+	// The start of the unmatched bytes that will become a token of the default group.
+	private int run = -1;
+	
+	// The line and column of a position inside the window. This position is only moved
+	// forward when a line or column is requested or when bytes are removed from the window.
+	private int cursor;
+	private int cursorLine = 1;
+	private int cursorColumn = 1;
+	
+	// The current token
+	private int groupId = -1;
+	private boolean discard;
+	private int offset = -1;
+	private int length;
+	
+	TokenizerStream(CompiledRules rules, boolean autoDiscard, int tabWidth, ReadableByteChannel channel, int windowSize) {
+		this.rules = rules;
+		this.autoDiscard = autoDiscard;
+		this.tabWidth = tabWidth;
+		this.channel = channel;
+		this.match = new TokenizerMatch();
+		this.window = new byte[windowSize];
+		this.string = new TokenizerString(window);
+		this.string.setWindow(window, 0, 0);
+	}
+	
+	/**
+	 * Move to the next token.
+	 * 
+	 * @return false if there are no more tokens.
+	 * @throws IOException if the channel could not be read.
+	 */
+	public boolean next() throws IOException {
+		if(!channel.isOpen()) throw new IOException("The stream is closed.");
+		
+		while(true) {
+			if(string.length() == 0) {
+				if(!eof) {
+					fill();
+					continue;
+				}
+				
+				if(run >= 0) {
+					setDefaultToken();
+					return true;
+				}
+				
+				offset = -1;
+				return false;
+			}
+			
+			boolean found = Tokenizer.matchSingle(rules, string, match);
+			if(match.hitEnd && !eof) {
+				// A longer input could give a different match.
+				fill();
+				continue;
+			}
+			
+			if(found) {
+				if(run >= 0) {
+					// The match is found again on the next call.
+					setDefaultToken();
+					return true;
+				}
+				
+				SymbolGroup group = rules.groups[match.group];
+				int index = string.getIndex();
+				string.move(match.length);
+				
+				if(autoDiscard && group.shouldDiscard()) continue;
+				
+				setToken(group.getId(), group.shouldDiscard(), index, match.length);
+				return true;
+			}
+			
+			if(run < 0) {
+				run = string.getIndex();
+			}
+			
+			string.move(1);
+		}
+	}
+	
+	private void setDefaultToken() {
+		setToken(rules.defaultId, false, run, string.getIndex() - run);
+		run = -1;
+	}
+	
+	private void setToken(int groupId, boolean discard, int offset, int length) {
+		this.groupId = groupId;
+		this.discard = discard;
+		this.offset = offset;
+		this.length = length;
+	}
+	
+	/**
+	 * Move the cursor forward to an index inside the window.
+	 */
+	private void advance(int index) {
+		for(; cursor < index; cursor++) {
+			byte c = window[cursor];
+			
+			if(c == '\n') {
+				cursorLine++;
+				cursorColumn = 1;
+			} else {
+				cursorColumn += (c == '\t') ? tabWidth:1;
+			}
+		}
+	}
+	
+	/**
+	 * Remove the bytes that are no longer needed and read more bytes from the channel.
+	 */
+	private void fill() throws IOException {
+		int index = string.getIndex();
+		int keep = run >= 0 ? run:index;
+		
+		if(keep > 0) {
+			advance(keep);
+			cursor -= keep;
+			
+			System.arraycopy(window, keep, window, 0, limit - keep);
+			limit -= keep;
+			index -= keep;
+			base += keep;
+			if(run >= 0) run -= keep;
+			
+			// The current token was removed from the window.
+			offset = -1;
+		}
+		
+		if(limit == window.length) {
+			window = Arrays.copyOf(window, window.length << 1);
+		}
+		
+		ByteBuffer buffer = ByteBuffer.wrap(window, limit, window.length - limit);
+		int read;
+		do {
+			read = channel.read(buffer);
+		} while(read == 0);
+		
+		if(read < 0) {
+			eof = true;
+		} else {
+			limit += read;
+		}
+		
+		string.setWindow(window, index, limit);
+	}
+	
+	private void checkToken() {
+		if(offset < 0) throw new IllegalStateException("There is no current token.");
+	}
+	
+	/**
+	 * Returns the id of the group of the current token.
+	 * 
+	 * @see Tokenizer#getGroupId(String)
+	 */
+	public int groupId() {
+		checkToken();
+		return groupId;
+	}
+	
+	/**
+	 * Returns the name of the group of the current token.
+	 */
+	public String group() {
+		checkToken();
+		return rules.names[groupId + 1];
+	}
+	
+	public boolean discard() {
+		checkToken();
+		return discard;
+	}
+	
+	/**
+	 * Get the offset from the start of the input that the current token was read from.
+	 */
+	public long offset() {
+		checkToken();
+		return base + offset;
+	}
+	
+	public int length() {
+		checkToken();
+		return length;
+	}
+	
+	public int line() {
+		checkToken();
+		advance(offset);
+		return cursorLine;
+	}
+	
+	public int column() {
+		checkToken();
+		advance(offset);
+		return cursorColumn;
+	}
+	
+	/**
+	 * Create the value of the current token. This allocates a new string each time it is called.
+	 */
+	public String value() {
+		checkToken();
+		return new String(window, offset, length, StandardCharsets.ISO_8859_1);
+	}
+	
+	/**
+	 * Compares the value of the current token without creating a string.
+	 */
+	public boolean valueEquals(String value) {
+		checkToken();
+		if(value == null || value.length() != length) return false;
+		
+		for(int i = 0; i < length; i++) {
+			if(value.charAt(i) != (char)Byte.toUnsignedInt(window[offset + i])) return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Create a symbol for the current token. The file offset of the symbol is
+	 * an int so offsets larger than {@link Integer#MAX_VALUE} are clamped.
+	 */
+	public TokenizerSymbol symbol() {
+		checkToken();
+		int fileOffset = (int)Math.min(base + offset, Integer.MAX_VALUE);
+		return new TokenizerSymbol(rules.names[groupId + 1], groupId, discard, value(), new LineIndex(line(), column()), fileOffset);
+	}
+	
+	/**
+	 * Returns the current size of the window in bytes.
+	 */
+	public int getWindowSize() {
+		return window.length;
+	}
+	
+	/**
+	 * Closes this stream and the channel it reads from.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	@Override
+	public String toString() {
+		return "TokenizerStream(offset=" + (base + string.getIndex()) + ", window=" + window.length + ")";
+	}
+}
@@ -1,5 +1,8 @@
 package hardcoded.lexer;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * This class is used by the Tokenizer to generate the tokens.
  * 
@@ -7,62 +10,129 @@ package hardcoded.lexer;
  */
 final class TokenizerString implements CharSequence {
 	private byte[] bytes;
+	private ByteBuffer buffer;
 	private int index;
+	private int limit;
 	
 	/**
 	 * Create a new TokenizerString that is used by the lexer.
+	 * The array is not copied so it should not be modified while it is used.
 	 * 
 	 * @param bytes
 	 * @throws NullPointerException if the array was null
 	 */
 	public TokenizerString(byte[] bytes) {
-		this.bytes = bytes.clone();
+		this.bytes = bytes;
+		this.limit = bytes.length;
+	}
+	
+	/**
+	 * Create a new TokenizerString that reads directly from a buffer. The position
+	 * and limit of the buffer are ignored and the whole capacity is read.
+	 * 
+	 * @param buffer
+	 * @throws NullPointerException if the buffer was null
+	 */
+	public TokenizerString(ByteBuffer buffer) {
+		if(buffer.hasArray() && buffer.arrayOffset() == 0) {
+			this.bytes = buffer.array();
+		} else {
+			this.buffer = buffer;
+		}
+		
+		this.limit = buffer.capacity();
+	}
+	
+	/**
+	 * Replace the bytes that this string reads from. This is used by the streaming
+	 * lexer when the window is moved or filled.
+	 * 
+	 * @param bytes the new window.
+	 * @param index the index of the first unread byte inside the window.
+	 * @param limit the number of valid bytes inside the window.
+	 */
+	void setWindow(byte[] bytes, int index, int limit) {
+		this.bytes = bytes;
+		this.buffer = null;
+		this.index = index;
+		this.limit = limit;
 	}
 	
 	@Override
 	public char charAt(int index) {
-		return (char)Byte.toUnsignedInt(bytes[this.index + index]);
+		if(bytes != null) return (char)Byte.toUnsignedInt(bytes[this.index + index]);
+		return (char)Byte.toUnsignedInt(buffer.get(this.index + index));
 	}
 	
 	@Override
 	public int length() {
-		return bytes.length - index;
+		return limit - index;
 	}
 	
-	private int lineIndex = 1;
-	private int columnIndex = 1;
-	
-	int getLine() { return lineIndex; }
-	int getColumn() { return columnIndex; }
 	int getIndex() { return index; }
 	
+	/**
+	 * Move the start of this string. The line and column of a token are
+	 * found by a {@link LineIndex} when they are needed.
+	 */
 	void move(int index) {
-		if(index > 0) {
-			for(int i = 0; i < index; i++) {
-				char c = charAt(i);
-				
-				if(c == '\n') {
-					lineIndex++;
-					columnIndex = 1;
-				} else {
-					if(c == '\t') columnIndex += 3; // Notepad++, Eclipse counts tabs as 4 cols.
-					columnIndex++;
-				}
-			}
-		}
-		
 		this.index += index;
 	}
 	
 	@Override
 	public CharSequence subSequence(int start, int end) {
-		byte[] next = new byte[end - start];
-		System.arraycopy(bytes, index + start, next, 0, next.length);
-		return new TokenizerString(next);
+		return new TokenizerString(copy(index + start, end - start));
+	}
+	
+	/**
+	 * Copy a range of the underlying bytes.
+	 * 
+	 * @param offset the offset from the start of the input.
+	 * @param length the number of bytes to copy.
+	 */
+	byte[] copy(int offset, int length) {
+		byte[] next = new byte[length];
+		if(bytes != null) {
+			System.arraycopy(bytes, offset, next, 0, length);
+		} else {
+			for(int i = 0; i < length; i++) next[i] = buffer.get(offset + i);
+		}
+		
+		return next;
 	}
 	
 	@Override
 	public String toString() {
-		return new String(bytes, index, length());
+		return new String(copy(index, length()), StandardCharsets.ISO_8859_1);
+	}
+	
+	/**
+	 * Create a string from a range of a buffer using the charset ISO_8859_1.
+	 * The position and limit of the buffer are not changed.
+	 */
+	static String decode(ByteBuffer buffer, int offset, int length) {
+		if(buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.ISO_8859_1);
+		}
+		
+		char[] chars = new char[length];
+		for(int i = 0; i < length; i++) {
+			chars[i] = (char)Byte.toUnsignedInt(buffer.get(offset + i));
+		}
+		
+		return new String(chars);
+	}
+	
+	/**
+	 * Compare a range of a buffer with a string using the charset ISO_8859_1.
+	 */
+	static boolean valueEquals(ByteBuffer buffer, int offset, int length, String value) {
+		if(value == null || value.length() != length) return false;
+		
+		for(int i = 0; i < length; i++) {
+			if(value.charAt(i) != (char)Byte.toUnsignedInt(buffer.get(offset + i))) return false;
+		}
+		
+		return true;
 	}
 }
@@ -1,30 +1,50 @@
 package hardcoded.lexer;
 
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 public class TokenizerSymbol {
 	private String value;
 	private String group;
+	private int groupId;
 	private boolean discard;
-	private int line;
-	private int column;
 	private int fileOffset;
 	
-	protected TokenizerSymbol(String group, boolean discard, String value, int lineIndex, int columnIndex, int fileOffset) {
+	// The line and column are only found when they are used.
+	private LineIndex lines;
+	
+	// The bytes that the value is created from the first time it is used.
+	private ByteBuffer source;
+	private int length;
+	
+	protected TokenizerSymbol(String group, int groupId, boolean discard, String value, LineIndex lines, int fileOffset) {
 		this.group = group;
+		this.groupId = groupId;
 		this.discard = discard;
 		this.fileOffset = fileOffset;
 		this.value = value;
-		this.line = lineIndex;
-		this.column = columnIndex;
+		this.lines = lines;
+	}
+	
+	/**
+	 * Create a symbol that reads its value from a buffer the first time it is used.
+	 */
+	TokenizerSymbol(String group, int groupId, boolean discard, ByteBuffer source, int fileOffset, int length, LineIndex lines) {
+		this.group = group;
+		this.groupId = groupId;
+		this.discard = discard;
+		this.fileOffset = fileOffset;
+		this.source = source;
+		this.length = length;
+		this.lines = lines;
 	}
 	
 	public int line() {
-		return line;
+		return lines.line(fileOffset);
 	}
 	
 	public int column() {
-		return column;
+		return lines.column(fileOffset);
 	}
 	
 	public int fileOffset() {
@@ -35,7 +55,19 @@ public class TokenizerSymbol {
 		return group;
 	}
 	
+	/**
+	 * Returns the id of the group inside the tokenizer that created this symbol.
+	 * @see Tokenizer#getGroupId(String)
+	 */
+	public int groupId() {
+		return groupId;
+	}
+	
 	public String value() {
+		if(value == null && source != null) {
+			value = TokenizerString.decode(source, fileOffset, length);
+		}
+		
 		return value;
 	}
 	
@@ -48,6 +80,10 @@ public class TokenizerSymbol {
 	}
 	
 	public boolean valueEquals(String value) {
+		if(this.value == null && source != null) {
+			return TokenizerString.valueEquals(source, fileOffset, length, value);
+		}
+		
 		return Objects.equals(value, value());
 	}
 	
@@ -56,6 +92,6 @@ public class TokenizerSymbol {
 	}
 	
 	public String toString() {
-		return value;
+		return value();
 	}
 }
\ No newline at end of file
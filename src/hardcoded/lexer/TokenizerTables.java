@@ -0,0 +1,100 @@
+package hardcoded.lexer;
+
+/**
+ * This class contains the deterministic automaton of a tokenizer and the groups it
+ * can create. It is used to write a lexer that does not need the {@link Tokenizer}.<br><br>
+ * 
+ * The input is matched in the same way as the {@link Tokenizer.Strategy#AUTOMATON} strategy.
+ * The automaton is walked from state zero until there is no transition left and the
+ * last accepting state gives the group and length of the token. Bytes that did not
+ * match are combined into a token of the default group.
+ * 
+ * @author HardCoded
+ */
+public final class TokenizerTables {
+	private final int[] next;
+	private final int[] accept;
+	private final String[] names;
+	private final boolean[] discards;
+	private final int defaultId;
+	private final boolean autoDiscard;
+	private final int tabWidth;
+	
+	TokenizerTables(int[] next, int[] accept, String[] names, boolean[] discards, int defaultId, boolean autoDiscard, int tabWidth) {
+		this.next = next;
+		this.accept = accept;
+		this.names = names;
+		this.discards = discards;
+		this.defaultId = defaultId;
+		this.autoDiscard = autoDiscard;
+		this.tabWidth = tabWidth;
+	}
+	
+	/**
+	 * Returns the number of states of the automaton.
+	 */
+	public int states() {
+		return accept.length;
+	}
+	
+	/**
+	 * Returns the next state of a state for a byte or -1 if there is no transition.
+	 * 
+	 * @param state the current state.
+	 * @param value the unsigned value of the byte.
+	 */
+	public int next(int state, int value) {
+		return next[(state << 8) | value];
+	}
+	
+	/**
+	 * Returns the group id that a state accepts or -1 if the state does not accept.
+	 */
+	public int accept(int state) {
+		return accept[state];
+	}
+	
+	/**
+	 * Returns the number of group ids of the tokenizer.
+	 */
+	public int groups() {
+		return names.length - 1;
+	}
+	
+	/**
+	 * Returns the name of a group or null if the id was -1.
+	 */
+	public String name(int id) {
+		return names[id + 1];
+	}
+	
+	/**
+	 * Returns true if a group has the discard flag.
+	 */
+	public boolean isDiscard(int id) {
+		return discards[id + 1];
+	}
+	
+	/**
+	 * Returns the group id of the tokens that did not match any rule.
+	 */
+	public int getDefaultId() {
+		return defaultId;
+	}
+	
+	/**
+	 * Returns true if the tokens of discarded groups are removed.
+	 * 
+	 * @see Tokenizer#setAutoDiscard(boolean)
+	 */
+	public boolean hasAutoDiscard() {
+		return autoDiscard;
+	}
+	
+	/**
+	 * Returns the number of columns a tab counts as.
+	 */
+	public int getTabWidth() {
+		return tabWidth;
+	}
+}
@@ -0,0 +1,141 @@
+package hardcoded.lexer;
+
+import java.util.Arrays;
+
+/**
+ * This is a index of all string rules inside a tokenizer. The first byte of
+ * the input is used to look up a dense root table and the remaining bytes walk
+ * sorted child arrays. This finds the longest matching string in one walk.<br><br>
+ * 
+ * If the same string is added by multiple groups the group with the lowest
+ * index is used.
+ * 
+ * @author HardCoded
+ */
+final class TokenizerTrie {
+	private final int[] root;
+	
+	// Each node has a sorted list of child keys and the index of each child.
+	private char[][] keys;
+	private int[][] children;
+	private int[] groups;
+	private int size;
+	
+	TokenizerTrie() {
+		this.root = new int[256];
+		this.keys = new char[16][];
+		this.children = new int[16][];
+		this.groups = new int[16];
+		Arrays.fill(root, -1);
+	}
+	
+	/**
+	 * Add a string to this trie.
+	 * 
+	 * @param group the group index of the string.
+	 * @param string the string to add.
+	 */
+	void add(int group, String string) {
+		if(string.isEmpty() || string.charAt(0) > 255) return;
+		
+		int c = string.charAt(0);
+		int node = root[c];
+		if(node < 0) node = root[c] = newNode();
+		
+		for(int i = 1; i < string.length(); i++) {
+			char key = string.charAt(i);
+			if(key > 255) return;
+			
+			int index = Arrays.binarySearch(keys[node], key);
+			if(index >= 0) {
+				node = children[node][index];
+				continue;
+			}
+			
+			index = -(index + 1);
+			int child = newNode();
+			keys[node] = insert(keys[node], index, key);
+			children[node] = insert(children[node], index, child);
+			node = child;
+		}
+		
+		if(groups[node] < 0 || group < groups[node]) {
+			groups[node] = group;
+		}
+	}
+	
+	/**
+	 * Find the longest string that matches the start of the input.
+	 * 
+	 * @param string the input.
+	 * @param result the object that will get the matched group and length.
+	 * @return true if a string was matched.
+	 */
+	boolean match(TokenizerString string, TokenizerMatch result) {
+		int length = string.length();
+		int group = -1;
+		int matched = 0;
+		boolean hitEnd = length == 0;
+		int scanned = 0;
+		
+		if(length > 0) {
+			int node = root[string.charAt(0)];
+			int index = 1;
+			scanned = 1;
+			
+			while(node >= 0) {
+				if(groups[node] >= 0) {
+					group = groups[node];
+					matched = index;
+				}
+				
+				if(index >= length) {
+					hitEnd = keys[node].length > 0;
+					break;
+				}
+				
+				int next = Arrays.binarySearch(keys[node], string.charAt(index));
+				scanned = index + 1;
+				if(next < 0) break;
+				
+				node = children[node][next];
+				index++;
+			}
+		}
+		
+		result.group = group;
+		result.length = matched;
+		result.hitEnd = hitEnd;
+		result.scanned = scanned;
+		return group >= 0;
+	}
+	
+	private int newNode() {
+		if(size == groups.length) {
+			keys = Arrays.copyOf(keys, size << 1);
+			children = Arrays.copyOf(children, size << 1);
+			groups = Arrays.copyOf(groups, size << 1);
+		}
+		
+		keys[size] = new char[0];
+		children[size] = new int[0];
+		groups[size] = -1;
+		return size++;
+	}
+	
+	private static char[] insert(char[] array, int index, char value) {
+		char[] result = new char[array.length + 1];
+		System.arraycopy(array, 0, result, 0, index);
+		System.arraycopy(array, index, result, index + 1, array.length - index);
+		result[index] = value;
+		return result;
+	}
+	
+	private static int[] insert(int[] array, int index, int value) {
+		int[] result = new int[array.length + 1];
+		System.arraycopy(array, 0, result, 0, index);
+		System.arraycopy(array, index, result, index + 1, array.length - index);
+		result[index] = value;
+		return result;
+	}
+}
@@ -0,0 +1,121 @@
+package hardcoded.main;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import hardcoded.lexer.TokenBuffer;
+import hardcoded.lexer.Tokenizer;
+import hardcoded.lexer.TokenizerDocument;
+import hardcoded.lexer.TokenizerFactory;
+
+/**
+ * Randomized checks that compare the lexers that reuse or split the work with a single
+ * call to {@link Tokenizer#parseBuffer(byte[])}. The inputs are created from a fixed seed
+ * so a failure can be repeated. Each check throws a {@link AssertionError} if it fails.
+ * 
+ * <pre>java hardcoded.main.LexerChecks</pre>
+ * 
+ * @author HardCoded
+ */
+public class LexerChecks {
+	private static final String[] LEXERS = { "res/lexer/hc.lex", "res/lexer/hclexer.lex", "res/lexer/hcgrlexer.lex" };
+	private static final long SEED = 1;
+	
+	/**
+	 * The pieces of the random inputs. They start and end the tokens of the bundled lexers
+	 * and the last pieces do not match any rule.
+	 */
+	private static final String[] PIECES = {
+		"a", "abc", "_x1", "12", "0x1f", "3.5", " ", "\t", "\n", "\r\n",
+		"\"", "'", "\\", "/*", "*/", "//", "+", "-", "*", "/", "=", "<", ">",
+		"(", ")", "{", "}", "[", "]", ";", ":", ",", ".", "#", "%", "!", "&", "|",
+		"\u0001", "\u007f", "\u0080", "\u00ff"
+	};
+	
+	public static void main(String[] args) throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(8);
+		try {
+			for(String file : LEXERS) {
+				Tokenizer lexer = TokenizerFactory.loadFromFile(file);
+				checkDocumentEdits(lexer, file, new Random(SEED));
+				checkParallel(lexer, file, new Random(SEED), pool);
+			}
+		} finally {
+			pool.shutdown();
+		}
+		
+		System.out.println("All checks passed");
+	}
+	
+	/**
+	 * A document that was edited many times must have the same tokens as the same
+	 * bytes lexed from the start.
+	 */
+	private static void checkDocumentEdits(Tokenizer lexer, String file, Random random) {
+		byte[] bytes = input(random, 2000);
+		TokenizerDocument document = lexer.parseDocument(bytes);
+		
+		for(int i = 0; i < 2000; i++) {
+			int offset = random.nextInt(bytes.length + 1);
+			int removed = random.nextInt(Math.min(bytes.length - offset, 6) + 1);
+			byte[] inserted = input(random, random.nextInt(5));
+			
+			byte[] next = new byte[bytes.length - removed + inserted.length];
+			System.arraycopy(bytes, 0, next, 0, offset);
+			System.arraycopy(inserted, 0, next, offset, inserted.length);
+			System.arraycopy(bytes, offset + removed, next, offset + inserted.length, bytes.length - offset - removed);
+			bytes = next;
+			
+			document = document.edit(offset, removed, inserted);
+			String edit = file + " edit " + i + " (offset=" + offset + ", removed=" + removed + ", inserted=" + inserted.length + ")";
+			checkSame(lexer.parseBuffer(bytes), document.getTokens(), edit);
+		}
+	}
+	
+	/**
+	 * A large input lexed by a pool must have the same tokens as the same bytes lexed by
+	 * a single thread. Runs of high bytes that no bundled lexer matches are written over
+	 * the input and some of them are longer than a chunk, so chunks can start and end
+	 * inside a single unmatched token.
+	 */
+	private static void checkParallel(Tokenizer lexer, String file, Random random, ForkJoinPool pool) {
+		for(int i = 0; i < 4; i++) {
+			byte[] bytes = input(random, (1 << 20) + random.nextInt(3 << 20));
+			for(int j = 0; j < 6; j++) {
+				int start = random.nextInt(bytes.length);
+				int end = Math.min(bytes.length, start + random.nextInt(1 << 18));
+				for(int k = start; k < end; k++) bytes[k] = (byte)(0x80 + random.nextInt(0x70));
+			}
+			
+			String input = file + " input " + i + " (length=" + bytes.length + ")";
+			checkSame(lexer.parseBuffer(bytes), lexer.parseBuffer(bytes, pool), input);
+		}
+	}
+	
+	/**
+	 * Returns random bytes made from a number of pieces.
+	 */
+	private static byte[] input(Random random, int pieces) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for(int i = 0; i < pieces; i++) {
+			String piece = PIECES[random.nextInt(PIECES.length)];
+			for(int j = 0; j < piece.length(); j++) out.write(piece.charAt(j));
+		}
+		
+		return out.toByteArray();
+	}
+	
+	private static void checkSame(TokenBuffer expected, TokenBuffer actual, String message) {
+		check(expected.size() == actual.size(), message + " gave " + actual.size() + " tokens but expected " + expected.size());
+		for(int i = 0; i < expected.size(); i++) {
+			boolean same = expected.offset(i) == actual.offset(i) && expected.length(i) == actual.length(i)
+				&& expected.groupId(i) == actual.groupId(i) && expected.line(i) == actual.line(i) && expected.column(i) == actual.column(i);
+			check(same, message + " gave " + actual.symbol(i) + " but expected " + expected.symbol(i));
+		}
+	}
+	
+	private static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+}
@@ -9,10 +9,13 @@ import hardcoded.grammar.Grammar;
 import hardcoded.grammar.GrammarFactory;
 import hardcoded.grammar.GrammarType;
 import hardcoded.lexer.Token;
+import hardcoded.lexer.Tokenizer;
 import hardcoded.lexer.TokenizerFactory;
 import hardcoded.lexer.TokenizerOld;
 import hardcoded.parser.GLRParser;
 import hardcoded.parser.GLRParserGenerator;
+import hardcoded.parser.GeneratorListener;
+import hardcoded.parser.ParseListener;
 import hardcoded.tree.ParseTree;
 import hardcoded.utils.FileUtils;
 import hardcoded.visualization.PTVisualization;
@@ -128,17 +131,17 @@ public class Main {
 			//grammar = GrammarFactory.loadFromFile(GrammarType.HCGR, "res/operator.gr");
 			grammar = grammar.expand();
 			
+			Tokenizer lexer = TokenizerFactory.loadFromFile(new File("res/lexer/hc.lex"));
 			GLRParserGenerator generator = new GLRParserGenerator();
-			GLRParser parser = generator.generateParser(grammar);
+			generator.setListener(GeneratorListener.print(System.out));
+			GLRParser parser = generator.generateParser(grammar, lexer);
+			parser.setListener(ParseListener.print(System.out));
 			
 			{
 				byte[] bytes = FileUtils.readFileBytes(new File("res/project/src/test.hc"));
 				//bytes = "export int main() {} int test2() {}".getBytes();
 				
-				Token token = TokenizerOld.generateTokenChain(
-					TokenizerFactory.loadFromFile(new File("res/lexer/hc.lex")),
-					bytes
-				);
+				Token token = TokenizerOld.generateTokenChain(lexer, bytes);
 				
 				ParseTree parseTree = parser.parse(token);
 				
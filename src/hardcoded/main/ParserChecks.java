@@ -0,0 +1,339 @@
+package hardcoded.main;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import hardcoded.errors.grammar.ParserException;
+import hardcoded.grammar.Grammar;
+import hardcoded.grammar.GrammarFactory;
+import hardcoded.grammar.GrammarType;
+import hardcoded.lexer.Token;
+import hardcoded.lexer.TokenSequence;
+import hardcoded.lexer.Tokenizer;
+import hardcoded.lexer.TokenizerFactory;
+import hardcoded.lexer.TokenizerOld;
+import hardcoded.parser.GLRParser;
+import hardcoded.parser.GLRParserGenerator;
+import hardcoded.parser.GLRParserGenerator.ITable;
+import hardcoded.parser.GLRParserGenerator.TableType;
+import hardcoded.parser.GeneratorListener;
+import hardcoded.parser.JavaParserGenerator;
+import hardcoded.parser.ParseListener;
+import hardcoded.parser.ParseStatistics;
+import hardcoded.parser.ParserCache;
+import hardcoded.tree.ParseForest;
+
+/**
+ * Small checks of the edge cases of the parsers. Each check throws a {@link AssertionError}
+ * if it fails.<br><br>
+ * 
+ * The generated parsers are compiled with the system Java compiler so this must be run
+ * with a JDK from the root of the project.
+ * 
+ * <pre>java hardcoded.main.ParserChecks</pre>
+ * 
+ * @author HardCoded
+ */
+public class ParserChecks {
+	public static void main(String[] args) throws Exception {
+		Tokenizer lexer = TokenizerFactory.loadFromFile("res/lexer/hc.lex");
+		
+		checkGeneratedParser(lexer, GrammarFactory.loadFromFile(GrammarType.HCGR, "res/operator.gr"), "GeneratedOperatorParser", "", "7");
+		checkEmptyProductions(lexer);
+		checkSavedStateLimit(lexer);
+		checkCorruptedCache(lexer);
+		checkCacheOptions(lexer);
+		checkPool(lexer);
+		
+		System.out.println("All checks passed");
+	}
+	
+	/**
+	 * The generated parser must give the same result as {@link GLRParser#parseForest} for
+	 * every input. The inlined lexer must give the same tokens as the runtime lexer.
+	 */
+	private static void checkGeneratedParser(Tokenizer lexer, Grammar grammar, String className, String... inputs) throws Exception {
+		GLRParser parser = new GLRParserGenerator().generateParser(grammar.expand(), lexer);
+		
+		Path directory = Files.createTempDirectory("generated");
+		try {
+			Path source = new JavaParserGenerator("", className).setTokenizer(lexer).write(parser, directory);
+			
+			JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+			check(compiler != null, "A JDK is required to compile the generated parser");
+			int result = compiler.run(null, null, null, "-nowarn", "-cp", System.getProperty("java.class.path"), "-d", directory.toString(), source.toString());
+			check(result == 0, "The generated parser did not compile");
+			
+			try(URLClassLoader loader = new URLClassLoader(new URL[] { directory.toUri().toURL() }, ParserChecks.class.getClassLoader())) {
+				Class<?> generated = loader.loadClass(className);
+				Method parseForest = generated.getMethod("parseForest", Token.class);
+				Method parseBytes = generated.getMethod("parseForest", byte[].class);
+				Method tokenize = generated.getMethod("tokenize", byte[].class);
+				
+				for(String input : inputs) {
+					Token token = TokenizerOld.generateTokenChain(lexer, input.getBytes());
+					String expected = result(() -> parser.parseForest(token));
+					String actual = result(() -> parseForest.invoke(null, token));
+					check(expected.equals(actual), "The input '" + input + "' gave '" + actual + "' but expected '" + expected + "'");
+					
+					byte[] bytes = input.getBytes();
+					expected = result(() -> parser.parseForest(TokenSequence.of(lexer.parseBuffer(bytes))));
+					actual = result(() -> parseBytes.invoke(null, (Object)bytes));
+					check(expected.equals(actual), "The bytes '" + input + "' gave '" + actual + "' but expected '" + expected + "'");
+				}
+				
+				// The grammar file followed by every byte value contains both tokens and bytes that no rule matches.
+				byte[] bytes = Files.readAllBytes(Paths.get("res/operator.gr"));
+				bytes = Arrays.copyOf(bytes, bytes.length + 256);
+				for(int i = 0; i < 256; i++) bytes[bytes.length - 256 + i] = (byte)i;
+				
+				@SuppressWarnings("unchecked")
+				List<Token> actual = (List<Token>)tokenize.invoke(null, (Object)bytes);
+				TokenSequence expected = TokenSequence.of(lexer.parseBuffer(bytes));
+				check(expected.size() == actual.size(), "The inlined lexer gave " + actual.size() + " tokens but expected " + expected.size());
+				for(int i = 0; i < actual.size(); i++) {
+					Token a = actual.get(i);
+					Token b = expected.get(i);
+					check(a.value().equals(b.value()) && Objects.equals(a.group(), b.group()) && a.groupId() == b.groupId()
+						&& a.fileOffset() == b.fileOffset() && a.line() == b.line() && a.column() == b.column(),
+						"The inlined lexer gave '" + a + "' at " + a.fileOffset() + " but expected '" + b + "' at " + b.fileOffset());
+					check(a.prev() == (i > 0 ? actual.get(i - 1):null), "The tokens of the inlined lexer are not linked");
+				}
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	/**
+	 * Productions that matches nothing must be reduced by the forest parser. The rule
+	 * {@code s} is left recursive through the empty rule {@code a}, and the parser must
+	 * reduce the paths that ends with a empty symbol again after a edge has been added
+	 * or the forest of {@code a a a} will miss some of the ways the tokens can be split.
+	 */
+	private static void checkEmptyProductions(Tokenizer lexer) throws Exception {
+		Grammar grammar = GrammarFactory.loadFromString(GrammarType.HCGR,
+			"START s\n\n" +
+			"s: a b 'c'\n" +
+			" | a s 'c'\n\n" +
+			"a: [ 'x' ]\n" +
+			"b: [ 'y' ]\n"
+		);
+		
+		GLRParser parser = new GLRParserGenerator().generateParser(grammar.expand(), lexer);
+		for(String input : new String[] { "c", "c c", "x c", "y c", "x y c c", "x x y c c c" }) {
+			parser.parseForest(TokenSequence.of(lexer.parseBuffer(input)));
+		}
+		
+		for(String input : new String[] { "", "x", "c c y" }) {
+			try {
+				parser.parseForest(TokenSequence.of(lexer.parseBuffer(input)));
+				throw new AssertionError("The input '" + input + "' was accepted");
+			} catch(ParserException e) {
+				
+			}
+		}
+		
+		checkGeneratedParser(lexer, grammar, "GeneratedEmptyParser", "", "c", "x c c", "x x y c c c", "c c y");
+		
+		// Two tokens can be matched by one of the three items in three ways or by two of them in three ways.
+		Grammar split = GrammarFactory.loadFromString(GrammarType.HCGR, "START s\n\ns: b 'c'\n\nb: a a a\na: [ 'x' ]\n");
+		parser = new GLRParserGenerator().generateParser(split.expand(), lexer);
+		ParseForest forest = parser.parseForest(TokenSequence.of(lexer.parseBuffer("x x c")));
+		check(trees(forest.getRoot()) == 6, "The forest of 'x x c' contains " + trees(forest.getRoot()) + " trees");
+		
+		// The program of this grammar is a optional function so a empty input is a empty program.
+		Grammar language = GrammarFactory.loadFromFile(GrammarType.HCGR, "res/language_2.gr");
+		parser = new GLRParserGenerator().generateParser(language.expand(), lexer);
+		parser.parseForest(TokenSequence.of(lexer.parseBuffer("")));
+		checkGeneratedParser(lexer, language, "GeneratedLanguageParser", "");
+	}
+	
+	/**
+	 * A parse that needs more saved states than the limit must be reported instead of
+	 * silently removing the states it could go back to.
+	 */
+	private static void checkSavedStateLimit(Tokenizer lexer) throws Exception {
+		Grammar grammar = GrammarFactory.loadFromFile(GrammarType.HCGR, "res/test_wiki.gr").expand();
+		GLRParser parser = new GLRParserGenerator().generateParser(grammar, lexer);
+		TokenSequence tokens = TokenSequence.of(lexer.parseBuffer("a a b a a b"));
+		
+		ParseStatistics statistics = parser.parseWithStatistics(tokens).getStatistics();
+		check(statistics.isAccepted() && !statistics.isLimitReached(), "The input was not accepted without a limit: " + statistics);
+		check(statistics.getPeakLiveStates() > 1, "The input did not save more than one state: " + statistics);
+		
+		int[] errors = new int[1];
+		parser.setMaxSavedStates(1);
+		parser.setListener(new ParseListener() {
+			public void error(Token token, int position) {
+				errors[0]++;
+			}
+		});
+		
+		statistics = parser.parseWithStatistics(tokens).getStatistics();
+		check(!statistics.isAccepted() && statistics.isLimitReached(), "The limit was not reported: " + statistics);
+		check(errors[0] == 1, "The listener received " + errors[0] + " errors");
+	}
+	
+	/**
+	 * A table that can not be loaded must be moved away and replaced by a generated table.
+	 */
+	private static void checkCorruptedCache(Tokenizer lexer) throws Exception {
+		Grammar grammar = GrammarFactory.loadFromFile(GrammarType.HCGR, "res/operator.gr").expand();
+		
+		Path directory = Files.createTempDirectory("cache");
+		try {
+			ParserCache cache = new ParserCache(directory, Long.MAX_VALUE);
+			cache.getParser(grammar, lexer);
+			
+			Path table;
+			try(Stream<Path> paths = Files.list(directory)) {
+				table = paths.filter(path -> path.toString().endsWith(".hcpt")).findFirst().orElse(null);
+			}
+			
+			check(table != null, "The table was not written to the cache");
+			
+			// The rule count comes after the magic, the version, the grammar hash, the table type and the accept item.
+			byte[] oversized = Files.readAllBytes(table);
+			ByteBuffer buffer = ByteBuffer.wrap(oversized);
+			buffer.putInt(45 + buffer.getInt(41), 0x7ffffff0);
+			
+			for(byte[] corrupted : new byte[][] { { 1, 2, 3 }, oversized }) {
+				Files.write(table, corrupted);
+				
+				GLRParser parser = cache.getParser(grammar, lexer);
+				check(parser.parseForest(TokenSequence.of(lexer.parseBuffer("1 + 2"))) != null, "The generated parser did not work");
+				new GLRParserGenerator().loadParser(table, grammar, lexer);
+			}
+			
+			try(Stream<Path> paths = Files.list(directory)) {
+				check(paths.filter(path -> path.toString().endsWith(".tmp")).count() == 2, "The corrupted tables were not moved");
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	/**
+	 * Returns the number of parse trees inside the forest of a node.
+	 */
+	private static long trees(ParseForest.Node node) {
+		if(node.isTerminal()) return 1;
+		
+		long count = 0;
+		for(ParseForest.Packed packed : node.getAlternatives()) {
+			long product = 1;
+			for(ParseForest.Node child : packed.getChildren()) product *= trees(child);
+			count += product;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * The options of a generator that do not change the saved table must use the same table
+	 * and must be applied when the table is loaded.
+	 */
+	private static void checkCacheOptions(Tokenizer lexer) throws Exception {
+		Grammar grammar = GrammarFactory.loadFromFile(GrammarType.HCGR, "res/operator.gr").expand();
+		
+		Path directory = Files.createTempDirectory("cache");
+		try {
+			ParserCache cache = new ParserCache(directory, Long.MAX_VALUE);
+			cache.getParser(grammar, lexer);
+			
+			int[] tables = new int[1];
+			GLRParserGenerator generator = new GLRParserGenerator().setCompressed(true).setListener(new GeneratorListener() {
+				public void table(ITable table) {
+					tables[0]++;
+				}
+			});
+			
+			GLRParser parser = cache.getParser(generator, grammar, lexer);
+			check(parser.parseForest(TokenSequence.of(lexer.parseBuffer("1 + 2"))) != null, "The loaded parser did not work");
+			check(tables[0] == 1, "The listener received " + tables[0] + " tables");
+			
+			cache.getParser(generator.setTableType(TableType.LR0), grammar, lexer);
+			try(Stream<Path> paths = Files.list(directory)) {
+				check(paths.filter(path -> path.toString().endsWith(".hcpt")).count() == 2, "The table types did not use different tables");
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	/**
+	 * The states must be numbered in the same order by every pool so the table does not
+	 * depend on the number of threads that expanded the states.
+	 */
+	private static void checkPool(Tokenizer lexer) throws Exception {
+		Grammar grammar = GrammarFactory.loadFromFile(GrammarType.HCGR, "res/language_2.gr").expand();
+		String expected = table(new GLRParserGenerator(), grammar, lexer);
+		check(!expected.isEmpty(), "The listener did not receive the table");
+		
+		ForkJoinPool pool = new ForkJoinPool(1);
+		try {
+			String actual = table(new GLRParserGenerator().setPool(pool), grammar, lexer);
+			check(expected.equals(actual), "A single thread generated a different table");
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Returns the string of the table that a generator creates for a grammar.
+	 */
+	private static String table(GLRParserGenerator generator, Grammar grammar, Tokenizer lexer) {
+		StringBuilder sb = new StringBuilder();
+		generator.setListener(new GeneratorListener() {
+			public void table(ITable table) {
+				sb.append(table);
+			}
+		}).generateParser(grammar, lexer);
+		
+		return sb.toString();
+	}
+	
+	/**
+	 * Returns the string of the result or the message of the {@link ParserException} that was thrown.
+	 */
+	private static String result(Callable<Object> callable) throws Exception {
+		try {
+			return callable.call().toString();
+		} catch(ParserException e) {
+			return "ParserException: " + e.getMessage();
+		} catch(InvocationTargetException e) {
+			check(e.getCause() instanceof ParserException, "The generated parser threw " + e.getCause());
+			return "ParserException: " + e.getCause().getMessage();
+		}
+	}
+	
+	private static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+	
+	private static void delete(Path directory) throws IOException {
+		try(Stream<Path> paths = Files.walk(directory)) {
+			for(Path path : (Iterable<Path>)paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package hardcoded.parser;
+
+import java.util.Arrays;
+
+/**
+ * The cells of a parse table where each row is a state and each column is a terminal
+ * or a nonterminal. A cell contains the index of its actions or -1 if it is empty.<br><br>
+ * 
+ * A dense table stores every cell of every row. Parse tables are mostly empty so
+ * the compressed table uses row displacement instead. Every row is moved to an offset
+ * where its cells does not overlap the cells of the rows before it and all the rows are
+ * stored inside the same array. Each entry also stores the row that owns it so that a
+ * lookup is still a single array access.
+ * 
+ * @author HardCoded
+ */
+abstract class CellTable {
+	final int rows;
+	final int columns;
+	
+	private CellTable(int rows, int columns) {
+		this.rows = rows;
+		this.columns = columns;
+	}
+	
+	/**
+	 * Returns the cell of a row and a column or -1 if it is empty.
+	 */
+	abstract int get(int row, int column);
+	
+	/**
+	 * Returns the number of bytes used by the arrays of this table.
+	 */
+	abstract long bytes();
+	
+	/**
+	 * Create a table that stores every cell.
+	 * 
+	 * @param cells the cells of each row after each other.
+	 * @param rows the number of rows.
+	 * @param columns the number of columns.
+	 */
+	static CellTable dense(int[] cells, int rows, int columns) {
+		return new Dense(cells, rows, columns);
+	}
+	
+	/**
+	 * Create a table that only stores the cells that are not empty.
+	 * 
+	 * @param cells the cells of each row after each other.
+	 * @param rows the number of rows.
+	 * @param columns the number of columns.
+	 */
+	static CellTable compressed(int[] cells, int rows, int columns) {
+		return new Compressed(cells, rows, columns);
+	}
+	
+	private static final class Dense extends CellTable {
+		private final int[] cells;
+		
+		private Dense(int[] cells, int rows, int columns) {
+			super(rows, columns);
+			this.cells = cells;
+		}
+		
+		@Override
+		int get(int row, int column) {
+			return cells[row * columns + column];
+		}
+		
+		@Override
+		long bytes() {
+			return cells.length * 4L;
+		}
+	}
+	
+	private static final class Compressed extends CellTable {
+		// The offset of each row inside the entries.
+		private final int[] base;
+		
+		// The owner and the cell of each entry after each other so that both are read from the same cache line.
+		private final int[] entries;
+		
+		private Compressed(int[] cells, int rows, int columns) {
+			super(rows, columns);
+			this.base = new int[rows];
+			
+			// The rows with the most cells are placed first because they are the hardest to fit.
+			Integer[] order = new Integer[rows];
+			int[] counts = new int[rows];
+			for(int row = 0; row < rows; row++) {
+				order[row] = row;
+				for(int column = 0; column < columns; column++) {
+					if(cells[row * columns + column] >= 0) counts[row]++;
+				}
+			}
+			
+			Arrays.sort(order, (a, b) -> Integer.compare(counts[b], counts[a]));
+			
+			int[] owners = new int[Math.max(16, columns * 2)];
+			Arrays.fill(owners, -1);
+			int[] used = new int[columns];
+			int free = 0;
+			int size = columns;
+			
+			for(int row : order) {
+				if(counts[row] == 0) break;
+				
+				int count = 0;
+				for(int column = 0; column < columns; column++) {
+					if(cells[row * columns + column] >= 0) used[count++] = column;
+				}
+				
+				// The first slot that is free is the lowest position the first cell can be moved to.
+				int offset = Math.max(0, free - used[0]);
+				for(;; offset++) {
+					if(offset + columns > owners.length) {
+						int length = owners.length;
+						owners = Arrays.copyOf(owners, Math.max(length * 2, offset + columns));
+						Arrays.fill(owners, length, owners.length, -1);
+					}
+					
+					boolean fits = true;
+					for(int i = 0; i < count; i++) {
+						if(owners[offset + used[i]] >= 0) {
+							fits = false;
+							break;
+						}
+					}
+					
+					if(fits) break;
+				}
+				
+				base[row] = offset;
+				for(int i = 0; i < count; i++) owners[offset + used[i]] = row;
+				while(free < owners.length && owners[free] >= 0) free++;
+				size = Math.max(size, offset + columns);
+			}
+			
+			// Every row can read all of its columns without a bounds check.
+			entries = new int[size * 2];
+			for(int i = 0; i < size; i++) {
+				int row = owners[i];
+				entries[i * 2] = row;
+				entries[i * 2 + 1] = (row < 0) ? -1:cells[row * columns + i - base[row]];
+			}
+		}
+		
+		@Override
+		int get(int row, int column) {
+			int index = (base[row] + column) * 2;
+			return entries[index] == row ? entries[index + 1]:-1;
+		}
+		
+		@Override
+		long bytes() {
+			return (base.length + entries.length) * 4L;
+		}
+	}
+}
@@ -2,13 +2,17 @@ package hardcoded.parser;
 
 import static hardcoded.utils.StringUtils.*;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
 
 import hardcoded.errors.grammar.ParserException;
-import hardcoded.grammar.Grammar.*;
 import hardcoded.lexer.Token;
+import hardcoded.lexer.TokenSequence;
+import hardcoded.lexer.Tokenizer;
 import hardcoded.parser.GLRParserGenerator.*;
+import hardcoded.parser.TerminalClassifier.Classes;
+import hardcoded.tree.ParseForest;
 import hardcoded.tree.ParseTree;
 import hardcoded.tree.ParseTree.PNode;
 
@@ -19,31 +23,180 @@ import hardcoded.tree.ParseTree.PNode;
  */
 public class GLRParser {
 	private final ITable table;
+	private final TerminalClassifier classifier;
+	private final TomitaParser forestParser;
+	
+	// The listener that receives the steps of each parse or null
+	private volatile ParseListener listener;
+	
+	// The metrics that the statistics of each parse is added to or null
+	private volatile ParserMetrics metrics;
+	
+	// The largest number of saved states that the parser can go back to
+	private volatile int maxSavedStates = Integer.MAX_VALUE;
 	
 	protected GLRParser(ITable table) {
 		this.table = table;
+		this.classifier = new TerminalClassifier(table);
+		this.forestParser = new TomitaParser(table);
+	}
+	
+	/**
+	 * Install a listener that receives the shifts, reductions, forks, backtracks and the result
+	 * of every parse. The listener is read once at the start of each parse.
+	 * 
+	 * @param listener the listener or null to remove the listener.
+	 * @see ParseListener#print(java.io.PrintStream)
+	 */
+	public void setListener(ParseListener listener) {
+		this.listener = listener;
+	}
+	
+	public ParseListener getListener() {
+		return listener;
+	}
+	
+	/**
+	 * Add the {@link ParseStatistics} of every call to {@link #parse} and {@link #parseWithStatistics}
+	 * to the specified metrics. The same metrics can be used by many parsers.
+	 * 
+	 * @param metrics the metrics or null to stop recording the parses.
+	 */
+	public void setMetrics(ParserMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	public ParserMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Limit the number of saved states that {@link #parse} can go back to. A parse that
+	 * needs more saved states is stopped and reported as a error to the {@link ParseListener}
+	 * and inside the {@link ParseStatistics} because the parser could no longer try every
+	 * action of the input. There is no limit by default.
+	 * 
+	 * @param maxSavedStates the largest number of saved states.
+	 * @throws IllegalArgumentException if the limit is less than one.
+	 */
+	public void setMaxSavedStates(int maxSavedStates) {
+		if(maxSavedStates < 1) throw new IllegalArgumentException("The limit must be at least one.");
+		this.maxSavedStates = maxSavedStates;
+	}
+	
+	public int getMaxSavedStates() {
+		return maxSavedStates;
+	}
+	
+	/**
+	 * Save the table of this parser so that it can be loaded with {@link GLRParserGenerator#loadParser}.
+	 * 
+	 * @param path the file to write.
+	 * @throws IOException if the file could not be written.
+	 */
+	public void save(Path path) throws IOException {
+		TableFormat.write(table, path);
+	}
+	
+	ITable getTable() {
+		return table;
+	}
+	
+	/**
+	 * A immutable stack where each entry points to the entries below it. Pushing a value
+	 * shares the rest of the stack so copying a stack is free and all the branches of
+	 * the search share the entries they have in common.
+	 */
+	private static final class PersistentStack<T> {
+		private static final PersistentStack<?> EMPTY = new PersistentStack<>(null, null, 0);
+		
+		private final T top;
+		private final PersistentStack<T> rest;
+		private final int size;
+		
+		private PersistentStack(T top, PersistentStack<T> rest, int size) {
+			this.top = top;
+			this.rest = rest;
+			this.size = size;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private static <T> PersistentStack<T> empty() {
+			return (PersistentStack<T>)EMPTY;
+		}
 		
-		System.out.println(table);
-		System.out.println("");
+		private PersistentStack<T> push(T value) {
+			return new PersistentStack<>(value, this, size + 1);
+		}
+		
+		private PersistentStack<T> pop() {
+			if(size == 0) throw new NoSuchElementException();
+			return rest;
+		}
+		
+		private T peek() {
+			if(size == 0) throw new NoSuchElementException();
+			return top;
+		}
+		
+		/**
+		 * Returns the entries of this stack from the bottom to the top.
+		 */
+		private List<T> toList() {
+			List<T> list = new ArrayList<>(size);
+			for(PersistentStack<T> stack = this; stack.size > 0; stack = stack.rest) {
+				list.add(stack.top);
+			}
+			
+			Collections.reverse(list);
+			return list;
+		}
 	}
 	
 	private class LastState {
-		private LinkedList<StateToken> reductionStack;
-		private ParseTree tree;
+		private PersistentStack<StateToken> reductionStack;
+		private PersistentStack<PNode> tree;
 		
 		private LastState() {
-			this.reductionStack = new LinkedList<>();
-			this.tree = new ParseTree();
+			this.reductionStack = PersistentStack.empty();
+			this.tree = PersistentStack.empty();
 		}
 		
 		private LastState(LastState ls) {
-			this.reductionStack = new LinkedList<>(ls.reductionStack);
-			this.tree = new ParseTree(ls.tree);
+			this.reductionStack = ls.reductionStack;
+			this.tree = ls.tree;
+		}
+		
+		private void shift(StateToken state, TokenSequence tokens) {
+			reductionStack = reductionStack.push(state);
+			tree = tree.push(new PNode(state.value(tokens)));
+		}
+		
+		/**
+		 * Replace the top entries of the tree with a node that contains them.
+		 */
+		private void reduce(StateToken state, int count) {
+			PNode node = new PNode(state.item);
+			PNode[] children = new PNode[count];
+			for(int i = count - 1; i >= 0; i--) {
+				children[i] = tree.peek();
+				tree = tree.pop();
+			}
+			
+			node.nodes.addAll(Arrays.asList(children));
+			reductionStack = reductionStack.push(state);
+			tree = tree.push(node);
+		}
+		
+		private ParseTree toParseTree() {
+			ParseTree result = new ParseTree();
+			for(PNode node : tree.toList()) result.add(node);
+			return result;
 		}
 		
 		@Override
 		public String toString() {
-			return '(' + join(", ", reductionStack) + ')';
+			return '(' + join(", ", reductionStack.toList()) + ')';
 		}
 	}
 	
@@ -51,15 +204,19 @@ public class GLRParser {
 		private IAction[] actions;
 		private int index;
 		private String item;
-		private Token input;
+		
+		// The nonterminal id of the item and the index of the input inside the token sequence.
+		private int itemId = -1;
+		private int position = -1;
 		
 		private StateToken(IAction... actions) {
 			this.actions = actions;
 		}
 		
-		public String value() {
+		public String value(TokenSequence tokens) {
 			if(item != null) return item;
-			return input == null ? null:input.toString();
+			if(position < 0 || position >= tokens.size()) return null;
+			return tokens.get(position).toString();
 		}
 		
 		public IAction getAction() {
@@ -75,110 +232,207 @@ public class GLRParser {
 		@Override
 		public String toString() {
 			if(item == null) {
-				if(input == null || input.toString() == null) return getAction() + "";
-				return getAction() + "/" + input;
+				if(position < 0) return getAction() + "";
+				return getAction() + "/#" + position;
 			}
 			
 			return getAction() + "/" + item;
 		}
 	}
 	
-	private boolean checkMatch(IRule rule, StateToken state) {
-		if(rule == null) return false;
+	/**
+	 * Go back to the last state that has a action left to try.
+	 * 
+	 * @param stateStack the states where the parser can try another action.
+	 * @return the state to continue from or null if there are no actions left.
+	 */
+	private LastState backtrack(LinkedList<LastState> stateStack) {
+		if(stateStack.isEmpty()) return null;
 		
-		if(rule.isItemToken()) {
-			if(state.item != null) return rule.value().equals(state.value());
-			if(state.input != null && ((ItemToken)rule.asItem()).isImported()) {
-				return rule.value().equals(state.input.group());
-			}
+		LastState last = stateStack.getLast();
+		StateToken st = last.reductionStack.peek();
+		st.index++;
+		
+		if(st.index == st.actions.length - 1) {
+			// If we have reached the last index of a state we remove that state because if it's wrong we will never enter it again..
+			return new LastState(stateStack.pollLast());
+		} else if(st.index >= st.actions.length) {
+			// This removes the problem of tying to printing an action outside the actions array.
+			stateStack.removeLast();
 			
-			return match(rule, state.input);
+			if(stateStack.isEmpty()) return null;
+			return new LastState(stateStack.getLast());
 		}
 		
-		// This checks if the value are equal nad that the state is the same type as the rule.
-		return rule.value().equals(state.value()) && rule.isItemType() != (state.item == null);
+		return new LastState(last);
 	}
 	
-	private IAction[] getState(IRow row, StateToken state) {
-		for(int i = 0; i < row.size(); i++) {
-			IAction[] actions = row.get(i);
-			if(actions == null) continue;
-			
-			IRule rule = table.set.get(i);
-			// System.out.println("STATE -> (" + rule + ") --- (" + state.value() + "), " + state.toString());
-			
-			if(checkMatch(rule, state)) {
-				// System.out.println("MATCH -> (" + rule + ") --- (" + state.value() + "), " + state.toString());
-				return actions;
-			}
-		}
-		
-		return null;
+	private static void forked(ParseStatistics statistics, LinkedList<LastState> stateStack) {
+		statistics.forks++;
+		statistics.peakLiveStates = Math.max(statistics.peakLiveStates, stateStack.size());
 	}
 	
-	private boolean canDoReduction(IRuleList set, List<StateToken> reduction) {
-		if(reduction.size() < set.size()) return false;
+	/**
+	 * Returns the token at a position or null if the position is outside the input.
+	 */
+	private static Token tokenAt(TokenSequence tokens, int position) {
+		if(position < 0 || position >= tokens.size()) return null;
+		return tokens.get(position);
+	}
+	
+	private boolean canDoReduction(IAction action, PersistentStack<StateToken> reduction, Classes classes) {
+		int[] symbols = action.symbols;
+		if(reduction.size < symbols.length) return false;
 		
-		int start = reduction.size() - set.size();
-		for(int i = 0; i < set.size(); i++) {
-			StateToken state = reduction.get(i + start);
+		for(int i = symbols.length - 1; i >= 0; i--, reduction = reduction.rest) {
+			StateToken state = reduction.top;
+			int symbol = symbols[i];
 			
-			IRule rule = set.get(i);
-			if(!checkMatch(rule, state)) {
-				return false;
+			if(symbol < 0) {
+				if(state.item == null || state.itemId != ~symbol) return false;
+			} else {
+				if(state.item != null || !classes.contains(state.position, symbol)) return false;
 			}
 		}
 		
 		return true;
 	}
 	
-	// TODO: Fix operator precedence
-	// NOTE: We could let the developer figure out how to make operator precedence work.
+	/**
+	 * Parse the tokens with a graph structured stack. Unlike {@link #parse(Token)} this
+	 * method never backtracks and every parse tree of an ambiguous input is returned.
+	 * 
+	 * @param token the first token.
+	 * @return a forest that contains every parse tree of the input.
+	 * @throws ParserException if the input could not be parsed.
+	 */
+	public ParseForest parseForest(Token token) {
+		if(token == null) throw new NullPointerException("The token was null.");
+		return parseForest(TokenSequence.of(token));
+	}
+	
+	/**
+	 * Parse the tokens with a graph structured stack.
+	 * 
+	 * @param tokens the input.
+	 * @return a forest that contains every parse tree of the input.
+	 * @throws ParserException if the input could not be parsed.
+	 * @see #parseForest(Token)
+	 */
+	public ParseForest parseForest(TokenSequence tokens) {
+		if(tokens == null) throw new NullPointerException("The tokens was null.");
+		return forestParser.parse(tokens, classifier.classify(tokens), listener);
+	}
+	
+	/**
+	 * Parse a chain of tokens. The chain is copied into a {@link TokenSequence} first.
+	 * 
+	 * @param token the first token.
+	 * @see #parse(TokenSequence)
+	 */
 	public ParseTree parse(Token token) {
-		// System.out.println("Tokens: '" + token.toString(" ", Integer.MAX_VALUE) + "'");
+		if(token == null) throw new NullPointerException("The token was null.");
+		return parse(TokenSequence.of(token));
+	}
+	
+	public ParseTree parse(TokenSequence tokens) {
+		if(tokens == null) throw new NullPointerException("The tokens was null.");
+		if(metrics == null) return parse(tokens, null);
+		return parseWithStatistics(tokens, 0).getTree();
+	}
+	
+	/**
+	 * Parse the tokens and count the work done by the parser.
+	 * 
+	 * @param tokens the input.
+	 * @return the parse tree and the statistics of the parse.
+	 */
+	public ParseResult parseWithStatistics(TokenSequence tokens) {
+		if(tokens == null) throw new NullPointerException("The tokens was null.");
+		return parseWithStatistics(tokens, 0);
+	}
+	
+	/**
+	 * Tokenize the input and parse the tokens. The statistics contains the time
+	 * spent inside the tokenizer and the time spent inside the parser.
+	 * 
+	 * @param lexer the tokenizer that creates the tokens.
+	 * @param bytes the input.
+	 * @return the parse tree and the statistics of the parse.
+	 */
+	public ParseResult parseWithStatistics(Tokenizer lexer, byte[] bytes) {
+		long start = System.nanoTime();
+		TokenSequence tokens = TokenSequence.of(lexer.parseBuffer(bytes));
+		return parseWithStatistics(tokens, System.nanoTime() - start);
+	}
+	
+	private ParseResult parseWithStatistics(TokenSequence tokens, long lexNanos) {
+		ParseStatistics statistics = new ParseStatistics();
+		statistics.tokens = tokens.size();
+		statistics.lexNanos = lexNanos;
 		
+		long start = System.nanoTime();
+		ParseTree tree = parse(tokens, statistics);
+		statistics.parseNanos = System.nanoTime() - start;
+		
+		ParserMetrics metrics = this.metrics;
+		if(metrics != null) metrics.record(statistics);
+		return new ParseResult(tree, statistics);
+	}
+	
+	// TODO: Fix operator precedence
+	// NOTE: We could let the developer figure out how to make operator precedence work.
+	private ParseTree parse(TokenSequence tokens, ParseStatistics statistics) {
 		LinkedList<LastState> stateStack = new LinkedList<>();
 		LastState ls = new LastState();
+		if(tokens.isEmpty()) {
+			return ls.toParseTree();
+		}
+		
 		{
+			// The start state is placed before the first token.
 			StateToken state = new StateToken(table.start());
-			state.input = token.prev();
-			if(state.input == null) {
-				// Weird
-				return ls.tree;
-			}
-			
-			ls.reductionStack.push(state);
+			ls.reductionStack = ls.reductionStack.push(state);
 			stateStack.add(new LastState(ls));
+			if(statistics != null) statistics.peakLiveStates = 1;
 		}
 		
-		// Cap ambiguity to 100 states..
+		// Every token is classified once so that every step of the parser is a single table lookup.
+		Classes classes = classifier.classify(tokens);
+		ParseListener listener = this.listener;
+		
+		// The index of the last token that was shifted. A input that can not be parsed is reported at the token after it.
+		int furthest = -1;
+		
+		int maxSavedStates = this.maxSavedStates;
 		while(true) {
-			if(stateStack.size() > 100) {
-				stateStack.removeFirst();
+			if(stateStack.size() > maxSavedStates) {
+				// Removing a saved state could make the parser reject a valid input so the parse is stopped instead.
+				if(statistics != null) statistics.limitReached = true;
+				if(listener != null) listener.error(tokenAt(tokens, furthest + 1), furthest + 1);
+				break;
 			}
 			
-			// System.out.println();
-			// System.out.println("Stack: " + ls.reductionStack + ", size=" + stateStack.size());
-			// for(int i = Math.max(0, stateStack.size() - 10); i < stateStack.size(); i++) System.out.println("--" + stateStack.get(i));
-			
-			StateToken state = ls.reductionStack.getLast();
-			
-			// System.out.println("  State: (" + state.input.remaining() + ") " + state + ", " + stateStack.size()); //Runtime.getRuntime().totalMemory());
-			
+			StateToken state = ls.reductionStack.peek();
 			IAction current = state.getAction();
 			
 			// Check if we have reached the end of the stream
 			if(current == null) {
 				// To know that we have finished the stream we need to have two items in the reductionStack
 				// First we need the default state S0 and the START item that we specified in the grammar.
-				if(ls.reductionStack.size() == 2) {
-					String value = state.value();
+				if(ls.reductionStack.size == 2) {
+					String value = state.value(tokens);
 					
 					if(table.acceptItem().equals(value)) {
-						if(state.input.remaining() == 0) {
-							System.out.println("-- PARSED THE INPUT SUCCESSFULLY --");
-						} else {
-							System.out.println("-- FAILED TO PARSE THE INPUT --");
+						boolean accepted = tokens.remaining(state.position) == 0;
+						if(statistics != null) statistics.accepted = accepted;
+						
+						if(listener != null) {
+							if(accepted) {
+								listener.accept(tokens.size());
+							} else {
+								listener.error(tokenAt(tokens, furthest + 1), furthest + 1);
+							}
 						}
 						
 						break;
@@ -188,194 +442,111 @@ public class GLRParser {
 			
 			if(current.isShift()) {
 				StateToken nextState = new StateToken();
-				nextState.input = state.input.next();
-				
-				// System.out.println("  ShiftState : state='" + current + "', input='" + nextState.input + "', i=" + state.index);
-				
-				IRow row = table.getRow(current.index);
+				nextState.position = state.position + 1;
 				
 				// TODO: Sometimes there are more ways to understand a token..
-				IAction[] actions = getState(row, nextState);
+				IAction[] actions = table.getAction(current.index, classes.get(nextState.position));
+				
+				// Only keep the actions that are valid before the token after this one.
+				actions = table.filter(actions, classes.lookahead(nextState.position + 1));
 				if(actions == null || actions.length == 0 || state.index >= actions.length) {
-					// System.out.println("    \"A shift is not valid for the input '" + nextState.input + "'\"");
-					// System.out.println("    \"Going back into search tree\"");
-					
-					LastState last = stateStack.getLast();
-					StateToken st = last.reductionStack.getLast();
-					st.index++;
-					
-					if(st.index == st.actions.length - 1) {
-						// If we have reached the last index of a state we remove that state because if it's wrong we will never enter it again..
-						// System.out.println("    \"The index is at the end of the actions (" + st.index + ") --- (" + st.actions.length + ")\"");
-						ls = new LastState(stateStack.pollLast());
-					} else if(st.index >= st.actions.length) {
-						// This removes the problem of tying to printing an action outside the actions array.
-						stateStack.removeLast();
-						
-						if(stateStack.isEmpty()) {
-							System.out.println("-- FAILED TO PARSE THE INPUT --");
-							break;
-						}
-						
-						ls = new LastState(stateStack.getLast());
-					} else {
-						ls = new LastState(last);
+					LastState next = backtrack(stateStack);
+					if(next == null) {
+						// We have failed to parse this input
+						if(listener != null) listener.error(tokenAt(tokens, furthest + 1), furthest + 1);
+						break;
 					}
 					
+					if(listener != null) listener.backtrack(next.reductionStack.peek().position);
+					if(statistics != null) statistics.backtracks++;
+					ls = next;
 					continue;
 				}
 				
-				// System.out.println("    Actions: " + join(", ", actions));
-				// System.out.println("    Index  : " + state.index);
-				
-				IAction action = actions[state.index];
-//				System.out.println("    Action : " + action);
-				
 				nextState.actions = actions;
 				nextState.index = state.index;
 				
-				if(action.isShift()) {
-					nextState.input = state.input.next();
+				ls.shift(nextState, tokens);
+				if(nextState.position > furthest) furthest = nextState.position;
+				if(listener != null) listener.shift(nextState.rowIndex(), tokens.get(nextState.position), nextState.position);
+				if(statistics != null) {
+					statistics.shifts++;
+					statistics.maxStackDepth = Math.max(statistics.maxStackDepth, ls.reductionStack.size);
 				}
 				
-				ls.reductionStack.add(nextState);
-				ls.tree.add(new PNode(nextState.value()));
-				
 				if(actions == null || actions.length > 1) {
+					if(listener != null) listener.fork(actions.length, nextState.position);
 					stateStack.add(new LastState(ls));
+					if(statistics != null) forked(statistics, stateStack);
 				}
 				
 				continue;
 			}
 			
 			if(current.isReduce()) {
-				// System.out.println("  ReduceState : state='" + current + "', i=" + state.index + ", stack=" + ls.reductionStack);
-				// System.out.println("    IRuleList: [" + current.rl.itemName + " -> " + current.rl + "]");
-				
 				IRuleList rule = current.rl;
-				if(!canDoReduction(rule, ls.reductionStack)) {
-					// System.out.println("    \"The reduction rule did not match the current reductionStack\"");
-					// System.out.println("    \"Going back in the search tree\"");
-					
-					LastState last = stateStack.getLast();
-					StateToken st = last.reductionStack.getLast();
-					st.index++;
-					
-					if(st.index == st.actions.length - 1) {
-						// If we have reached the last index of a state we remove that state because if it's wrong we will never enter it again..
-						
-						// System.out.println("    \"The index is at the end of the actions (" + st.index + ") --- (" + st.actions.length + ")\"");
-						ls = new LastState(stateStack.pollLast());
-					} else if(st.index >= st.actions.length) {
-						// This removes the problem of tying to printing an action outside the actions array.
-						stateStack.removeLast();
-						
-						if(stateStack.isEmpty()) {
-							// We have failed to parse this input
-							System.out.println("-- FAILED TO PARSE THE INPUT --");
-							break;
-						}
-						
-						ls = new LastState(stateStack.getLast());
-					} else {
-						ls = new LastState(last);
+				if(!canDoReduction(current, ls.reductionStack, classes)) {
+					LastState next = backtrack(stateStack);
+					if(next == null) {
+						// We have failed to parse this input
+						if(listener != null) listener.error(tokenAt(tokens, furthest + 1), furthest + 1);
+						break;
 					}
 					
+					if(listener != null) listener.backtrack(next.reductionStack.peek().position);
+					if(statistics != null) statistics.backtracks++;
+					ls = next;
 					continue;
 				}
 				
-				for(int i = 0; i < rule.size(); i++) ls.reductionStack.pollLast();
+				for(int i = 0; i < rule.size(); i++) ls.reductionStack = ls.reductionStack.pop();
 				StateToken nextState = new StateToken();
 				nextState.item = current.rl.itemName;
-				nextState.input = state.input;
-				
-				state = ls.reductionStack.getLast();
+				nextState.itemId = current.item;
+				nextState.position = state.position;
 				
-				// System.out.println("    State    : " + state);
+				state = ls.reductionStack.peek();
 				
-				IRow row = table.getRow(state.rowIndex());
-				IAction[] actions = getState(row, nextState);
+				IAction[] actions = table.getGoto(state.rowIndex(), nextState.itemId);
 				
 				if(actions != null) {
-					// System.out.println("    Actions: " + join(", ", actions));
-					// System.out.println("    Index  : " + state.index);
+					actions = table.filter(actions, classes.lookahead(nextState.position + 1));
+					
+					if(actions == null) {
+						LastState next = backtrack(stateStack);
+						if(next == null) {
+							// We have failed to parse this input
+							if(listener != null) listener.error(tokenAt(tokens, furthest + 1), furthest + 1);
+							break;
+						}
+						
+						if(listener != null) listener.backtrack(next.reductionStack.peek().position);
+						if(statistics != null) statistics.backtracks++;
+						ls = next;
+						continue;
+					}
+					
 					nextState.actions = actions;
 				}
 				
-				// System.out.println("    Next     : " + nextState);
-				
-				ls.reductionStack.add(nextState);
-				ls.tree.reduce(new PNode(nextState.value()), rule.size());
-				
+				ls.reduce(nextState, rule.size());
+				if(listener != null) listener.reduce(nextState.item, rule.size(), nextState.position);
+				if(statistics != null) statistics.reductions++;
 				
 				if(actions == null || actions.length > 1) {
+					if(listener != null && actions != null) listener.fork(actions.length, nextState.position);
 					stateStack.add(new LastState(ls));
+					if(statistics != null) forked(statistics, stateStack);
 				}
 				
 				continue;
 			}
 			
 			// This was unexpected
+			Token token = tokens.get(Math.max(0, Math.min(state.position, tokens.size() - 1)));
 			throw new ParserException("Error at token: '" + token + "' (line=" + token.line() + ", column=" + token.column() + ")");
 		}
 		
-		System.out.println();
-		//System.out.println("END: " + ls.reductionStack);
-		//System.out.println("   : " + stateStack);
-		System.out.println();
-		
-		return ls.tree;
-	}
-	
-	private boolean match(IRule rule, Token token) {
-		if(token == null) return false; // TODO: This should only return true if we are expecting the {EOF} rule
-		
-		switch(rule.type()) {
-			case INVALID: throw new ParserException("Found a invalid matching rule...");
-			case STRING: return token.toString().equals(rule.value());
-			case REGEX: return token.toString().equals(rule.value());
-			case ITEM: return false; // Cannot match a token and an item
-			case TOKEN: {
-				ItemToken item = (ItemToken)rule.asItem();
-				
-				if(item.isImported()) {
-					System.out.println("Matching test. (" + rule + ") --- (" + token + ")");
-					return rule.value().equals(token.group());
-				}
-				
-				for(RuleList set : item.getRules()) {
-					if(_match(set, token)) return true;
-				}
-			}
-			case SPECIAL: {
-				// TODO???
-				if(rule.value().equals("{EOF}")) return token == null;
-				return false;
-			}
-		}
-		
-		return false;
-	}
-	
-	// TODO: This is a cheaty method.. This should be replaced...
-	private boolean _match(RuleList set, Token token) {
-		if(token == null) return false; // TODO: This should only return true if we are expecting the {EOF} rule
-		
-		for(Rule rule : set.getRules()) {
-			if(rule instanceof ItemRule) {
-				throw new ParserException("Cannot match item rules");
-			} else if(rule instanceof StringRule) {
-				return token.toString().equals(rule.value());
-			} else if(rule instanceof RegexRule) {
-				return token.toString().matches(rule.value());
-			} else if(rule instanceof SpecialRule) {
-				// SpecialRule sr = (SpecialRule)rule;
-				
-				// TODO: Check for {EOF} and other special tokens
-				return false;
-			}
-		}
-		
-		return false;
+		return ls.toParseTree();
 	}
 }
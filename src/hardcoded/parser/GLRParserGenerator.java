@@ -1,12 +1,19 @@
 package hardcoded.parser;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import hardcoded.errors.grammar.GrammarException;
 import hardcoded.grammar.Grammar;
 import hardcoded.grammar.Grammar.*;
 import hardcoded.grammar.OptimizedGrammar;
+import hardcoded.lexer.Tokenizer;
 
 /**
  * This class will create a GLRParser for a specified grammar.<br>
@@ -16,8 +23,6 @@ import hardcoded.grammar.OptimizedGrammar;
  * @author HardCoded
  */
 public class GLRParserGenerator {
-	// FIXME: Serialize the ITable classes.
-	
 	public GLRParserGenerator() {
 		
 	}
@@ -28,22 +33,122 @@ public class GLRParserGenerator {
 	// The grammar we are generating a parser for
 	private Grammar grammar;
 	
+	// The tokenizer used to resolve the group ids of imported tokens
+	private Tokenizer tokenizer;
+	
+	// The lookaheads used to filter the reductions of the table
+	private TableType tableType = TableType.LALR1;
+	
+	// If the tables should be compressed with row displacement
+	private boolean compressed;
+	
+	// The listener that receives the steps of the generator or null
+	private GeneratorListener listener;
+	
+	// The pool that expands the states of the automaton
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	
+	/**
+	 * Change the lookaheads that are computed for the reductions of the table.
+	 * The default type is {@link TableType#LALR1}.
+	 * 
+	 * @param tableType the type of table to generate.
+	 * @return this generator.
+	 */
+	public GLRParserGenerator setTableType(TableType tableType) {
+		if(tableType == null) throw new NullPointerException("The table type was null.");
+		this.tableType = tableType;
+		return this;
+	}
+	
+	public TableType getTableType() {
+		return tableType;
+	}
+	
+	/**
+	 * Change how the cells of the table are stored. A compressed table only stores the cells
+	 * that are not empty which uses a fraction of the memory of a large table. A lookup
+	 * inside a compressed table reads one more array than a lookup inside a dense table.
+	 * Tables are not compressed by default.
+	 * 
+	 * @param compressed true if the tables should be compressed.
+	 * @return this generator.
+	 */
+	public GLRParserGenerator setCompressed(boolean compressed) {
+		this.compressed = compressed;
+		return this;
+	}
+	
+	public boolean isCompressed() {
+		return compressed;
+	}
+	
+	/**
+	 * Install a listener that receives the states, the table and the conflicts of
+	 * the parsers that are generated or loaded by this generator.
+	 * 
+	 * @param listener the listener or null to remove the listener.
+	 * @return this generator.
+	 */
+	public GLRParserGenerator setListener(GeneratorListener listener) {
+		this.listener = listener;
+		return this;
+	}
+	
+	public GeneratorListener getListener() {
+		return listener;
+	}
+	
+	/**
+	 * Change the pool that expands the states of the automaton. A pool with a parallelism
+	 * of one creates the states on a single thread. The table is the same for every pool.
+	 * The default pool is {@link ForkJoinPool#commonPool()}.
+	 * 
+	 * @param pool the pool that expands the states.
+	 * @return this generator.
+	 */
+	public GLRParserGenerator setPool(ForkJoinPool pool) {
+		if(pool == null) throw new NullPointerException("The pool was null.");
+		this.pool = pool;
+		return this;
+	}
+	
+	public ForkJoinPool getPool() {
+		return pool;
+	}
 	
 	public GLRParser generateParser(Grammar grammar) {
+		return generateParser(grammar, null);
+	}
+	
+	/**
+	 * Generate a parser where all imported tokens are resolved to the group ids
+	 * of the specified tokenizer. The parser will compare the group ids of the tokens
+	 * instead of their group names so all tokens must be created by this tokenizer.
+	 * 
+	 * @param grammar the optimized grammar.
+	 * @param tokenizer the tokenizer that will create the tokens or null to compare group names.
+	 * @return a new parser.
+	 */
+	public GLRParser generateParser(Grammar grammar, Tokenizer tokenizer) {
 		if(!(grammar instanceof OptimizedGrammar)) {
 			throw new GrammarException("This grammar is not optimized");
 		}
 		
 		this.grammar = grammar;
+		this.tokenizer = tokenizer;
 		
 		String startGroupName = grammar.getStartItem();
 		if(startGroupName == null) {
 			throw new GrammarException("The grammar did not specify any start items");
 		}
 		
-		IState state = createEntrySet(startGroupName);
-		globalStates.add(state);
-		computeClosure(state);
+		if(grammar.getItem(startGroupName) == null) {
+			throw new GrammarException("Failed to create entry set. Item '" + startGroupName + "' does not exist!");
+		}
+		
+		globalStates = new Automaton().build(startGroupName);
+		if(listener != null) listener.states(globalStates.size());
 		
 		for(int i = 0; i < globalStates.size(); i++) {
 			globalStates.get(i).id = i;
@@ -56,10 +161,44 @@ public class GLRParserGenerator {
 		//        Sort the set list so that all terminals are on the left and all non-terminals are on the right inside this list.
 		List<IRule> set = globalStates.stream().map(x -> x.action).filter(x -> x != null).distinct().collect(Collectors.toList());
 		
-		return new GLRParser(new ITable(set, globalStates));
+		return created(new ITable(set, globalStates));
+	}
+	
+	public GLRParser loadParser(Path path, Grammar grammar) throws IOException {
+		return loadParser(path, grammar, null);
+	}
+	
+	/**
+	 * Load a parser that was saved with {@link GLRParser#save(Path)}. The table is only
+	 * loaded if it was generated from the same grammar with the same table type as this
+	 * generator. The imported tokens are resolved again with the specified tokenizer.
+	 * 
+	 * @param path the file that contains the parser.
+	 * @param grammar the optimized grammar that the parser was generated from.
+	 * @param tokenizer the tokenizer that will create the tokens or null to compare group names.
+	 * @return the loaded parser.
+	 * @throws IOException if the file could not be read or was created from another grammar.
+	 */
+	public GLRParser loadParser(Path path, Grammar grammar, Tokenizer tokenizer) throws IOException {
+		if(!(grammar instanceof OptimizedGrammar)) {
+			throw new GrammarException("This grammar is not optimized");
+		}
+		
+		this.grammar = grammar;
+		this.tokenizer = tokenizer;
+		
+		return created(TableFormat.read(this, grammar, tableType, path));
+	}
+	
+	private GLRParser created(ITable table) {
+		if(listener != null) {
+			listener.table(table);
+			for(IConflict conflict : table.getConflicts()) listener.conflict(conflict);
+		}
+		
+		return new GLRParser(table);
 	}
 	
-	// TODO: Make these serializable...
 	// TODO: Some rows should not be included because they are just empty
 	public class ITable {
 		private final IAction entry = new IAction(0, 0);
@@ -68,14 +207,454 @@ public class GLRParserGenerator {
 		public List<IRow> rows;
 		private String acceptItem;
 		
+		// The hash of the grammar that this table was generated from.
+		final byte[] grammarHash;
+		
+		// The index of each rule inside the set.
+		private final Map<IRule, Integer> columns = new HashMap<>();
+		
+		// The number of terminal and nonterminal columns.
+		int terminals;
+		int nonterminals;
+		
+		// The terminal id or the inverted nonterminal id of each column.
+		private int[] columnIds;
+		
+		// The cells of each state. A cell is an index inside the cells array or -1 if the cell is empty.
+		CellTable actionTable;
+		CellTable gotoTable;
+		
+		// The actions of each cell. Every cell that goes into the same state has the same actions so they are only stored once.
+		IAction[][] cells;
+		
+		// The reduce actions of each state.
+		private IAction[][] reductions;
+		
+		// The type of the table and the conflicts that are left after the lookaheads were applied.
+		private final TableType type;
+		private final List<IConflict> conflicts = new ArrayList<>();
+		
+		// The terminal ids of the end of the input.
+		int[] endOfInput;
+		
+		// The rules of each terminal id. The terminals a token matches are found by TerminalClassifier.
+		IRule[] terminalRules;
+		
 		private ITable(List<IRule> set, List<IState> states) {
 			this.acceptItem = grammar.getStartItem();
+			this.grammarHash = TableFormat.hash(grammar);
 			this.rows = new ArrayList<>();
+			this.type = tableType;
 			this.set = set;
 			
-			for(int i = 0; i < states.size(); i++) {
-				rows.add(new IRow(this, states.get(i)));
+			for(int i = 0; i < set.size(); i++) columns.put(set.get(i), i);
+			
+			Map<IRule, Integer> ids = new HashMap<>();
+			Map<String, Integer> nonterminalIds = new HashMap<>();
+			assignIds(ids, nonterminalIds);
+			
+			List<Lookaheads.Row> list = new Lookaheads(states, acceptItem, ids, terminals).build(type);
+			for(int i = 0; i < list.size(); i++) {
+				rows.add(new IRow(this, i));
+			}
+			
+			compile(list, ids, nonterminalIds);
+			findConflicts();
+		}
+		
+		/**
+		 * Create a table from the dense tables of a table that was loaded by {@link TableFormat}.
+		 * 
+		 * @param type the type of the table.
+		 * @param acceptItem the name of the start item.
+		 * @param set the columns of the table.
+		 * @param states the number of states.
+		 * @param actionTable the cells of each state and terminal.
+		 * @param gotoTable the cells of each state and nonterminal.
+		 * @param cells the actions of each cell.
+		 * @param grammarHash the hash of the grammar that the table was generated from.
+		 */
+		ITable(TableType type, String acceptItem, List<IRule> set, int states, int[] actionTable, int[] gotoTable, IAction[][] cells, byte[] grammarHash) {
+			this.acceptItem = acceptItem;
+			this.grammarHash = grammarHash;
+			this.rows = new ArrayList<>(states);
+			this.type = type;
+			this.set = set;
+			
+			for(int i = 0; i < set.size(); i++) columns.put(set.get(i), i);
+			
+			Map<IRule, Integer> ids = new HashMap<>();
+			Map<String, Integer> nonterminalIds = new HashMap<>();
+			assignIds(ids, nonterminalIds);
+			
+			if(actionTable.length != states * terminals || gotoTable.length != states * nonterminals) {
+				throw new IllegalArgumentException("The size of the tables does not match the columns");
+			}
+			
+			this.actionTable = createTable(actionTable, states, terminals);
+			this.gotoTable = createTable(gotoTable, states, nonterminals);
+			this.cells = cells;
+			
+			for(int i = 0; i < states; i++) {
+				rows.add(new IRow(this, i));
+			}
+			
+			link(ids, nonterminalIds);
+			findConflicts();
+		}
+		
+		/**
+		 * Give each column a terminal or nonterminal id.<br>
+		 * 
+		 * Terminals are numbered in the same order as the columns. If a token matches
+		 * more than one terminal the parser uses the lowest id that has an action.
+		 * The end of the input has the id after the last terminal.
+		 */
+		private void assignIds(Map<IRule, Integer> ids, Map<String, Integer> nonterminalIds) {
+			List<IRule> terminalList = new ArrayList<>();
+			
+			for(IRule rule : set) {
+				if(rule.type() == IType.ITEM) {
+					ids.put(rule, ~nonterminalIds.size());
+					nonterminalIds.put(rule.value(), nonterminalIds.size());
+					continue;
+				}
+				
+				ids.put(rule, terminalList.size());
+				terminalList.add(rule);
+			}
+			
+			columnIds = new int[set.size()];
+			for(int i = 0; i < columnIds.length; i++) columnIds[i] = ids.get(set.get(i));
+			
+			terminalRules = terminalList.toArray(new IRule[0]);
+			terminals = terminalRules.length;
+			nonterminals = nonterminalIds.size();
+			endOfInput = new int[] { terminals };
+		}
+		
+		/**
+		 * Fill the tables with the actions of each state.
+		 */
+		private void compile(List<Lookaheads.Row> list, Map<IRule, Integer> ids, Map<String, Integer> nonterminalIds) {
+			int[] actionCells = new int[rows.size() * terminals];
+			int[] gotoCells = new int[rows.size() * nonterminals];
+			Arrays.fill(actionCells, -1);
+			Arrays.fill(gotoCells, -1);
+			
+			// The cell of each state or -1 if nothing goes into the state.
+			int[] stateCells = new int[rows.size()];
+			Arrays.fill(stateCells, -1);
+			
+			List<IAction[]> cellList = new ArrayList<>();
+			for(int i = 0; i < rows.size(); i++) {
+				IAction[][] actions = createRow(list, i);
+				
+				for(int j = 0; j < actions.length; j++) {
+					if(actions[j] == null) continue;
+					
+					int target = actions[j][0].index;
+					if(stateCells[target] < 0) {
+						stateCells[target] = cellList.size();
+						cellList.add(actions[j]);
+					}
+					
+					int id = ids.get(set.get(j));
+					if(id >= 0) {
+						actionCells[i * terminals + id] = stateCells[target];
+					} else {
+						gotoCells[i * nonterminals + ~id] = stateCells[target];
+					}
+				}
+			}
+			
+			cells = cellList.toArray(new IAction[0][]);
+			actionTable = createTable(actionCells, rows.size(), terminals);
+			gotoTable = createTable(gotoCells, rows.size(), nonterminals);
+			link(ids, nonterminalIds);
+		}
+		
+		private CellTable createTable(int[] cells, int rows, int columns) {
+			return compressed ? CellTable.compressed(cells, rows, columns):CellTable.dense(cells, rows, columns);
+		}
+		
+		/**
+		 * Create the actions of each column of a state.
+		 * 
+		 * @param list the rows created by the lookaheads.
+		 * @param row the index of the state.
+		 */
+		private IAction[][] createRow(List<Lookaheads.Row> list, int row) {
+			IAction[][] actions = new IAction[set.size()][];
+			
+			Lookaheads.Row current = list.get(row);
+			IState states = current.core;
+			
+			for(int i = 0; i < states.next.size(); i++) {
+				IState state = states.next.get(i);
+				Integer index = columns.get(state.action);
+				
+				if(index == null) continue;
+				
+				int target = current.next[i];
+				BitSet[] lookaheads = list.get(target).lookaheads;
+				List<IAction> acts = new ArrayList<>();
+				
+				IAction shiftAction = null;
+				for(int j = 0; j < state.rules.size(); j++) {
+					IRuleList rl = state.rules.get(j);
+					boolean reduce = (rl.index >= rl.size());
+					
+					if(reduce) {
+						IAction act = new IAction(1, target);
+						act.rl = rl;
+						act.lookahead = (lookaheads == null) ? null:lookaheads[j];
+						acts.add(act);
+					} else if(shiftAction == null) {
+						shiftAction = new IAction(0, target);
+					}
+				}
+				
+				if(shiftAction != null) {
+					acts.add(0, shiftAction);
+				}
+				
+				actions[index] = acts.toArray(new IAction[0]);
 			}
+			
+			return actions;
+		}
+		
+		/**
+		 * Give each reduce action the ids of its symbols and find the reductions of each state.
+		 */
+		private void link(Map<IRule, Integer> ids, Map<String, Integer> nonterminalIds) {
+			for(IAction[] actions : cells) {
+				for(IAction action : actions) {
+					if(!action.isReduce()) continue;
+					
+					IRuleList rl = action.rl;
+					action.symbols = new int[rl.size()];
+					for(int k = 0; k < rl.size(); k++) {
+						// A rule that is not a column can never be matched.
+						action.symbols[k] = ids.getOrDefault(rl.get(k), Integer.MIN_VALUE);
+					}
+					
+					action.item = nonterminalIds.getOrDefault(rl.itemName, -1);
+				}
+			}
+			
+			// Every cell that goes into a state contains the same reductions.
+			reductions = new IAction[rows.size()][];
+			for(IAction[] actions : cells) {
+				int state = actions[0].index;
+				if(reductions[state] != null) continue;
+				
+				reductions[state] = Arrays.stream(actions).filter(IAction::isReduce).toArray(IAction[]::new);
+			}
+			
+			for(int i = 0; i < reductions.length; i++) {
+				if(reductions[i] == null) reductions[i] = new IAction[0];
+			}
+			
+			addEmptyReductions(nonterminalIds);
+		}
+		
+		/**
+		 * A empty production is never inside the kernel of a state so it is not found inside
+		 * the cells. It is instead reduced by every state that has a goto for its item, and
+		 * the start item is reduced by the first state. The backtracking parser only uses the
+		 * cells so these reductions are only used by the forest parsers.
+		 */
+		private void addEmptyReductions(Map<String, Integer> nonterminalIds) {
+			Set<String> names = new LinkedHashSet<>(nonterminalIds.keySet());
+			names.add(acceptItem);
+			
+			for(String name : names) {
+				int item = nonterminalIds.getOrDefault(name, -1);
+				
+				for(IRuleList rl : getGrammarItem(name).list) {
+					if(rl.size() > 0) continue;
+					
+					for(int state = 0; state < reductions.length; state++) {
+						boolean accept = state == 0 && name.equals(acceptItem);
+						if(!accept && (item < 0 || gotoTable.get(state, item) < 0)) continue;
+						
+						IAction action = new IAction(1, state);
+						action.rl = rl;
+						action.symbols = new int[0];
+						action.item = item;
+						
+						reductions[state] = Arrays.copyOf(reductions[state], reductions[state].length + 1);
+						reductions[state][reductions[state].length - 1] = action;
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Returns the actions of the first terminal that has an action inside the state.
+		 * 
+		 * @param state the state id.
+		 * @param ids the terminal ids of the next token in increasing order.
+		 * @return the actions or null if none of the terminals had an action.
+		 */
+		IAction[] getAction(int state, int[] ids) {
+			for(int id : ids) {
+				int cell = actionTable.get(state, id);
+				if(cell >= 0) return cells[cell];
+			}
+			
+			return null;
+		}
+		
+		/**
+		 * Returns the actions of a single terminal inside the state.
+		 * 
+		 * @param state the state id.
+		 * @param terminal the terminal id.
+		 * @return the actions or null if there was no action.
+		 */
+		IAction[] getAction(int state, int terminal) {
+			int cell = actionTable.get(state, terminal);
+			return cell < 0 ? null:cells[cell];
+		}
+		
+		/**
+		 * Returns the actions after a nonterminal was reduced inside the state.
+		 * 
+		 * @param state the state id.
+		 * @param nonterminal the nonterminal id.
+		 * @return the actions or null if there was no action.
+		 */
+		IAction[] getGoto(int state, int nonterminal) {
+			if(nonterminal < 0) return null;
+			int cell = gotoTable.get(state, nonterminal);
+			return cell < 0 ? null:cells[cell];
+		}
+		
+		/**
+		 * Returns the actions of a column inside the state.
+		 * 
+		 * @param state the state id.
+		 * @param column the index of the rule inside the set.
+		 * @return the actions or null if there was no action.
+		 */
+		IAction[] getCell(int state, int column) {
+			int id = columnIds[column];
+			int cell = (id >= 0) ? actionTable.get(state, id):gotoTable.get(state, ~id);
+			return cell < 0 ? null:cells[cell];
+		}
+		
+		/**
+		 * Returns true if a action can be used before a token with any of the terminal ids.
+		 * A shift is valid if the state has a action for the token and a reduction is valid
+		 * if the token is one of its lookaheads.
+		 * 
+		 * @param action the action.
+		 * @param lookahead the terminal ids of the next token or {@link #endOfInput}.
+		 */
+		boolean isValid(IAction action, int[] lookahead) {
+			if(action.isShift()) {
+				if(type == TableType.LR0) return true;
+				
+				for(int id : lookahead) {
+					if(id < terminals && actionTable.get(action.index, id) >= 0) return true;
+				}
+				
+				return false;
+			}
+			
+			if(action.lookahead == null) return true;
+			for(int id : lookahead) {
+				if(action.lookahead.get(id)) return true;
+			}
+			
+			return false;
+		}
+		
+		/**
+		 * Remove the actions of a cell that can not be used before the next token.
+		 * 
+		 * @param actions the actions of a cell or null.
+		 * @param lookahead the terminal ids of the next token or {@link #endOfInput}.
+		 * @return the valid actions or null if no action was valid.
+		 */
+		IAction[] filter(IAction[] actions, int[] lookahead) {
+			if(actions == null || type == TableType.LR0) return actions;
+			
+			int count = 0;
+			IAction last = null;
+			for(IAction action : actions) {
+				if(isValid(action, lookahead)) {
+					last = action;
+					count++;
+				}
+			}
+			
+			if(count == actions.length) return actions;
+			if(count == 0) return null;
+			if(count == 1) return last.single;
+			
+			IAction[] result = new IAction[count];
+			count = 0;
+			for(IAction action : actions) {
+				if(isValid(action, lookahead)) result[count++] = action;
+			}
+			
+			return result;
+		}
+		
+		/**
+		 * Find the states where more than one action is valid for the same terminal.
+		 */
+		private void findConflicts() {
+			boolean[] checked = new boolean[rows.size()];
+			for(IAction[] actions : cells) {
+				// Every cell that goes into a state has the same actions so only the first is checked.
+				int state = actions[0].index;
+				if(checked[state]) continue;
+				checked[state] = true;
+				if(actions.length < 2) continue;
+				
+				Map<List<IAction>, List<IRule>> groups = new LinkedHashMap<>();
+				for(int id = 0; id <= terminals; id++) {
+					List<IAction> valid = new ArrayList<>();
+					for(IAction action : actions) {
+						if(isValid(action, new int[] { id })) valid.add(action);
+					}
+					
+					if(valid.size() > 1) {
+						groups.computeIfAbsent(valid, x -> new ArrayList<>()).add(id < terminals ? terminalRules[id]:null);
+					}
+				}
+				
+				for(Map.Entry<List<IAction>, List<IRule>> entry : groups.entrySet()) {
+					conflicts.add(new IConflict(state, entry.getKey(), entry.getValue()));
+				}
+			}
+		}
+		
+		/**
+		 * Returns the conflicts of this table. A conflict is a state where the parser
+		 * has to try more than one action for the same next token.
+		 */
+		public List<IConflict> getConflicts() {
+			return Collections.unmodifiableList(conflicts);
+		}
+		
+		public TableType getType() {
+			return type;
+		}
+		
+		/**
+		 * Returns the reductions that are done after the parser has entered the state.
+		 * 
+		 * @param state the state id.
+		 * @return the reduce actions of the state.
+		 */
+		IAction[] getReductions(int state) {
+			return reductions[state];
 		}
 		
 		@Override
@@ -99,6 +678,12 @@ public class GLRParserGenerator {
 			}
 			
 			if(rows.size() > 0) sb.deleteCharAt(sb.length() - 1);
+			
+			sb.append("\n").append(type).append(": ").append(conflicts.size()).append(conflicts.size() == 1 ? " conflict":" conflicts");
+			for(IConflict conflict : conflicts) {
+				sb.append("\n  ").append(conflict);
+			}
+			
 			return sb.toString();
 		}
 		
@@ -115,66 +700,38 @@ public class GLRParserGenerator {
 		}
 	}
 	
+	/**
+	 * A view of the actions of a state. The actions are read from the tables of the owner.
+	 */
 	public class IRow {
-		private final IAction[][] actions;
 		private final ITable owner;
+		private final int row;
 		
-		public IRow(ITable parent, IState states) {
-			owner = parent;
-			actions = new IAction[owner.set.size()][];
-			
-			if(states.next.isEmpty()) return;
-			
-			for(IState state : states.next) {
-				int index = owner.set.indexOf(state.action);
-				
-				if(index == -1) continue;
-				
-				List<IAction> acts = new ArrayList<>();
-				
-				IAction shiftAction = null;
-				IRule shiftRule = null;
-				List<IRuleList> reduceRules = null;
-				
-				for(IRuleList rl : state.rules) {
-					boolean reduce = (rl.index >= rl.size());
-					
-					if(reduce) {
-						if(reduceRules == null) reduceRules = new ArrayList<>();
-						reduceRules.add(rl);
-						
-						IAction act = new IAction(1, globalStates.indexOf(state));
-						act.rl = rl;
-						acts.add(act);
-					} else if(shiftRule == null) {
-						shiftRule = rl.cursor(-1);
-						shiftAction = new IAction(0, globalStates.indexOf(state));
-					}
-				}
-				
-				if(shiftAction != null) {
-					acts.add(0, shiftAction);
-				}
-				
-				actions[index] = acts.toArray(new IAction[0]);
-			}
+		IRow(ITable parent, int row) {
+			this.owner = parent;
+			this.row = row;
 		}
 		
+		/**
+		 * Returns a new array with the actions of each column.
+		 */
 		public IAction[][] actions() {
+			IAction[][] actions = new IAction[size()][];
+			for(int i = 0; i < actions.length; i++) actions[i] = get(i);
 			return actions;
 		}
 		
 		public IAction[] get(int index) {
-			return actions[index];
+			return owner.getCell(row, index);
 		}
 		
 		public int size() {
-			return actions.length;
+			return owner.set.size();
 		}
 		
 		public String toString() {
 			StringBuilder sb = new StringBuilder();
-			for(IAction[] action : actions) {
+			for(IAction[] action : actions()) {
 				StringBuilder sc = new StringBuilder();
 				String str;
 				if(action == null || action.length == 0) {
@@ -189,7 +746,7 @@ public class GLRParserGenerator {
 				
 				sb.append(String.format("%10s, ", str));
 			}
-			if(actions.length > 0) sb.deleteCharAt(sb.length() - 1);
+			if(size() > 0) sb.deleteCharAt(sb.length() - 1);
 			
 			return sb.toString();
 		}
@@ -205,6 +762,18 @@ public class GLRParserGenerator {
 		public IRule rule;
 		public IRuleList rl;
 		
+		// The symbol ids of a reduce rule where a terminal id is positive and a nonterminal id is inverted.
+		int[] symbols;
+		
+		// The nonterminal id of a reduce rule or -1 if it does not have a column.
+		int item = -1;
+		
+		// The terminals that can follow a reduce rule or null if every terminal can follow it.
+		BitSet lookahead;
+		
+		// A array that only contains this action.
+		final IAction[] single = { this };
+		
 		public IAction(int type, int index) {
 			this.index = index;
 			this.type = type;
@@ -226,175 +795,441 @@ public class GLRParserGenerator {
 		}
 	}
 	
-	private void computeClosure(IState state) {
-		LinkedList<List<IState>> states = new LinkedList<>();
-		states.add(computeClosure2(state));
+	/**
+	 * A state where more than one action is valid for the same next token.
+	 */
+	public class IConflict {
+		private final int state;
+		private final List<IAction> actions;
+		private final List<IRule> terminals;
+		
+		private IConflict(int state, List<IAction> actions, List<IRule> terminals) {
+			this.state = state;
+			this.actions = Collections.unmodifiableList(actions);
+			this.terminals = Collections.unmodifiableList(terminals);
+		}
 		
-		while(!states.isEmpty()) {
-			List<IState> next = states.poll();
-			
-			for(IState s : next) {
-				states.add(computeClosure2(s));
+		public int getState() {
+			return state;
+		}
+		
+		public List<IAction> getActions() {
+			return actions;
+		}
+		
+		/**
+		 * Returns the terminals of the conflict. The end of the input is null.
+		 */
+		public List<IRule> getTerminals() {
+			return terminals;
+		}
+		
+		/**
+		 * Returns true if one of the actions is a shift.
+		 */
+		public boolean isShiftReduce() {
+			return actions.stream().anyMatch(IAction::isShift);
+		}
+		
+		@Override
+		public String toString() {
+			String names = terminals.stream().map(x -> x == null ? "{EOF}":("'" + x + "'")).collect(Collectors.joining(", "));
+			StringBuilder sb = new StringBuilder();
+			sb.append("I").append(state).append(isShiftReduce() ? " shift/reduce":" reduce/reduce").append(" on ").append(names).append(":");
+			for(IAction action : actions) {
+				sb.append(" ").append(action);
+				if(action.isReduce()) sb.append(" [").append(action.rl.itemName).append(" -> ").append(action.rl).append("]");
 			}
+			
+			return sb.toString();
 		}
 	}
 	
-	// TODO: If there is a chain with only only terminals left, find the start
-	//       of the chain and reduce it to only one state.
-	private List<IState> computeClosure2(IState state) {
-		IState current = state.clone();
+	/**
+	 * The items of a kernel. The items are sorted so that kernels that were created
+	 * in a different order are equal.
+	 */
+	private static final class ItemSet {
+		private final int[] items;
+		private final int hash;
+		
+		private ItemSet(int[] kernel) {
+			this.items = kernel.clone();
+			Arrays.sort(items);
+			this.hash = Arrays.hashCode(items);
+		}
 		
-		List<IState> nextSet = new ArrayList<>();
-		IState next;
+		@Override
+		public int hashCode() {
+			return hash;
+		}
 		
-		Set<Integer> visited = new HashSet<>();
-		for(int i = 0; i < current.size(); i++) {
-			next = createNextState(current, i, visited);
-			
-			if(next == null) {
-				// The end of the chain or no more rules to iterate
-				continue;
-			}
-			
-			// Check if this state is already defined. If so do not add it again.
-			int index = globalStates.indexOf(next);
-			if(index < 0) {
-				globalStates.add(next);
-				state.next.add(next);
-				
-				// computeClosure(next);
-				nextSet.add(next);
-			} else {
-				IState found = globalStates.get(index);
-				state.next.add(found);
-			}
-			
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof ItemSet)) return false;
+			return Arrays.equals(items, ((ItemSet)obj).items);
 		}
+	}
+	
+	/**
+	 * A state of the automaton while it is being created.
+	 */
+	private static final class KernelState {
+		private final int action;
+		private int[] kernel;
+		private int[] closure;
+		private KernelState[] next;
+		
+		// The kernel of each next state. This is only kept until the next states have been numbered.
+		private int[][] nextKernels;
+		
+		// The id of the state or -1 if it has not been numbered.
+		private int id = -1;
 		
-		return nextSet;
+		private KernelState(int[] kernel, int action) {
+			this.kernel = kernel;
+			this.action = action;
+		}
 	}
 	
 	/**
-	 * Creates the next logical state from a given state.
+	 * Marks the grammar items and symbols that have been visited. Each thread uses its
+	 * own marks and the arrays never have to be cleared because the mark is changed instead.
+	 */
+	private static final class Marks {
+		private final int[] items;
+		private final int[] symbols;
+		private final int[] groups;
+		private int mark;
+		
+		private Marks(int items, int symbols) {
+			this.items = new int[items];
+			this.symbols = new int[symbols];
+			this.groups = new int[symbols];
+		}
+	}
+	
+	/**
+	 * This class creates the LR(0) states of the grammar.<br>
+	 * 
+	 * The productions of the grammar are stored inside a flat table and each LR item
+	 * is a single int. The items of a production are numbered after each other so moving
+	 * the dot of an item is the same as adding one to it. A state only stores the items
+	 * of its kernel and the grammar items of its closure, and the {@link IState} objects
+	 * are created after every state has been found.<br><br>
 	 * 
-	 * @param state
-	 * @param index
-	 * @param visited The indexes that has already been searched.
-	 * @return
+	 * The states are expanded one breadth first level at a time on the pool of the generator.
+	 * New kernels are shared through a concurrent map and the states are numbered after each
+	 * level in the same order as a single threaded search so the table is always the same.
 	 */
-	private IState createNextState(IState state, int index, Set<Integer> visited) {
-		IState result;
-		
-		{
-			IRule rule = state.getRule(index).cursor();
-			if(rule == null) {
-				// This means that this is not a LR(0) grammar
-				// and should throw an error
-				//
-				// Or that this is the end of the chain.
-				// We could not find any new states to calculate.
-				return null;
-			}
+	private class Automaton {
+		// The grammar items and the first production of each grammar item.
+		private final Map<String, Integer> itemIds = new HashMap<>();
+		private final List<IItem> items = new ArrayList<>();
+		private int[] firstProduction = new int[16];
+		
+		// The productions and the first LR item of each production.
+		private final List<IRuleList> productions = new ArrayList<>();
+		private int[] firstItem = new int[16];
+		
+		// The production, the symbol after the dot and the rule list of each LR item.
+		private int[] itemProduction = new int[64];
+		private int[] itemSymbol = new int[64];
+		private IRuleList[] itemRules = new IRuleList[64];
+		private int itemCount;
+		
+		// The symbols and the grammar item of each symbol. Symbols that are not grammar items
+		// have the value -1 and grammar items that have not been loaded have the value -2.
+		private final Map<IRule, Integer> symbolIds = new HashMap<>();
+		private final List<IRule> symbols = new ArrayList<>();
+		private int[] symbolItem = new int[16];
+		
+		// The states indexed by their sorted kernel and the states that have been numbered.
+		private final Map<ItemSet, KernelState> stateIds = new ConcurrentHashMap<>();
+		private final List<KernelState> states = new ArrayList<>();
+		private int startItem;
+		
+		// TODO: If there is a chain with only only terminals left, find the start
+		//       of the chain and reduce it to only one state.
+		List<IState> build(String startName) {
+			startItem = getItem(startName);
 			
-			// There is a possibility that we have already searched this rule..
-			// We need to check if we have used this rule already.
-			if(visited.contains(index)) return null;
+			// Load every grammar item that can be reached so the tables are not changed
+			// while the states are created by more than one thread.
+			for(int i = 0; i < itemCount; i++) nextItem(i);
 			
-			result = new IState("I" + globalStates.size());
-			result.action = rule;
-		}
-		
-		for(int i = 0; i < state.size(); i++) {
-			IRuleList set = state.allRules.get(i);
-			IRule rule = set.cursor();
+			KernelState start = new KernelState(new int[0], -1);
+			start.id = 0;
+			states.add(start);
 			
-			// Find all items that requires the next states token
-			if(result.action.equals(rule)) {
-				if(result.rules.indexOf(set) < 0) {
-					if(!visited.contains(i)) {
-						// FIXME: This could break some checks and I'm not sure which ones it does break.
+			// Each pass expands the states that were found by the previous pass.
+			for(int from = 0; from < states.size();) {
+				KernelState[] frontier = states.subList(from, states.size()).toArray(new KernelState[0]);
+				pool.invoke(new Expand(frontier, 0, frontier.length));
+				from = states.size();
+				
+				// The new states are numbered in the same order as a breadth first search would find them,
+				// and they keep the kernel of the first state that reached them.
+				for(KernelState state : frontier) {
+					for(int i = 0; i < state.next.length; i++) {
+						KernelState next = state.next[i];
+						if(next.id >= 0) continue;
 						
-						visited.add(i);
-						set.index++;
+						next.id = states.size();
+						next.kernel = state.nextKernels[i];
+						states.add(next);
 					}
 					
-					result.rules.add(set.fullClone());
+					state.nextKernels = null;
+				}
+			}
+			
+			List<IState> result = new ArrayList<>(states.size());
+			for(int i = 0; i < states.size(); i++) {
+				result.add(new IState("I" + i));
+			}
+			
+			for(int i = 0; i < states.size(); i++) {
+				KernelState current = states.get(i);
+				IState state = result.get(i);
+				state.action = (current.action < 0) ? null:symbols.get(current.action);
+				for(int item : current.kernel) state.rules.add(getRules(item));
+				for(int item : current.closure) state.list.add(items.get(item));
+				for(KernelState next : current.next) state.next.add(result.get(next.id));
+			}
+			
+			return result;
+		}
+		
+		/**
+		 * Computes the closure and the next states of a range of states.
+		 */
+		private class Expand extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+			private static final int THRESHOLD = 16;
+			
+			private final KernelState[] states;
+			private final int from;
+			private final int to;
+			
+			private Expand(KernelState[] states, int from, int to) {
+				this.states = states;
+				this.from = from;
+				this.to = to;
+			}
+			
+			@Override
+			protected void compute() {
+				if(to - from > THRESHOLD) {
+					int middle = (from + to) >>> 1;
+					invokeAll(new Expand(states, from, middle), new Expand(states, middle, to));
+					return;
 				}
 				
-				IRule next = set.cursor();
-				if(next != null && next.isItemType() && !next.isItemToken()) {
-					String name = next.value;
-					
-					if(!result.hasItem(name)) {
-						result.list.add(getGrammarItem(name));
-					}
+				Marks marks = new Marks(items.size(), symbols.size());
+				for(int i = from; i < to; i++) {
+					KernelState state = states[i];
+					state.closure = computeClosure(state.kernel, state.id == 0 ? startItem:-1, marks);
+					computeNext(state, marks);
 				}
 			}
 		}
 		
-		for(int i = 0; i < result.list.size(); i++) {
-			IItem item = result.list.get(i);
+		/**
+		 * Returns the grammar items that are added to a kernel.
+		 * 
+		 * @param kernel the items of the kernel.
+		 * @param startItem the start item of the grammar or -1 if this is not the first state.
+		 * @param marks the marks of the current thread.
+		 * @return the grammar items in the order they were found.
+		 */
+		private int[] computeClosure(int[] kernel, int startItem, Marks marks) {
+			int[] itemMarks = marks.items;
+			int mark = ++marks.mark;
+			int[] result = new int[8];
+			int size = 0;
+			
+			if(startItem >= 0) {
+				itemMarks[startItem] = mark;
+				result[size++] = startItem;
+			}
 			
-			for(IRuleList set : item.list) {
-				IRule next = set.cursor();
-				if(next != null && next.isItemType() && !next.isItemToken()) {
-					String name = next.value;
+			for(int item : kernel) {
+				int next = nextItem(item);
+				if(next < 0 || itemMarks[next] == mark) continue;
+				
+				itemMarks[next] = mark;
+				result = grow(result, size + 1);
+				result[size++] = next;
+			}
+			
+			for(int i = 0; i < size; i++) {
+				for(int j = firstProduction[result[i]]; j < firstProduction[result[i] + 1]; j++) {
+					int next = nextItem(firstItem[j]);
+					if(next < 0 || itemMarks[next] == mark) continue;
 					
-					if(!result.hasItem(name)) {
-						result.list.add(getGrammarItem(name));
-					}
+					itemMarks[next] = mark;
+					result = grow(result, size + 1);
+					result[size++] = next;
 				}
 			}
+			
+			return Arrays.copyOf(result, size);
 		}
 		
-		return result;
-	}
-	
-	// TODO: Optimize this function..
-	private IState createEntrySet(String startGroupName) {
-		IState state = new IState("I0");
+		/**
+		 * Move the dot of every item inside a state that has a symbol after the dot.
+		 * The next states are found in the order their symbols were found.
+		 */
+		private void computeNext(KernelState state, Marks marks) {
+			int[] kernel = state.kernel;
+			int[] list = kernel;
+			int size = kernel.length;
+			
+			for(int item : state.closure) {
+				int count = firstProduction[item + 1] - firstProduction[item];
+				list = Arrays.copyOf(list, size + count);
+				
+				for(int i = 0; i < count; i++) {
+					list[size++] = firstItem[firstProduction[item] + i];
+				}
+			}
+			
+			// Count the items of each symbol.
+			int[] symbolMarks = marks.symbols;
+			int[] symbolGroups = marks.groups;
+			int mark = ++marks.mark;
+			int[] groupSymbol = new int[8];
+			int[] groupSize = new int[8];
+			int groups = 0;
+			
+			for(int i = 0; i < size; i++) {
+				int symbol = itemSymbol[list[i]];
+				if(symbol < 0) continue;
+				
+				if(symbolMarks[symbol] != mark) {
+					symbolMarks[symbol] = mark;
+					symbolGroups[symbol] = groups;
+					groupSymbol = grow(groupSymbol, groups + 1);
+					groupSize = grow(groupSize, groups + 1);
+					groupSymbol[groups] = symbol;
+					groupSize[groups++] = 0;
+				}
+				
+				groupSize[symbolGroups[symbol]]++;
+			}
+			
+			int[][] next = new int[groups][];
+			for(int i = 0; i < groups; i++) {
+				next[i] = new int[groupSize[i]];
+				groupSize[i] = 0;
+			}
+			
+			for(int i = 0; i < size; i++) {
+				int symbol = itemSymbol[list[i]];
+				if(symbol < 0) continue;
+				
+				int group = symbolGroups[symbol];
+				next[group][groupSize[group]++] = list[i] + 1;
+			}
+			
+			state.next = new KernelState[groups];
+			state.nextKernels = next;
+			for(int i = 0; i < groups; i++) {
+				ItemSet key = new ItemSet(next[i]);
+				KernelState found = stateIds.get(key);
+				if(found == null) {
+					KernelState created = new KernelState(next[i], groupSymbol[i]);
+					found = stateIds.putIfAbsent(key, created);
+					if(found == null) found = created;
+				}
+				
+				state.next[i] = found;
+			}
+		}
 		
-		Set<String> searched = new HashSet<>();
-		List<Item> search = new ArrayList<>();
+		/**
+		 * Returns the grammar item after the dot of a LR item or -1 if the next symbol is not a grammar item.
+		 */
+		private int nextItem(int item) {
+			int symbol = itemSymbol[item];
+			if(symbol < 0) return -1;
+			
+			if(symbolItem[symbol] == -2) {
+				int id = getItem(symbols.get(symbol).value());
+				symbolItem[symbol] = id;
+			}
+			
+			return symbolItem[symbol];
+		}
 		
-		{
-			Item i = grammar.getItem(startGroupName);
+		/**
+		 * Returns the rule list of a LR item. The rule lists are shared between all states.
+		 */
+		private IRuleList getRules(int item) {
+			int production = itemProduction[item];
+			int dot = item - firstItem[production];
+			if(dot == 0) return productions.get(production);
 			
-			if(i == null)
-				throw new GrammarException("Failed to create entry set. Item '" + startGroupName + "' does not exist!");
+			if(itemRules[item] == null) {
+				IRuleList rl = productions.get(production).clone();
+				rl.index = dot;
+				itemRules[item] = rl;
+			}
 			
-			search.add(i);
-			searched.add(startGroupName);
+			return itemRules[item];
 		}
 		
-		while(!search.isEmpty()) {
-			Item item = search.get(0);
-			search.remove(0);
+		private int getItem(String name) {
+			Integer id = itemIds.get(name);
+			if(id != null) return id;
 			
-			state.addAll(item);
+			IItem item = getGrammarItem(name);
+			id = items.size();
+			itemIds.put(name, id);
+			items.add(item);
 			
-			for(RuleList set : item.getRules()) {
-				if(set.isEmpty()) continue;
-					
-				Rule rule = set.get(0);
-				if(rule instanceof ItemRule) {
-					if(!rule.toString().startsWith("token")) {
-						if(!searched.contains(rule.value())) {
-							Item i = grammar.getItem(rule.value());
-							
-							if(i == null) {
-								throw new GrammarException("Failed to create entry set. Item '" + rule.value() + "' does not exist!");
-							}
-							
-							search.add(i);
-							searched.add(rule.value());
-						}
-					}
-				}
+			for(IRuleList rl : item.list) addProduction(rl);
+			firstProduction = grow(firstProduction, id + 2);
+			firstProduction[id + 1] = productions.size();
+			return id;
+		}
+		
+		private void addProduction(IRuleList rl) {
+			int id = productions.size();
+			productions.add(rl);
+			firstItem = grow(firstItem, id + 1);
+			firstItem[id] = itemCount;
+			
+			int size = itemCount + rl.size() + 1;
+			itemProduction = grow(itemProduction, size);
+			itemSymbol = grow(itemSymbol, size);
+			if(itemRules.length < size) itemRules = Arrays.copyOf(itemRules, Math.max(size, itemRules.length * 2));
+			
+			for(int dot = 0; dot <= rl.size(); dot++) {
+				itemProduction[itemCount] = id;
+				itemSymbol[itemCount] = (dot < rl.size()) ? getSymbol(rl.get(dot)):-1;
+				itemCount++;
 			}
 		}
 		
-		return state.accept();
+		private int getSymbol(IRule rule) {
+			Integer id = symbolIds.get(rule);
+			if(id != null) return id;
+			
+			id = symbols.size();
+			symbolIds.put(rule, id);
+			symbols.add(rule);
+			
+			symbolItem = grow(symbolItem, id + 1);
+			symbolItem[id] = (rule.type() == IType.ITEM) ? -2:-1;
+			return id;
+		}
+		
+		private int[] grow(int[] array, int size) {
+			if(array.length >= size) return array;
+			return Arrays.copyOf(array, Math.max(size, array.length * 2));
+		}
 	}
 	
 	private IItem getGrammarItem(String name) {
@@ -440,7 +1275,7 @@ public class GLRParserGenerator {
 		}
 		
 		public boolean hasItem(String name) {
-			return list.parallelStream().anyMatch(x -> x.name.equals(name));
+			return list.stream().anyMatch(x -> x.name.equals(name));
 		}
 		
 		public void addAll(Item item) {
@@ -483,22 +1318,27 @@ public class GLRParserGenerator {
 			return allRules.size();
 		}
 		
+		/**
+		 * The hash code only depends on the action and the kernel rules. The order of
+		 * the rules is ignored because the same kernel can be reached in any order.
+		 */
+		@Override
+		public int hashCode() {
+			int hash = Objects.hashCode(action);
+			for(IRuleList rl : rules) hash += rl.hashCode();
+			return hash;
+		}
+		
 		@Override
 		public boolean equals(Object obj) {
 			if(!(obj instanceof IState)) return false;
 			IState state = (IState)obj;
 			
-			if(!action.equals(state.action)) return false;
+			if(!Objects.equals(action, state.action)) return false;
 			if(rules.size() != state.rules.size()) return false;
 			
 			// We only need to compare the rules because all the items are computed from the rules list.
-			for(int i = 0; i < rules.size(); i++) {
-				IRuleList a = rules.get(i);
-				IRuleList b = state.rules.get(i);
-				if(!a.equals(b)) return false;
-			}
-			
-			return true;
+			return new HashSet<>(rules).equals(new HashSet<>(state.rules));
 		}
 		
 		public String getName() {
@@ -572,6 +1412,15 @@ public class GLRParserGenerator {
 			rules = new ArrayList<>(list.rules);
 		}
 		
+		/**
+		 * Create a rule list that was loaded by {@link TableFormat}.
+		 */
+		IRuleList(String itemName, List<IRule> rules, int index) {
+			this.itemName = itemName;
+			this.rules = rules;
+			this.index = index;
+		}
+		
 		public int size() { return rules.size(); }
 		public IRule get(int index) { return rules.get(index); }
 		
@@ -588,6 +1437,10 @@ public class GLRParserGenerator {
 			return copy;
 		}
 		
+		public int hashCode() {
+			return (itemName.hashCode() * 31 + rules.hashCode()) * 31 + index;
+		}
+		
 		public boolean equals(Object obj) {
 			if(!(obj instanceof IRuleList)) return false;
 			IRuleList set = (IRuleList)obj;
@@ -626,9 +1479,43 @@ public class GLRParserGenerator {
 	}
 	
 	public enum IType { ITEM, TOKEN, STRING, REGEX, SPECIAL, INVALID }
+	
+	/**
+	 * The lookaheads that are used to filter the reductions of a table.
+	 */
+	public enum TableType {
+		/**
+		 * Every reduction is tried and the parser backtracks when it fails.
+		 */
+		LR0,
+		
+		/**
+		 * Reductions are only done if the next token is inside the FOLLOW set of the item.
+		 */
+		SLR1,
+		
+		/**
+		 * Reductions are only done if the next token is a LALR(1) lookahead of the rule.
+		 */
+		LALR1,
+		
+		/**
+		 * The states are split by their LR(1) lookaheads. This creates the most precise
+		 * table but it can contain many more states.
+		 */
+		LR1
+	}
+	
 	public class IRule {
 		private IType type = IType.INVALID;
 		private String value = null;
+		private boolean imported;
+		
+		// The compiled pattern of a regex rule
+		private Pattern pattern;
+		
+		// The group id of a imported token or -1 if it was not resolved
+		private int groupId = -1;
 		
 		private IRule(Rule rule) {
 			value = rule.value();
@@ -637,14 +1524,39 @@ public class GLRParserGenerator {
 				
 				if(item instanceof ItemToken) {
 					type = IType.TOKEN;
+					imported = ((ItemToken)item).isImported();
+					resolveGroupId();
 				} else {
 					type = IType.ITEM;
 				}
 			} else if(rule instanceof StringRule) type = IType.STRING;
-			else if(rule instanceof RegexRule) type = IType.REGEX;
+			else if(rule instanceof RegexRule) {
+				type = IType.REGEX;
+				pattern = ((RegexRule)rule).getPattern();
+			}
 			else if(rule instanceof SpecialRule) type = IType.SPECIAL;
 			else throw new GrammarException("Invalid group type -> " + rule.getClass());
 		}
+		
+		/**
+		 * Create a rule that was loaded by {@link TableFormat}.
+		 */
+		IRule(IType type, String value, boolean imported) {
+			this.type = type;
+			this.value = value;
+			this.imported = imported;
+			resolveGroupId();
+		}
+		
+		private void resolveGroupId() {
+			if(imported && tokenizer != null) {
+				groupId = tokenizer.getGroupId(value);
+				
+				if(groupId < 0) {
+					throw new GrammarException("The imported token '" + value + "' does not exist in the tokenizer");
+				}
+			}
+		}
 
 		public boolean isItemType() {
 			return type == IType.ITEM || type == IType.TOKEN;
@@ -654,6 +1566,30 @@ public class GLRParserGenerator {
 			return type == IType.TOKEN;
 		}
 		
+		/**
+		 * Returns true if this is a token imported from the tokenizer.
+		 */
+		public boolean isImported() {
+			return imported;
+		}
+		
+		/**
+		 * Returns the group id of this imported token or -1 if it was not resolved.
+		 */
+		public int groupId() {
+			return groupId;
+		}
+		
+		/**
+		 * Returns the pattern of this regex rule. Rules that was loaded by {@link TableFormat}
+		 * compiles their pattern the first time this method is called.
+		 */
+		public Pattern pattern() {
+			if(type != IType.REGEX) return null;
+			if(pattern == null) pattern = Pattern.compile(value);
+			return pattern;
+		}
+		
 		public Item asItem() { return grammar.getItem(value); }
 		
 		public IType type() { return type; }
@@ -0,0 +1,57 @@
+package hardcoded.parser;
+
+import java.io.PrintStream;
+
+import hardcoded.parser.GLRParserGenerator.IConflict;
+import hardcoded.parser.GLRParserGenerator.ITable;
+
+/**
+ * Receives the steps of a {@link GLRParserGenerator}. A listener is installed with
+ * {@link GLRParserGenerator#setListener} and every method does nothing by default.
+ * 
+ * @author HardCoded
+ */
+public interface GeneratorListener {
+	/**
+	 * Called when the states of the grammar has been created.
+	 * 
+	 * @param count the number of states.
+	 */
+	default void states(int count) {}
+	
+	/**
+	 * Called when a table has been generated or loaded.
+	 * 
+	 * @param table the table of the parser.
+	 */
+	default void table(ITable table) {}
+	
+	/**
+	 * Called for each conflict that is left inside a table.
+	 * 
+	 * @param conflict the conflict.
+	 */
+	default void conflict(IConflict conflict) {}
+	
+	/**
+	 * Returns a listener that prints every event.
+	 * 
+	 * @param out the stream to print to.
+	 */
+	static GeneratorListener print(PrintStream out) {
+		return new GeneratorListener() {
+			public void states(int count) {
+				out.println("States: " + count);
+			}
+			
+			public void table(ITable table) {
+				out.println(table);
+				out.println();
+			}
+			
+			public void conflict(IConflict conflict) {
+				out.println("Conflict: " + conflict);
+			}
+		};
+	}
+}
@@ -0,0 +1,1148 @@
+package hardcoded.parser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import javax.lang.model.SourceVersion;
+
+import hardcoded.grammar.Grammar.*;
+import hardcoded.lexer.Tokenizer;
+import hardcoded.lexer.TokenizerTables;
+import hardcoded.parser.GLRParserGenerator.*;
+
+/**
+ * This class will create the Java source of a parser that does not need a {@link ITable}.<br><br>
+ * 
+ * The generated class contains a switch statement for the shifts and gotos of every state
+ * and the terminals of a token are matched by inlined comparisons instead of table lookups.
+ * The reductions of each state are packed into string constants that are read when the
+ * class is loaded. The input is parsed in the same way as {@link GLRParser#parseForest}
+ * and the generated class can either return the {@link hardcoded.tree.ParseForest} or call
+ * a typed method of its {@code Actions} interface for each production of the first parse tree.<br><br>
+ * 
+ * If a tokenizer is set with {@link #setTokenizer} the transitions and accepting groups of its
+ * automaton are written into the class together with a lexer that matches the input in the same
+ * way as the {@link Tokenizer.Strategy#AUTOMATON} strategy. The class can then parse bytes without
+ * the runtime {@link Tokenizer}, but it still creates {@link hardcoded.lexer.Token} objects.
+ * Without a tokenizer the class only parses the token chains created by the runtime tokenizer.
+ * 
+ * @author HardCoded
+ */
+public class JavaParserGenerator {
+	/**
+	 * The largest number of states that is dispatched by a single switch statement.
+	 * Methods inside a class file can not be larger than 64 kilobytes.
+	 */
+	private static final int BLOCK_SIZE = 1024;
+	
+	/**
+	 * The largest number of characters inside a single string constant.
+	 */
+	private static final int CHUNK_SIZE = 4096;
+	
+	/**
+	 * The packed values are shifted so that small values are printable characters.
+	 */
+	private static final int OFFSET = 32;
+	
+	private final String packageName;
+	private final String className;
+	private Tokenizer tokenizer;
+	
+	/**
+	 * Create a generator for a class.
+	 * 
+	 * @param packageName the package of the class or a empty string for the default package.
+	 * @param className the name of the class.
+	 */
+	public JavaParserGenerator(String packageName, String className) {
+		if(packageName == null) throw new NullPointerException("The package name was null.");
+		if(className == null) throw new NullPointerException("The class name was null.");
+		if(!packageName.isEmpty() && !SourceVersion.isName(packageName)) throw new IllegalArgumentException("The package name '" + packageName + "' is not valid");
+		if(!SourceVersion.isIdentifier(className) || SourceVersion.isKeyword(className)) throw new IllegalArgumentException("The class name '" + className + "' is not valid");
+		
+		this.packageName = packageName;
+		this.className = className;
+	}
+	
+	/**
+	 * Set the tokenizer whose automaton is written into the generated class.
+	 * 
+	 * @param tokenizer the tokenizer or null if the class should not contain a lexer.
+	 * @return this generator.
+	 */
+	public JavaParserGenerator setTokenizer(Tokenizer tokenizer) {
+		this.tokenizer = tokenizer;
+		return this;
+	}
+	
+	public Tokenizer getTokenizer() {
+		return tokenizer;
+	}
+	
+	/**
+	 * Write the source of a parser into a source folder.
+	 * 
+	 * @param parser the parser.
+	 * @param directory the source folder.
+	 * @return the path of the written file.
+	 * @throws IOException if the file could not be written.
+	 * @throws IllegalStateException if the rules of the tokenizer could not be compiled into a automaton.
+	 */
+	public Path write(GLRParser parser, Path directory) throws IOException {
+		Path folder = packageName.isEmpty() ? directory:directory.resolve(packageName.replace('.', '/'));
+		Files.createDirectories(folder);
+		
+		Path path = folder.resolve(className + ".java");
+		Files.write(path, generate(parser).getBytes(StandardCharsets.UTF_8));
+		return path;
+	}
+	
+	/**
+	 * Generate the source of a parser.
+	 * 
+	 * @param parser the parser.
+	 * @return the source of the class.
+	 * @throws IllegalStateException if the rules of the tokenizer could not be compiled into a automaton.
+	 */
+	public String generate(GLRParser parser) {
+		return new Source(parser.getTable(), tokenizer == null ? null:tokenizer.getTables()).build();
+	}
+	
+	/**
+	 * The state of a single call to {@link JavaParserGenerator#generate}.
+	 */
+	private final class Source {
+		private final StringBuilder sb = new StringBuilder();
+		private final ITable table;
+		private final int states;
+		
+		// The automaton of the inlined lexer or null if the class does not contain a lexer.
+		private final TokenizerTables lexer;
+		
+		// The productions in the order they are reduced by the states.
+		private final Map<IRuleList, Integer> productionIds = new LinkedHashMap<>();
+		private final List<IAction> productions = new ArrayList<>();
+		private final List<String> methods = new ArrayList<>();
+		
+		// The item names used by the productions.
+		private final List<String> names = new ArrayList<>();
+		private final List<Pattern> patterns = new ArrayList<>();
+		
+		private Source(ITable table, TokenizerTables lexer) {
+			this.table = table;
+			this.states = table.rows.size();
+			this.lexer = lexer;
+			
+			Set<String> used = new HashSet<>();
+			used.add("token");
+			
+			Map<String, Integer> counts = new HashMap<>();
+			for(int state = 0; state < states; state++) {
+				for(IAction action : table.getReductions(state)) {
+					if(productionIds.containsKey(action.rl)) continue;
+					productionIds.put(action.rl, productions.size());
+					productions.add(action);
+					
+					String itemName = action.rl.itemName;
+					if(!names.contains(itemName)) names.add(itemName);
+					
+					int count = counts.getOrDefault(itemName, 0);
+					counts.put(itemName, count + 1);
+					
+					String method = identifier(itemName) + "_" + count;
+					while(!used.add(method)) method += "_";
+					methods.add(method);
+				}
+			}
+			
+			if(!names.contains(table.acceptItem())) names.add(table.acceptItem());
+		}
+		
+		private String build() {
+			if(!packageName.isEmpty()) {
+				line(0, "package " + packageName + ";");
+				line(0, "");
+			}
+			
+			if(lexer != null) {
+				line(0, "import java.nio.ByteBuffer;");
+				line(0, "import java.nio.charset.StandardCharsets;");
+			}
+			
+			line(0, "import java.util.*;");
+			line(0, "import java.util.regex.Pattern;");
+			line(0, "");
+			line(0, "import hardcoded.errors.grammar.ParserException;");
+			if(lexer != null) line(0, "import hardcoded.lexer.LineIndex;");
+			line(0, "import hardcoded.lexer.Token;");
+			line(0, "import hardcoded.tree.ParseForest;");
+			line(0, "import hardcoded.tree.ParseForest.Node;");
+			line(0, "");
+			line(0, "/**");
+			line(0, " * A parser for the item '" + comment(table.acceptItem()) + "' that was generated from a " + table.getType() + " table with " + states + " states.<br>");
+			if(lexer == null) {
+				line(0, " * The tokens must be created by {@code hardcoded.lexer.Tokenizer} because this class does not contain a lexer.<br>");
+			} else {
+				line(0, " * The bytes are split into tokens by a lexer automaton with " + lexer.states() + " states.<br>");
+			}
+			
+			line(0, " * This class was generated by {@code " + JavaParserGenerator.class.getName() + "} and should not be edited.");
+			line(0, " */");
+			line(0, "public final class " + className + " {");
+			appendActions();
+			appendConstants();
+			if(lexer != null) appendLexer();
+			appendTerminals();
+			appendDispatch("action", "terminal", table.terminals, table.actionTable);
+			appendDispatch("goTo", "item", table.nonterminals, table.gotoTable);
+			appendParser();
+			appendResults();
+			line(0, "}");
+			
+			return sb.toString();
+		}
+		
+		private void appendActions() {
+			line(1, "/**");
+			line(1, " * The methods that are called for each production of the first parse tree of the input.");
+			line(1, " */");
+			line(1, "public interface Actions<T> {");
+			line(2, "/**");
+			line(2, " * Returns the value of a token.");
+			line(2, " */");
+			line(2, "T token(Token token);");
+			
+			for(int i = 0; i < productions.size(); i++) {
+				IRuleList rl = productions.get(i).rl;
+				StringBuilder parameters = new StringBuilder();
+				for(int j = 0; j < rl.size(); j++) {
+					if(j > 0) parameters.append(", ");
+					parameters.append("T a").append(j);
+				}
+				
+				line(2, "");
+				line(2, "/**");
+				line(2, " * " + comment(rl.itemName) + " -> " + comment(rl.rules.stream().map(this::describe).reduce((a, b) -> a + " " + b).orElse("")));
+				line(2, " */");
+				line(2, "T " + methods.get(i) + "(" + parameters + ");");
+			}
+			
+			line(1, "}");
+			line(1, "");
+		}
+		
+		private void appendConstants() {
+			List<Integer> data = new ArrayList<>();
+			data.add(productions.size());
+			for(IAction action : productions) {
+				data.add(names.indexOf(action.rl.itemName));
+				data.add(action.item);
+				data.add(action.symbols.length);
+				for(int symbol : action.symbols) data.add(symbol == Integer.MIN_VALUE ? (int)Short.MIN_VALUE:symbol);
+			}
+			
+			data.add(states);
+			for(int state = 0; state < states; state++) {
+				IAction[] reductions = table.getReductions(state);
+				data.add(reductions.length);
+				
+				for(IAction action : reductions) {
+					data.add(productionIds.get(action.rl));
+					if(action.lookahead == null) {
+						data.add(-1);
+					} else {
+						data.add(action.lookahead.cardinality());
+						action.lookahead.stream().forEach(data::add);
+					}
+				}
+			}
+			
+			line(1, "private static final int[] END_OF_INPUT = { " + table.terminals + " };");
+			line(1, "private static final int[] NO_TERMINALS = {};");
+			line(1, "");
+			line(1, "// The names of the items.");
+			line(1, "private static final String[] NAMES = {");
+			for(int i = 0; i < names.size(); i++) {
+				line(2, literal(names.get(i)) + (i + 1 < names.size() ? ",":""));
+			}
+			
+			line(1, "};");
+			line(1, "");
+			line(1, "// The index of the name of the accepted item.");
+			line(1, "private static final int ACCEPT = " + names.indexOf(table.acceptItem()) + ";");
+			line(1, "");
+			line(1, "// The name, nonterminal id and symbol ids of each production.");
+			line(1, "private static final int[] PRODUCTION_NAME;");
+			line(1, "private static final int[] PRODUCTION_ITEM;");
+			line(1, "private static final int[][] PRODUCTION_SYMBOLS;");
+			line(1, "");
+			line(1, "// The productions that are reduced inside each state and the terminals that can follow them.");
+			line(1, "private static final int[][] REDUCTIONS;");
+			line(1, "private static final BitSet[][] LOOKAHEADS;");
+			line(1, "");
+			line(1, "static {");
+			appendUnpack(data, "The table is too large to be generated");
+			line(2, "");
+			line(2, "int index = 0;");
+			line(2, "PRODUCTION_NAME = new int[data[index++]];");
+			line(2, "PRODUCTION_ITEM = new int[PRODUCTION_NAME.length];");
+			line(2, "PRODUCTION_SYMBOLS = new int[PRODUCTION_NAME.length][];");
+			line(2, "for(int i = 0; i < PRODUCTION_NAME.length; i++) {");
+			line(3, "PRODUCTION_NAME[i] = data[index++];");
+			line(3, "PRODUCTION_ITEM[i] = data[index++];");
+			line(3, "PRODUCTION_SYMBOLS[i] = Arrays.copyOfRange(data, index + 1, index + 1 + data[index]);");
+			line(3, "index += 1 + data[index];");
+			line(2, "}");
+			line(2, "");
+			line(2, "REDUCTIONS = new int[data[index++]][];");
+			line(2, "LOOKAHEADS = new BitSet[REDUCTIONS.length][];");
+			line(2, "for(int i = 0; i < REDUCTIONS.length; i++) {");
+			line(3, "REDUCTIONS[i] = new int[data[index++]];");
+			line(3, "LOOKAHEADS[i] = new BitSet[REDUCTIONS[i].length];");
+			line(3, "for(int j = 0; j < REDUCTIONS[i].length; j++) {");
+			line(4, "REDUCTIONS[i][j] = data[index++];");
+			line(4, "");
+			line(4, "int count = data[index++];");
+			line(4, "if(count < 0) continue;");
+			line(4, "");
+			line(4, "LOOKAHEADS[i][j] = new BitSet();");
+			line(4, "for(int k = 0; k < count; k++) LOOKAHEADS[i][j].set(data[index++]);");
+			line(3, "}");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static int[] unpack(String... parts) {");
+			line(2, "int length = 0;");
+			line(2, "for(String part : parts) length += part.length();");
+			line(2, "");
+			line(2, "int[] data = new int[length];");
+			line(2, "int index = 0;");
+			line(2, "for(String part : parts) {");
+			line(3, "for(int i = 0; i < part.length(); i++) data[index++] = (short)(part.charAt(i) - " + OFFSET + ");");
+			line(2, "}");
+			line(2, "");
+			line(2, "return data;");
+			line(1, "}");
+			line(1, "");
+		}
+		
+		/**
+		 * Write a statement that unpacks the values into the local variable {@code data}.
+		 * 
+		 * @param message the message of the exception that is thrown if a value does not fit inside a short.
+		 */
+		private void appendUnpack(List<Integer> data, String message) {
+			line(2, "int[] data = unpack(");
+			
+			StringBuilder packed = new StringBuilder();
+			for(int value : data) {
+				if(value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+					throw new IllegalArgumentException(message);
+				}
+				
+				packed.append((char)(value + OFFSET));
+			}
+			
+			for(int i = 0; i < packed.length(); i += CHUNK_SIZE) {
+				String chunk = packed.substring(i, Math.min(packed.length(), i + CHUNK_SIZE));
+				line(3, literal(chunk) + (i + CHUNK_SIZE < packed.length() ? ",":""));
+			}
+			
+			line(2, ");");
+		}
+		
+		/**
+		 * Write the automaton of the tokenizer and a lexer that matches the input in the same way
+		 * as {@link Tokenizer#parseBuffer}. The transitions of each state are packed as runs of
+		 * bytes that go to the same state because most bytes of a state has no transition.
+		 */
+		private void appendLexer() {
+			List<Integer> data = new ArrayList<>();
+			data.add(lexer.states());
+			for(int state = 0; state < lexer.states(); state++) {
+				data.add(lexer.accept(state));
+				
+				int index = data.size();
+				data.add(0);
+				for(int first = 0; first < 256;) {
+					int target = lexer.next(state, first);
+					int last = first;
+					while(last + 1 < 256 && lexer.next(state, last + 1) == target) last++;
+					
+					if(target >= 0) {
+						data.add(first);
+						data.add(last);
+						data.add(target);
+						data.set(index, data.get(index) + 1);
+					}
+					
+					first = last + 1;
+				}
+			}
+			
+			line(1, "// The name and discard flag of each group id offset by one so that the id -1 is the first element.");
+			line(1, "private static final String[] GROUP_NAMES = {");
+			for(int id = -1; id < lexer.groups(); id++) {
+				String name = lexer.name(id);
+				line(2, (name == null ? "null":literal(name)) + (id + 1 < lexer.groups() ? ",":""));
+			}
+			
+			line(1, "};");
+			line(1, "");
+			
+			StringBuilder discards = new StringBuilder();
+			for(int id = -1; id < lexer.groups(); id++) {
+				if(id > -1) discards.append(", ");
+				discards.append(lexer.isDiscard(id));
+			}
+			
+			line(1, "private static final boolean[] GROUP_DISCARDS = { " + discards + " };");
+			line(1, "private static final int DEFAULT_GROUP = " + lexer.getDefaultId() + ";");
+			line(1, "private static final boolean AUTO_DISCARD = " + lexer.hasAutoDiscard() + ";");
+			line(1, "private static final int TAB_WIDTH = " + lexer.getTabWidth() + ";");
+			line(1, "");
+			line(1, "// The next state of the state s for the byte c is found at LEXER_NEXT[(s << 8) | c] and -1 means that there is no transition.");
+			line(1, "private static final int[] LEXER_NEXT;");
+			line(1, "");
+			line(1, "// The group id each state accepts or -1 if the state does not accept.");
+			line(1, "private static final int[] LEXER_ACCEPT;");
+			line(1, "");
+			line(1, "static {");
+			appendUnpack(data, "The tokenizer is too large to be generated");
+			line(2, "");
+			line(2, "int index = 0;");
+			line(2, "LEXER_ACCEPT = new int[data[index++]];");
+			line(2, "LEXER_NEXT = new int[LEXER_ACCEPT.length << 8];");
+			line(2, "Arrays.fill(LEXER_NEXT, -1);");
+			line(2, "for(int i = 0; i < LEXER_ACCEPT.length; i++) {");
+			line(3, "LEXER_ACCEPT[i] = data[index++];");
+			line(3, "");
+			line(3, "int count = data[index++];");
+			line(3, "for(int j = 0; j < count; j++) {");
+			line(4, "int first = data[index++];");
+			line(4, "int last = data[index++];");
+			line(4, "Arrays.fill(LEXER_NEXT, (i << 8) | first, ((i << 8) | last) + 1, data[index++]);");
+			line(3, "}");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static final class LexerToken extends Token {");
+			line(2, "private LexerToken(byte[] bytes, int groupId, int offset, int length, LineIndex lines) {");
+			line(3, "super(new String(bytes, offset, length, StandardCharsets.ISO_8859_1), GROUP_NAMES[groupId + 1]);");
+			line(3, "this.groupId = groupId;");
+			line(3, "this.fileOffset = offset;");
+			line(3, "this.lines = lines;");
+			line(2, "}");
+			line(2, "");
+			line(2, "private void addTo(List<Token> tokens) {");
+			line(3, "if(!tokens.isEmpty()) {");
+			line(4, "LexerToken last = (LexerToken)tokens.get(tokens.size() - 1);");
+			line(4, "last.next = this;");
+			line(4, "prev = last;");
+			line(3, "}");
+			line(3, "");
+			line(3, "tokens.add(this);");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+			line(1, "/**");
+			line(1, " * Split bytes into tokens. Each token is the longest match of the automaton and if two groups");
+			line(1, " * matched the same length the group that was added first to the tokenizer is used. Bytes that");
+			line(1, " * did not match are combined into tokens of the default group.");
+			line(1, " * ");
+			line(1, " * @param bytes the input.");
+			line(1, " * @return the tokens linked together in the order they were read.");
+			line(1, " */");
+			line(1, "public static List<Token> tokenize(byte[] bytes) {");
+			line(2, "if(bytes == null) throw new NullPointerException(\"The bytes was null.\");");
+			line(2, "");
+			line(2, "LineIndex lines = new LineIndex(ByteBuffer.wrap(bytes), TAB_WIDTH);");
+			line(2, "List<Token> tokens = new ArrayList<>();");
+			line(2, "int unmatched = -1;");
+			line(2, "int index = 0;");
+			line(2, "");
+			line(2, "while(index < bytes.length) {");
+			line(3, "int state = 0;");
+			line(3, "int group = -1;");
+			line(3, "int length = 0;");
+			line(3, "for(int i = index; i < bytes.length; i++) {");
+			line(4, "state = LEXER_NEXT[(state << 8) | (bytes[i] & 0xff)];");
+			line(4, "if(state < 0) break;");
+			line(4, "");
+			line(4, "if(LEXER_ACCEPT[state] >= 0) {");
+			line(5, "group = LEXER_ACCEPT[state];");
+			line(5, "length = i + 1 - index;");
+			line(4, "}");
+			line(3, "}");
+			line(3, "");
+			line(3, "if(length == 0) {");
+			line(4, "if(unmatched < 0) unmatched = index;");
+			line(4, "index++;");
+			line(4, "continue;");
+			line(3, "}");
+			line(3, "");
+			line(3, "if(unmatched >= 0) {");
+			line(4, "new LexerToken(bytes, DEFAULT_GROUP, unmatched, index - unmatched, lines).addTo(tokens);");
+			line(4, "unmatched = -1;");
+			line(3, "}");
+			line(3, "");
+			line(3, "if(!AUTO_DISCARD || !GROUP_DISCARDS[group + 1]) {");
+			line(4, "new LexerToken(bytes, group, index, length, lines).addTo(tokens);");
+			line(3, "}");
+			line(3, "");
+			line(3, "index += length;");
+			line(2, "}");
+			line(2, "");
+			line(2, "if(unmatched >= 0) {");
+			line(3, "new LexerToken(bytes, DEFAULT_GROUP, unmatched, index - unmatched, lines).addTo(tokens);");
+			line(2, "}");
+			line(2, "");
+			line(2, "return tokens;");
+			line(1, "}");
+			line(1, "");
+		}
+		
+		private void appendTerminals() {
+			Map<String, List<Integer>> values = new LinkedHashMap<>();
+			Map<String, List<Integer>> groups = new LinkedHashMap<>();
+			List<String> conditions = new ArrayList<>();
+			List<Integer> tokens = new ArrayList<>();
+			
+			for(int id = 0; id < table.terminals; id++) {
+				IRule rule = table.terminalRules[id];
+				
+				if(rule.isImported()) {
+					groups.computeIfAbsent(rule.value(), key -> new ArrayList<>()).add(id);
+				} else if(rule.isItemToken()) {
+					List<String> matches = new ArrayList<>();
+					for(RuleList set : rule.asItem().getRules()) {
+						// Only the first rule of a token is matched in the same way as GLRParser.
+						if(set.getRules().isEmpty()) continue;
+						
+						Rule first = set.getRules().get(0);
+						if(first instanceof StringRule) {
+							matches.add("value.equals(" + literal(first.value()) + ")");
+						} else if(first instanceof RegexRule) {
+							matches.add("PATTERN_" + patterns.size() + ".matcher(value).matches()");
+							patterns.add(((RegexRule)first).getPattern());
+						}
+					}
+					
+					if(matches.isEmpty()) continue;
+					conditions.add(String.join(" || ", matches));
+					tokens.add(id);
+				} else if(rule.type() == IType.REGEX) {
+					conditions.add("PATTERN_" + patterns.size() + ".matcher(value).matches()");
+					patterns.add(rule.pattern());
+					tokens.add(id);
+				} else {
+					values.computeIfAbsent(rule.value(), key -> new ArrayList<>()).add(id);
+				}
+			}
+			
+			for(int i = 0; i < patterns.size(); i++) {
+				Pattern pattern = patterns.get(i);
+				line(1, "private static final Pattern PATTERN_" + i + " = Pattern.compile(" + literal(pattern.pattern()) + ", " + pattern.flags() + ");");
+				if(i + 1 == patterns.size()) line(1, "");
+			}
+			
+			line(1, "/**");
+			line(1, " * Returns the terminal ids that matches the value of a token in increasing order.");
+			line(1, " */");
+			line(1, "private static int[] valueTerminals(String value) {");
+			line(2, "int[] result;");
+			line(2, "switch(value) {");
+			for(Map.Entry<String, List<Integer>> entry : values.entrySet()) {
+				line(3, "case " + literal(entry.getKey()) + ": result = new int[] { " + join(entry.getValue()) + " }; break;");
+			}
+			
+			line(3, "default: result = NO_TERMINALS;");
+			line(2, "}");
+			line(2, "");
+			for(int i = 0; i < tokens.size(); i++) {
+				line(2, "if(" + conditions.get(i) + ") result = union(result, new int[] { " + tokens.get(i) + " });");
+			}
+			
+			if(!tokens.isEmpty()) line(2, "");
+			line(2, "return result;");
+			line(1, "}");
+			line(1, "");
+			line(1, "/**");
+			line(1, " * Returns the terminal ids that matches the group of a token in increasing order.");
+			line(1, " */");
+			line(1, "private static int[] groupTerminals(String group) {");
+			line(2, "switch(group) {");
+			for(Map.Entry<String, List<Integer>> entry : groups.entrySet()) {
+				line(3, "case " + literal(entry.getKey()) + ": return new int[] { " + join(entry.getValue()) + " };");
+			}
+			
+			line(3, "default: return NO_TERMINALS;");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static int[] terminals(Token token, Map<String, int[]> values, Map<String, int[]> groups) {");
+			line(2, "int[] result = values.computeIfAbsent(token.toString(), " + className + "::valueTerminals);");
+			line(2, "if(token.group() != null) result = union(result, groups.computeIfAbsent(token.group(), " + className + "::groupTerminals));");
+			line(2, "return result;");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static int[] union(int[] a, int[] b) {");
+			line(2, "if(a.length == 0) return b;");
+			line(2, "if(b.length == 0) return a;");
+			line(2, "");
+			line(2, "int[] result = new int[a.length + b.length];");
+			line(2, "int i = 0, j = 0, k = 0;");
+			line(2, "while(i < a.length || j < b.length) {");
+			line(3, "if(j >= b.length || (i < a.length && a[i] < b[j])) {");
+			line(4, "result[k++] = a[i++];");
+			line(3, "} else {");
+			line(4, "result[k++] = b[j++];");
+			line(3, "}");
+			line(2, "}");
+			line(2, "");
+			line(2, "return result;");
+			line(1, "}");
+			line(1, "");
+		}
+		
+		/**
+		 * Write a method that returns the next state of a state and a column or -1 if the cell is empty.
+		 */
+		private void appendDispatch(String name, String column, int columns, CellTable cells) {
+			List<Integer> used = new ArrayList<>();
+			for(int state = 0; state < states; state++) {
+				Map<Integer, List<Integer>> targets = new TreeMap<>();
+				for(int id = 0; id < columns; id++) {
+					int cell = cells.get(state, id);
+					if(cell >= 0) targets.computeIfAbsent(table.cells[cell][0].index, key -> new ArrayList<>()).add(id);
+				}
+				
+				if(targets.isEmpty()) continue;
+				used.add(state);
+				
+				line(1, "private static int " + name + state + "(int " + column + ") {");
+				line(2, "switch(" + column + ") {");
+				for(Map.Entry<Integer, List<Integer>> entry : targets.entrySet()) {
+					StringBuilder cases = new StringBuilder();
+					for(int id : entry.getValue()) cases.append("case ").append(id).append(": ");
+					line(3, cases + "return " + entry.getKey() + ";");
+				}
+				
+				line(3, "default: return -1;");
+				line(2, "}");
+				line(1, "}");
+				line(1, "");
+			}
+			
+			if(states <= BLOCK_SIZE) {
+				appendSwitch(name, name, column, used);
+				return;
+			}
+			
+			List<Integer> blocks = new ArrayList<>();
+			for(int block = 0; block * BLOCK_SIZE < states; block++) {
+				List<Integer> list = new ArrayList<>();
+				for(int state : used) {
+					if(state / BLOCK_SIZE == block) list.add(state);
+				}
+				
+				if(list.isEmpty()) continue;
+				appendSwitch(name + "Block" + block, name, column, list);
+				blocks.add(block);
+			}
+			
+			line(1, "private static int " + name + "(int state, int " + column + ") {");
+			line(2, "switch(state / " + BLOCK_SIZE + ") {");
+			for(int block : blocks) {
+				line(3, "case " + block + ": return " + name + "Block" + block + "(state, " + column + ");");
+			}
+			
+			line(3, "default: return -1;");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+		}
+		
+		private void appendSwitch(String method, String name, String column, List<Integer> used) {
+			line(1, "private static int " + method + "(int state, int " + column + ") {");
+			line(2, "switch(state) {");
+			for(int state : used) {
+				line(3, "case " + state + ": return " + name + state + "(" + column + ");");
+			}
+			
+			line(3, "default: return -1;");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+		}
+		
+		/**
+		 * Write the graph-structured stack parser. This is the same algorithm as the {@link TomitaParser}.
+		 */
+		private void appendParser() {
+			line(1, "private static final class Symbol {");
+			line(2, "private final List<Packed> alternatives = new ArrayList<>(1);");
+			line(2, "private final Token token;");
+			line(2, "private final int name;");
+			line(2, "private final int start;");
+			line(2, "private final int end;");
+			line(2, "");
+			line(2, "private Symbol(Token token, int name, int start, int end) {");
+			line(3, "this.token = token;");
+			line(3, "this.name = name;");
+			line(3, "this.start = start;");
+			line(3, "this.end = end;");
+			line(2, "}");
+			line(2, "");
+			line(2, "private void addAlternative(int production, Symbol[] children) {");
+			line(3, "for(Packed packed : alternatives) {");
+			line(4, "if(packed.production == production && Arrays.equals(packed.children, children)) return;");
+			line(3, "}");
+			line(3, "");
+			line(3, "alternatives.add(new Packed(production, children));");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static final class Packed {");
+			line(2, "private final int production;");
+			line(2, "private final Symbol[] children;");
+			line(2, "");
+			line(2, "private Packed(int production, Symbol[] children) {");
+			line(3, "this.production = production;");
+			line(3, "this.children = children;");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static final class StackNode {");
+			line(2, "private final int id;");
+			line(2, "private final int state;");
+			line(2, "private final int level;");
+			line(2, "private StackEdge edges;");
+			line(2, "");
+			line(2, "private StackNode(int id, int state, int level) {");
+			line(3, "this.id = id;");
+			line(3, "this.state = state;");
+			line(3, "this.level = level;");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static final class StackEdge {");
+			line(2, "private final StackNode target;");
+			line(2, "private final Symbol symbol;");
+			line(2, "private final StackEdge next;");
+			line(2, "private final int id;");
+			line(2, "");
+			line(2, "private StackEdge(StackNode target, Symbol symbol, int id, StackEdge next) {");
+			line(3, "this.target = target;");
+			line(3, "this.symbol = symbol;");
+			line(3, "this.next = next;");
+			line(3, "this.id = id;");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static final class Reduction {");
+			line(2, "private final StackNode node;");
+			line(2, "private final int production;");
+			line(2, "private final StackEdge first;");
+			line(2, "");
+			line(2, "private Reduction(StackNode node, int production, StackEdge first) {");
+			line(3, "this.node = node;");
+			line(3, "this.production = production;");
+			line(3, "this.first = first;");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static final class Parse {");
+			line(2, "private final StackNode root = new StackNode(0, 0, 0);");
+			line(2, "private final Deque<Reduction> reductions = new ArrayDeque<>();");
+			line(2, "private final int length;");
+			line(2, "");
+			line(2, "private Map<Integer, StackNode> frontier = new LinkedHashMap<>();");
+			line(2, "private Map<Long, Symbol> symbols = new HashMap<>();");
+			line(2, "private Set<Long> edges = new HashSet<>();");
+			line(2, "private boolean emptyEdges;");
+			line(2, "private int nodes = 1;");
+			line(2, "private int level;");
+			line(2, "");
+			line(2, "private int[] lookahead;");
+			line(2, "private Symbol accepted;");
+			line(2, "");
+			line(2, "private Parse(int length) {");
+			line(3, "this.length = length;");
+			line(3, "frontier.put(root.state, root);");
+			line(2, "}");
+			line(2, "");
+			line(2, "private void addReductions(StackNode node, StackEdge first) {");
+			line(3, "int[] productions = REDUCTIONS[node.state];");
+			line(3, "BitSet[] lookaheads = LOOKAHEADS[node.state];");
+			line(3, "for(int i = 0; i < productions.length; i++) {");
+			line(4, "if(isValid(lookaheads[i], lookahead)) reductions.add(new Reduction(node, productions[i], first));");
+			line(3, "}");
+			line(2, "}");
+			line(2, "");
+			line(2, "private void reduceAll(int[] lookahead) {");
+			line(3, "this.lookahead = lookahead;");
+			line(3, "if(!symbols.isEmpty()) symbols = new HashMap<>();");
+			line(3, "if(!edges.isEmpty()) edges = new HashSet<>();");
+			line(3, "emptyEdges = false;");
+			line(3, "for(StackNode node : frontier.values()) addReductions(node, null);");
+			line(3, "");
+			line(3, "while(!reductions.isEmpty()) {");
+			line(4, "Reduction reduction = reductions.poll();");
+			line(4, "Symbol[] children = new Symbol[PRODUCTION_SYMBOLS[reduction.production].length];");
+			line(4, "if(children.length == 0) {");
+			line(5, "if(reduction.first == null) reduced(reduction.node, reduction.production, children);");
+			line(5, "continue;");
+			line(4, "}");
+			line(4, "");
+			line(4, "if(reduction.first != null) {");
+			line(5, "reduce(reduction.first, reduction.production, children, children.length - 1);");
+			line(4, "} else {");
+			line(5, "for(StackEdge edge = reduction.node.edges; edge != null; edge = edge.next) {");
+			line(6, "reduce(edge, reduction.production, children, children.length - 1);");
+			line(5, "}");
+			line(4, "}");
+			line(3, "}");
+			line(2, "}");
+			line(2, "");
+			line(2, "private void reduce(StackEdge edge, int production, Symbol[] children, int index) {");
+			line(3, "if(edge.id != PRODUCTION_SYMBOLS[production][index]) return;");
+			line(3, "children[index] = edge.symbol;");
+			line(3, "");
+			line(3, "if(index == 0) {");
+			line(4, "reduced(edge.target, production, children.clone());");
+			line(4, "return;");
+			line(3, "}");
+			line(3, "");
+			line(3, "for(StackEdge next = edge.target.edges; next != null; next = next.next) {");
+			line(4, "reduce(next, production, children, index - 1);");
+			line(3, "}");
+			line(2, "}");
+			line(2, "");
+			line(2, "private void reduced(StackNode start, int production, Symbol[] children) {");
+			line(3, "int item = PRODUCTION_ITEM[production];");
+			line(3, "boolean accept = start == root && level == length && PRODUCTION_NAME[production] == ACCEPT;");
+			line(3, "int state = item < 0 ? -1:goTo(start.state, item);");
+			line(3, "if(state < 0 && !accept) return;");
+			line(3, "");
+			line(3, "long key = ((long)(item < 0 ? Integer.MAX_VALUE:item) << 32) | start.level;");
+			line(3, "Symbol symbol = symbols.get(key);");
+			line(3, "if(symbol == null) {");
+			line(4, "symbol = new Symbol(null, PRODUCTION_NAME[production], start.level, level);");
+			line(4, "symbols.put(key, symbol);");
+			line(3, "}");
+			line(3, "");
+			line(3, "symbol.addAlternative(production, children);");
+			line(3, "if(accept) accepted = symbol;");
+			line(3, "if(state < 0) return;");
+			line(3, "if(!edges.add(((long)state << 32) | start.id)) return;");
+			line(3, "if(start.level == level) emptyEdges = true;");
+			line(3, "");
+			line(3, "StackNode node = frontier.get(state);");
+			line(3, "if(node == null) {");
+			line(4, "node = new StackNode(nodes++, state, level);");
+			line(4, "node.edges = new StackEdge(start, symbol, ~item, null);");
+			line(4, "frontier.put(state, node);");
+			line(4, "addReductions(node, null);");
+			line(3, "} else {");
+			line(4, "node.edges = new StackEdge(start, symbol, ~item, node.edges);");
+			line(4, "addReductions(node, node.edges);");
+			line(4, "");
+			line(4, "// A path that ends with a empty symbol can pass through the new edge from a node that has already been reduced.");
+			line(4, "if(emptyEdges) {");
+			line(5, "for(StackNode other : frontier.values()) addReductions(other, null);");
+			line(4, "}");
+			line(3, "}");
+			line(2, "}");
+			line(2, "");
+			line(2, "private boolean shift(Token token, int[] terminals) {");
+			line(3, "Symbol leaf = new Symbol(token, -1, level, level + 1);");
+			line(3, "Map<Integer, StackNode> next = new LinkedHashMap<>();");
+			line(3, "");
+			line(3, "for(StackNode node : frontier.values()) {");
+			line(4, "for(int id : terminals) {");
+			line(5, "int state = action(node.state, id);");
+			line(5, "if(state < 0) continue;");
+			line(5, "");
+			line(5, "StackNode shifted = next.get(state);");
+			line(5, "if(shifted == null) {");
+			line(6, "shifted = new StackNode(nodes++, state, level + 1);");
+			line(6, "next.put(state, shifted);");
+			line(5, "}");
+			line(5, "");
+			line(5, "shifted.edges = new StackEdge(node, leaf, id, shifted.edges);");
+			line(4, "}");
+			line(3, "}");
+			line(3, "");
+			line(3, "if(next.isEmpty()) return false;");
+			line(3, "frontier = next;");
+			line(3, "level++;");
+			line(3, "return true;");
+			line(2, "}");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static boolean isValid(BitSet lookaheads, int[] lookahead) {");
+			line(2, "if(lookaheads == null) return true;");
+			line(2, "for(int id : lookahead) {");
+			line(3, "if(lookaheads.get(id)) return true;");
+			line(2, "}");
+			line(2, "");
+			line(2, "return false;");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static Symbol recognize(Token token) {");
+			line(2, "if(token == null) throw new NullPointerException(\"The token was null.\");");
+			line(2, "");
+			line(2, "List<Token> tokens = new ArrayList<>();");
+			line(2, "for(Token next = token; next != null; next = next.next()) {");
+			line(3, "// Tokens without a value, like the start of a chain created by TokenizerOld, are skipped in the same way as TokenSequence.");
+			line(3, "if(next.toString() != null) tokens.add(next);");
+			line(2, "}");
+			line(2, "");
+			line(2, "return recognize(tokens);");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static Symbol recognize(List<Token> tokens) {");
+			line(2, "Map<String, int[]> values = new HashMap<>();");
+			line(2, "Map<String, int[]> groups = new HashMap<>();");
+			line(2, "List<int[]> list = new ArrayList<>();");
+			line(2, "for(Token token : tokens) list.add(terminals(token, values, groups));");
+			line(2, "");
+			line(2, "Parse parse = new Parse(list.size());");
+			line(2, "for(int i = 0; i < list.size(); i++) {");
+			line(3, "parse.reduceAll(list.get(i));");
+			line(3, "");
+			line(3, "Token current = tokens.get(i);");
+			line(3, "if(!parse.shift(current, list.get(i))) {");
+			line(4, "throw new ParserException(\"Error at token: '\" + current + \"' (line=\" + current.line() + \", column=\" + current.column() + \")\");");
+			line(3, "}");
+			line(2, "}");
+			line(2, "");
+			line(2, "parse.reduceAll(END_OF_INPUT);");
+			line(2, "if(parse.accepted == null) {");
+			line(3, "throw new ParserException(\"Unexpected end of input\");");
+			line(2, "}");
+			line(2, "");
+			line(2, "return parse.accepted;");
+			line(1, "}");
+			line(1, "");
+		}
+		
+		private void appendResults() {
+			line(1, "/**");
+			line(1, " * Parse a chain of tokens.");
+			line(1, " * ");
+			line(1, " * @param token the first token.");
+			line(1, " * @return a forest that contains every parse tree of the input.");
+			line(1, " * @throws ParserException if the input could not be parsed.");
+			line(1, " */");
+			line(1, "public static ParseForest parseForest(Token token) {");
+			line(2, "return forest(recognize(token));");
+			line(1, "}");
+			line(1, "");
+			if(lexer != null) {
+				line(1, "/**");
+				line(1, " * Split bytes into tokens with {@link #tokenize} and parse them.");
+				line(1, " * ");
+				line(1, " * @param bytes the input.");
+				line(1, " * @return a forest that contains every parse tree of the input.");
+				line(1, " * @throws ParserException if the input could not be parsed.");
+				line(1, " */");
+				line(1, "public static ParseForest parseForest(byte[] bytes) {");
+				line(2, "return forest(recognize(tokenize(bytes)));");
+				line(1, "}");
+				line(1, "");
+			}
+			
+			line(1, "private static ParseForest forest(Symbol accepted) {");
+			line(2, "Map<Symbol, Node> nodes = new IdentityHashMap<>();");
+			line(2, "Deque<Symbol> search = new ArrayDeque<>();");
+			line(2, "nodes.put(accepted, node(accepted));");
+			line(2, "search.push(accepted);");
+			line(2, "");
+			line(2, "while(!search.isEmpty()) {");
+			line(3, "for(Packed packed : search.pop().alternatives) {");
+			line(4, "for(Symbol child : packed.children) {");
+			line(5, "if(nodes.containsKey(child)) continue;");
+			line(5, "nodes.put(child, node(child));");
+			line(5, "search.push(child);");
+			line(4, "}");
+			line(3, "}");
+			line(2, "}");
+			line(2, "");
+			line(2, "for(Map.Entry<Symbol, Node> entry : nodes.entrySet()) {");
+			line(3, "for(Packed packed : entry.getKey().alternatives) {");
+			line(4, "Node[] children = new Node[packed.children.length];");
+			line(4, "for(int i = 0; i < children.length; i++) children[i] = nodes.get(packed.children[i]);");
+			line(4, "entry.getValue().addAlternative(children);");
+			line(3, "}");
+			line(2, "}");
+			line(2, "");
+			line(2, "return new ParseForest(nodes.get(accepted));");
+			line(1, "}");
+			line(1, "");
+			line(1, "private static Node node(Symbol symbol) {");
+			line(2, "return new Node(symbol.token != null ? symbol.token.toString():NAMES[symbol.name], symbol.start, symbol.end);");
+			line(1, "}");
+			line(1, "");
+			line(1, "/**");
+			line(1, " * Parse a chain of tokens and call the actions for each production of the first parse tree.");
+			line(1, " * The children of a symbol are always reduced before the symbol itself.");
+			line(1, " * ");
+			line(1, " * @param token the first token.");
+			line(1, " * @param actions the actions that creates the values of the symbols.");
+			line(1, " * @return the value of the accepted item.");
+			line(1, " * @throws ParserException if the input could not be parsed.");
+			line(1, " */");
+			line(1, "public static <T> T parse(Token token, Actions<T> actions) {");
+			line(2, "if(actions == null) throw new NullPointerException(\"The actions was null.\");");
+			line(2, "return evaluate(recognize(token), actions);");
+			line(1, "}");
+			line(1, "");
+			if(lexer != null) {
+				line(1, "/**");
+				line(1, " * Split bytes into tokens with {@link #tokenize} and call the actions for each production of the first parse tree.");
+				line(1, " * ");
+				line(1, " * @param bytes the input.");
+				line(1, " * @param actions the actions that creates the values of the symbols.");
+				line(1, " * @return the value of the accepted item.");
+				line(1, " * @throws ParserException if the input could not be parsed.");
+				line(1, " */");
+				line(1, "public static <T> T parse(byte[] bytes, Actions<T> actions) {");
+				line(2, "if(actions == null) throw new NullPointerException(\"The actions was null.\");");
+				line(2, "return evaluate(recognize(tokenize(bytes)), actions);");
+				line(1, "}");
+				line(1, "");
+			}
+			
+			line(1, "private static <T> T evaluate(Symbol accepted, Actions<T> actions) {");
+			line(2, "Map<Symbol, T> values = new IdentityHashMap<>();");
+			line(2, "Deque<Symbol> search = new ArrayDeque<>();");
+			line(2, "search.push(accepted);");
+			line(2, "");
+			line(2, "// The children of the first alternative are always created before the symbol so this can not loop forever.");
+			line(2, "while(!search.isEmpty()) {");
+			line(3, "Symbol symbol = search.peek();");
+			line(3, "if(values.containsKey(symbol)) {");
+			line(4, "search.pop();");
+			line(4, "continue;");
+			line(3, "}");
+			line(3, "");
+			line(3, "if(symbol.token != null) {");
+			line(4, "values.put(search.pop(), actions.token(symbol.token));");
+			line(4, "continue;");
+			line(3, "}");
+			line(3, "");
+			line(3, "Packed packed = symbol.alternatives.get(0);");
+			line(3, "boolean ready = true;");
+			line(3, "for(Symbol child : packed.children) {");
+			line(4, "if(values.containsKey(child)) continue;");
+			line(4, "search.push(child);");
+			line(4, "ready = false;");
+			line(3, "}");
+			line(3, "");
+			line(3, "if(!ready) continue;");
+			line(3, "");
+			line(3, "Object[] children = new Object[packed.children.length];");
+			line(3, "for(int i = 0; i < children.length; i++) children[i] = values.get(packed.children[i]);");
+			line(3, "values.put(search.pop(), reduce(actions, packed.production, children));");
+			line(2, "}");
+			line(2, "");
+			line(2, "return values.get(accepted);");
+			line(1, "}");
+			line(1, "");
+			line(1, "@SuppressWarnings(\"unchecked\")");
+			line(1, "private static <T> T reduce(Actions<T> actions, int production, Object[] children) {");
+			line(2, "switch(production) {");
+			for(int i = 0; i < productions.size(); i++) {
+				StringBuilder arguments = new StringBuilder();
+				for(int j = 0; j < productions.get(i).rl.size(); j++) {
+					if(j > 0) arguments.append(", ");
+					arguments.append("(T)children[").append(j).append("]");
+				}
+				
+				line(3, "case " + i + ": return actions." + methods.get(i) + "(" + arguments + ");");
+			}
+			
+			line(3, "default: throw new IllegalArgumentException(\"Invalid production \" + production);");
+			line(2, "}");
+			line(1, "}");
+		}
+		
+		private String describe(IRule rule) {
+			switch(rule.type()) {
+				case ITEM: return "i:" + rule.value();
+				case TOKEN: return "token:" + rule.value();
+				case STRING: return "s:\"" + rule.value() + "\"";
+				case REGEX: return "r:" + rule.value();
+				default: return rule.value();
+			}
+		}
+		
+		private void line(int tabs, String text) {
+			for(int i = 0; i < tabs; i++) sb.append('\t');
+			sb.append(text).append('\n');
+		}
+	}
+	
+	private static String join(List<Integer> list) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < list.size(); i++) {
+			if(i > 0) sb.append(", ");
+			sb.append(list.get(i));
+		}
+		
+		return sb.toString();
+	}
+	
+	/**
+	 * Returns a valid Java identifier that looks like the name of a item.
+	 */
+	private static String identifier(String name) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			sb.append(Character.isJavaIdentifierPart(c) && c < 0x80 ? c:'_');
+		}
+		
+		if(sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0))) sb.insert(0, '_');
+		return sb.toString();
+	}
+	
+	/**
+	 * Returns a Java string literal.<br>
+	 * 
+	 * Unicode escapes are replaced before the source is read by the compiler so a line
+	 * break or a quote can only be written with a octal escape.
+	 */
+	private static String literal(String value) {
+		StringBuilder sb = new StringBuilder("\"");
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			
+			if(c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if(c >= 0x20 && c < 0x7f) {
+				sb.append(c);
+			} else if(c < 0x100) {
+				sb.append(String.format("\\%03o", (int)c));
+			} else {
+				sb.append(String.format("\\u%04x", (int)c));
+			}
+		}
+		
+		return sb.append('"').toString();
+	}
+	
+	/**
+	 * Returns text that can be written inside a comment.
+	 */
+	private static String comment(String value) {
+		return value.replace("\\", "&#92;").replace("*/", "*&#47;").replaceAll("[\\x00-\\x1f\\x7f]", " ");
+	}
+}
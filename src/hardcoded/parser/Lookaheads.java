@@ -0,0 +1,471 @@
+package hardcoded.parser;
+
+import java.util.*;
+
+import hardcoded.parser.GLRParserGenerator.IItem;
+import hardcoded.parser.GLRParserGenerator.IRule;
+import hardcoded.parser.GLRParserGenerator.IRuleList;
+import hardcoded.parser.GLRParserGenerator.IState;
+import hardcoded.parser.GLRParserGenerator.IType;
+import hardcoded.parser.GLRParserGenerator.TableType;
+
+/**
+ * This class computes the terminals that can follow each reduction of the LR(0) states.<br>
+ * 
+ * https://en.wikipedia.org/wiki/LALR_parser
+ * 
+ * <br>The terminals are numbered by the column of the table and the end of the input
+ * has the id after the last terminal. The FIRST and FOLLOW sets are computed from the
+ * productions of the states. The LALR(1) lookaheads are propagated between the items of
+ * the LR(0) states and the canonical LR(1) states are created by splitting each LR(0)
+ * state by the lookaheads of its kernel.
+ * 
+ * @author HardCoded
+ */
+final class Lookaheads {
+	// A symbol that is not a column and can never be matched.
+	private static final int NONE = Integer.MIN_VALUE;
+	
+	// The nonterminal id of the start item.
+	private static final int START = 0;
+	
+	/**
+	 * A row of the table. This is a LR(0) state together with the lookaheads of its kernel.
+	 */
+	static final class Row {
+		final IState core;
+		
+		// The row of each state inside core.next.
+		final int[] next;
+		
+		// The lookaheads of each kernel rule of the core or null if every terminal is valid.
+		final BitSet[] lookaheads;
+		
+		private Row(IState core, int[] next, BitSet[] lookaheads) {
+			this.core = core;
+			this.next = next;
+			this.lookaheads = lookaheads;
+		}
+	}
+	
+	/**
+	 * The items of a LR(0) state. The kernel items are placed first.
+	 */
+	private final class State {
+		private final int id;
+		private final IState source;
+		private final int kernel;
+		private final int[] production;
+		private final int[] dot;
+		private final Map<Long, Integer> index = new HashMap<>();
+		
+		// The state and symbol of each state inside source.next.
+		private final int[] next;
+		private final int[] nextSymbol;
+		
+		// The closure items that always gets the terminals of FIRST(beta).
+		private final List<Integer> spontaneous = new ArrayList<>();
+		private final List<BitSet> spontaneousFirst = new ArrayList<>();
+		
+		// Pairs of items where the lookaheads of the first item is added to the second item.
+		private int[] closureEdges = new int[0];
+		private int closureCount;
+		
+		private State(int id, IState source, Map<IState, Integer> ids) {
+			this.id = id;
+			this.source = source;
+			this.kernel = source.rules.size();
+			
+			List<IRuleList> items = new ArrayList<>(source.rules);
+			for(IItem item : source.list) items.addAll(item.list);
+			
+			production = new int[items.size()];
+			dot = new int[items.size()];
+			for(int i = 0; i < items.size(); i++) {
+				IRuleList rl = items.get(i);
+				production[i] = production(rl);
+				dot[i] = (i < kernel) ? rl.index:0;
+				index.putIfAbsent(key(production[i], dot[i]), i);
+			}
+			
+			next = new int[source.next.size()];
+			nextSymbol = new int[next.length];
+			for(int i = 0; i < next.length; i++) {
+				IState state = source.next.get(i);
+				next[i] = ids.get(state);
+				nextSymbol[i] = symbol(state.action());
+			}
+		}
+		
+		private int item(int production, int dot) {
+			Integer result = index.get(key(production, dot));
+			return result == null ? -1:result;
+		}
+		
+		/**
+		 * Returns the symbol after the dot of a item or NONE if the item is complete.
+		 */
+		private int cursor(int item) {
+			int[] rhs = rules.get(production[item]);
+			return dot[item] < rhs.length ? rhs[dot[item]]:NONE;
+		}
+		
+		private int target(int symbol) {
+			for(int i = 0; i < next.length; i++) {
+				if(nextSymbol[i] == symbol) return next[i];
+			}
+			
+			return -1;
+		}
+		
+		/**
+		 * Find the lookaheads that are added to the closure items of this state.
+		 */
+		private void computeClosure() {
+			for(int i = 0; i < production.length; i++) {
+				int symbol = cursor(i);
+				if(symbol == NONE || symbol >= 0) continue;
+				
+				int[] rhs = rules.get(production[i]);
+				BitSet set = new BitSet();
+				boolean empty = first(rhs, dot[i] + 1, set);
+				
+				for(int j = 0; j < production.length; j++) {
+					if(dot[j] != 0 || lhs.get(production[j]) != ~symbol) continue;
+					
+					if(!set.isEmpty()) {
+						spontaneous.add(j);
+						spontaneousFirst.add(set);
+					}
+					
+					if(empty) {
+						if(closureCount * 2 == closureEdges.length) closureEdges = Arrays.copyOf(closureEdges, Math.max(8, closureEdges.length * 2));
+						closureEdges[closureCount * 2] = i;
+						closureEdges[closureCount * 2 + 1] = j;
+						closureCount++;
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Compute the lookaheads of every item from the lookaheads of the kernel items.
+		 */
+		private BitSet[] closure(BitSet[] kernelLookaheads, boolean start) {
+			BitSet[] result = new BitSet[production.length];
+			for(int i = 0; i < result.length; i++) {
+				result[i] = (i < kernel) ? (BitSet)kernelLookaheads[i].clone():new BitSet();
+				if(start && isStart(i)) result[i].set(eof);
+			}
+			
+			for(int i = 0; i < spontaneous.size(); i++) {
+				result[spontaneous.get(i)].or(spontaneousFirst.get(i));
+			}
+			
+			boolean changed = true;
+			while(changed) {
+				changed = false;
+				for(int i = 0; i < closureCount; i++) {
+					BitSet from = result[closureEdges[i * 2]];
+					BitSet to = result[closureEdges[i * 2 + 1]];
+					if(!contains(to, from)) {
+						to.or(from);
+						changed = true;
+					}
+				}
+			}
+			
+			return result;
+		}
+		
+		private boolean isStart(int item) {
+			return dot[item] == 0 && lhs.get(production[item]) == START;
+		}
+	}
+	
+	private final Map<IRule, Integer> terminalIds;
+	private final int eof;
+	
+	// The productions of the grammar. A terminal is positive and a nonterminal is inverted.
+	private final Map<List<Object>, Integer> productions = new HashMap<>();
+	private final List<Integer> lhs = new ArrayList<>();
+	private final List<int[]> rules = new ArrayList<>();
+	private final Map<String, Integer> nonterminals = new HashMap<>();
+	
+	private BitSet[] first;
+	private boolean[] nullable;
+	private BitSet[] follow;
+	private State[] items;
+	
+	/**
+	 * @param states the LR(0) states.
+	 * @param startItem the name of the start item.
+	 * @param terminalIds the column of each terminal rule.
+	 * @param terminals the number of terminals. This is also the id of the end of the input.
+	 */
+	Lookaheads(List<IState> states, String startItem, Map<IRule, Integer> terminalIds, int terminals) {
+		this.terminalIds = terminalIds;
+		this.eof = terminals;
+		
+		Map<IState, Integer> ids = new IdentityHashMap<>();
+		for(int i = 0; i < states.size(); i++) ids.put(states.get(i), i);
+		
+		nonterminals.put(startItem, START);
+		items = new State[states.size()];
+		for(int i = 0; i < items.length; i++) {
+			items[i] = new State(i, states.get(i), ids);
+		}
+		
+		computeFirst();
+		computeFollow();
+		
+		for(State state : items) state.computeClosure();
+	}
+	
+	private static long key(int production, int dot) {
+		return ((long)production << 32) | dot;
+	}
+	
+	private int production(IRuleList rl) {
+		List<Object> key = Arrays.asList(rl.itemName, rl.rules);
+		Integer id = productions.get(key);
+		if(id != null) return id;
+		
+		int[] rhs = new int[rl.size()];
+		for(int i = 0; i < rhs.length; i++) rhs[i] = symbol(rl.get(i));
+		
+		id = rules.size();
+		productions.put(key, id);
+		lhs.add(nonterminal(rl.itemName));
+		rules.add(rhs);
+		return id;
+	}
+	
+	private int symbol(IRule rule) {
+		if(rule.type() == IType.ITEM) return ~nonterminal(rule.value());
+		return terminalIds.getOrDefault(rule, NONE);
+	}
+	
+	private int nonterminal(String name) {
+		Integer id = nonterminals.get(name);
+		if(id == null) {
+			id = nonterminals.size();
+			nonterminals.put(name, id);
+		}
+		
+		return id;
+	}
+	
+	private void computeFirst() {
+		first = new BitSet[nonterminals.size()];
+		nullable = new boolean[nonterminals.size()];
+		for(int i = 0; i < first.length; i++) first[i] = new BitSet();
+		
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			
+			for(int i = 0; i < rules.size(); i++) {
+				int a = lhs.get(i);
+				BitSet set = new BitSet();
+				boolean empty = first(rules.get(i), 0, set);
+				
+				if(!contains(first[a], set)) {
+					first[a].or(set);
+					changed = true;
+				}
+				
+				if(empty && !nullable[a]) {
+					nullable[a] = true;
+					changed = true;
+				}
+			}
+		}
+	}
+	
+	private void computeFollow() {
+		follow = new BitSet[nonterminals.size()];
+		for(int i = 0; i < follow.length; i++) follow[i] = new BitSet();
+		follow[START].set(eof);
+		
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			
+			for(int i = 0; i < rules.size(); i++) {
+				int[] rhs = rules.get(i);
+				
+				for(int j = 0; j < rhs.length; j++) {
+					if(rhs[j] == NONE || rhs[j] >= 0) continue;
+					
+					BitSet set = new BitSet();
+					if(first(rhs, j + 1, set)) set.or(follow[lhs.get(i)]);
+					
+					BitSet target = follow[~rhs[j]];
+					if(!contains(target, set)) {
+						target.or(set);
+						changed = true;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Add FIRST of the symbols from an index to a set.
+	 * 
+	 * @return true if all the symbols can be empty.
+	 */
+	private boolean first(int[] rhs, int from, BitSet set) {
+		for(int i = from; i < rhs.length; i++) {
+			int symbol = rhs[i];
+			if(symbol == NONE) return false;
+			
+			if(symbol >= 0) {
+				set.set(symbol);
+				return false;
+			}
+			
+			set.or(first[~symbol]);
+			if(!nullable[~symbol]) return false;
+		}
+		
+		return true;
+	}
+	
+	private static boolean contains(BitSet set, BitSet other) {
+		BitSet copy = (BitSet)other.clone();
+		copy.andNot(set);
+		return copy.isEmpty();
+	}
+	
+	/**
+	 * Create the rows of a table.
+	 */
+	List<Row> build(TableType type) {
+		switch(type) {
+			case LR0: return simple(null);
+			case SLR1: return simple(state -> {
+				BitSet[] result = new BitSet[state.kernel];
+				for(int i = 0; i < result.length; i++) {
+					result[i] = (BitSet)follow[lhs.get(state.production[i])].clone();
+				}
+				
+				return result;
+			});
+			case LALR1: return lalr();
+			case LR1: return canonical();
+		}
+		
+		throw new IllegalArgumentException("Unknown table type '" + type + "'");
+	}
+	
+	private interface KernelLookaheads {
+		BitSet[] get(State state);
+	}
+	
+	private List<Row> simple(KernelLookaheads lookaheads) {
+		List<Row> result = new ArrayList<>(items.length);
+		for(State state : items) {
+			result.add(new Row(state.source, state.next, lookaheads == null ? null:lookaheads.get(state)));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Propagate the lookaheads between the items of the LR(0) states until nothing changes.
+	 */
+	private List<Row> lalr() {
+		BitSet[][] kernels = new BitSet[items.length][];
+		for(int i = 0; i < items.length; i++) {
+			kernels[i] = new BitSet[items[i].kernel];
+			for(int j = 0; j < kernels[i].length; j++) kernels[i][j] = new BitSet();
+		}
+		
+		Deque<Integer> search = new ArrayDeque<>();
+		boolean[] queued = new boolean[items.length];
+		search.add(0);
+		queued[0] = true;
+		
+		while(!search.isEmpty()) {
+			int index = search.poll();
+			queued[index] = false;
+			
+			State state = items[index];
+			BitSet[] lookaheads = state.closure(kernels[index], index == 0);
+			
+			for(int i = 0; i < state.production.length; i++) {
+				int symbol = state.cursor(i);
+				if(symbol == NONE) continue;
+				
+				int target = state.target(symbol);
+				if(target < 0) continue;
+				
+				int item = items[target].item(state.production[i], state.dot[i] + 1);
+				if(item < 0 || item >= items[target].kernel) continue;
+				
+				BitSet set = kernels[target][item];
+				if(!contains(set, lookaheads[i])) {
+					set.or(lookaheads[i]);
+					
+					if(!queued[target]) {
+						queued[target] = true;
+						search.add(target);
+					}
+				}
+			}
+		}
+		
+		return simple(state -> kernels[state.id]);
+	}
+	
+	/**
+	 * Split every LR(0) state by the lookaheads of its kernel items.
+	 */
+	private List<Row> canonical() {
+		List<Row> result = new ArrayList<>();
+		List<BitSet[]> kernels = new ArrayList<>();
+		List<Integer> cores = new ArrayList<>();
+		Map<List<Object>, Integer> found = new HashMap<>();
+		
+		kernels.add(new BitSet[0]);
+		cores.add(0);
+		result.add(null);
+		
+		for(int index = 0; index < cores.size(); index++) {
+			State state = items[cores.get(index)];
+			BitSet[] lookaheads = state.closure(kernels.get(index), index == 0);
+			int[] next = new int[state.next.length];
+			
+			for(int k = 0; k < next.length; k++) {
+				State target = items[state.next[k]];
+				BitSet[] kernel = new BitSet[target.kernel];
+				for(int j = 0; j < kernel.length; j++) kernel[j] = new BitSet();
+				
+				for(int i = 0; i < state.production.length; i++) {
+					if(state.cursor(i) != state.nextSymbol[k]) continue;
+					
+					int item = target.item(state.production[i], state.dot[i] + 1);
+					if(item >= 0 && item < target.kernel) kernel[item].or(lookaheads[i]);
+				}
+				
+				List<Object> key = Arrays.asList(state.next[k], Arrays.asList(kernel));
+				Integer id = found.get(key);
+				if(id == null) {
+					id = cores.size();
+					found.put(key, id);
+					cores.add(state.next[k]);
+					kernels.add(kernel);
+					result.add(null);
+				}
+				
+				next[k] = id;
+			}
+			
+			result.set(index, new Row(state.source, next, kernels.get(index)));
+		}
+		
+		return result;
+	}
+}
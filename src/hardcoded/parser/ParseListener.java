@@ -0,0 +1,103 @@
+package hardcoded.parser;
+
+import java.io.PrintStream;
+
+import hardcoded.lexer.Token;
+
+/**
+ * Receives the steps of a parse. A listener is installed with {@link GLRParser#setListener}
+ * and every method does nothing by default so only the events that are needed have to
+ * be implemented.<br><br>
+ * 
+ * The parser only calls the listener if one is installed so a parser without a
+ * listener does not do any extra work.
+ * 
+ * @author HardCoded
+ */
+public interface ParseListener {
+	/**
+	 * Called when a token is shifted onto the stack.
+	 * 
+	 * @param state the state that the parser entered.
+	 * @param token the shifted token.
+	 * @param position the index of the token inside the input.
+	 */
+	default void shift(int state, Token token, int position) {}
+	
+	/**
+	 * Called when the top of the stack is reduced into a item.
+	 * 
+	 * @param item the name of the item.
+	 * @param length the number of symbols that was reduced.
+	 * @param position the index of the last token of the item.
+	 */
+	default void reduce(String item, int length, int position) {}
+	
+	/**
+	 * Called when more than one action is valid and the parser has to try all of them.
+	 * 
+	 * @param actions the number of actions.
+	 * @param position the index of the last shifted token.
+	 */
+	default void fork(int actions, int position) {}
+	
+	/**
+	 * Called when the parser goes back to a earlier state to try another action.
+	 * 
+	 * @param position the index of the last shifted token of the state.
+	 */
+	default void backtrack(int position) {}
+	
+	/**
+	 * Called when the whole input was parsed.
+	 * 
+	 * @param tokens the number of tokens.
+	 */
+	default void accept(int tokens) {}
+	
+	/**
+	 * Called when the input could not be parsed or when the parse was stopped by
+	 * {@link GLRParser#setMaxSavedStates(int)}.
+	 * 
+	 * @param token the token where the parser stopped or null if it was the end of the input.
+	 * @param position the index of the token inside the input.
+	 */
+	default void error(Token token, int position) {}
+	
+	/**
+	 * Returns a listener that prints every event.
+	 * 
+	 * @param out the stream to print to.
+	 */
+	static ParseListener print(PrintStream out) {
+		return new ParseListener() {
+			public void shift(int state, Token token, int position) {
+				out.println("  Shift     : " + position + " '" + token + "' -> I" + state);
+			}
+			
+			public void reduce(String item, int length, int position) {
+				out.println("  Reduce    : " + position + " " + item + " (" + length + ")");
+			}
+			
+			public void fork(int actions, int position) {
+				out.println("  Fork      : " + position + " " + actions + " actions");
+			}
+			
+			public void backtrack(int position) {
+				out.println("  Backtrack : " + position);
+			}
+			
+			public void accept(int tokens) {
+				out.println("-- PARSED THE INPUT SUCCESSFULLY --");
+			}
+			
+			public void error(Token token, int position) {
+				if(token == null) {
+					out.println("-- FAILED TO PARSE THE INPUT -- (end of input)");
+				} else {
+					out.println("-- FAILED TO PARSE THE INPUT -- at '" + token + "' (line=" + token.line() + ", column=" + token.column() + ")");
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,27 @@
+package hardcoded.parser;
+
+import hardcoded.tree.ParseTree;
+
+/**
+ * The parse tree of a input and the statistics of the parse that created it.
+ * 
+ * @author HardCoded
+ * @see GLRParser#parseWithStatistics
+ */
+public final class ParseResult {
+	private final ParseTree tree;
+	private final ParseStatistics statistics;
+	
+	ParseResult(ParseTree tree, ParseStatistics statistics) {
+		this.tree = tree;
+		this.statistics = statistics;
+	}
+	
+	public ParseTree getTree() {
+		return tree;
+	}
+	
+	public ParseStatistics getStatistics() {
+		return statistics;
+	}
+}
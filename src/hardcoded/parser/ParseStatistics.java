@@ -0,0 +1,108 @@
+package hardcoded.parser;
+
+/**
+ * The amount of work done by a single call to {@link GLRParser#parseWithStatistics}.<br><br>
+ * 
+ * A input that makes the parser backtrack a lot has a large number of backtracks and
+ * forks compared to the number of tokens.
+ * 
+ * @author HardCoded
+ * @see ParserMetrics
+ */
+public final class ParseStatistics {
+	int tokens;
+	long shifts;
+	long reductions;
+	long forks;
+	long backtracks;
+	int maxStackDepth;
+	int peakLiveStates;
+	long lexNanos;
+	long parseNanos;
+	boolean accepted;
+	boolean limitReached;
+	
+	ParseStatistics() {
+		
+	}
+	
+	/**
+	 * Returns the number of tokens of the input.
+	 */
+	public int getTokens() {
+		return tokens;
+	}
+	
+	public long getShifts() {
+		return shifts;
+	}
+	
+	public long getReductions() {
+		return reductions;
+	}
+	
+	/**
+	 * Returns the number of times the parser saved a state because more than one action was valid.
+	 */
+	public long getForks() {
+		return forks;
+	}
+	
+	/**
+	 * Returns the number of times the parser went back to a saved state.
+	 */
+	public long getBacktracks() {
+		return backtracks;
+	}
+	
+	/**
+	 * Returns the largest number of entries on the reduction stack.
+	 */
+	public int getMaxStackDepth() {
+		return maxStackDepth;
+	}
+	
+	/**
+	 * Returns the largest number of saved states that the parser could go back to at the same time.
+	 */
+	public int getPeakLiveStates() {
+		return peakLiveStates;
+	}
+	
+	/**
+	 * Returns the time spent creating the tokens or zero if the input was already tokenized.
+	 */
+	public long getLexNanos() {
+		return lexNanos;
+	}
+	
+	/**
+	 * Returns the time spent classifying the tokens and parsing them.
+	 */
+	public long getParseNanos() {
+		return parseNanos;
+	}
+	
+	/**
+	 * Returns true if the whole input was parsed.
+	 */
+	public boolean isAccepted() {
+		return accepted;
+	}
+	
+	/**
+	 * Returns true if the parse was stopped because it needed more saved states than
+	 * the limit set by {@link GLRParser#setMaxSavedStates(int)}.
+	 */
+	public boolean isLimitReached() {
+		return limitReached;
+	}
+	
+	@Override
+	public String toString() {
+		return "ParseStatistics(tokens=" + tokens + ", shifts=" + shifts + ", reductions=" + reductions
+			+ ", forks=" + forks + ", backtracks=" + backtracks + ", maxStackDepth=" + maxStackDepth
+			+ ", peakLiveStates=" + peakLiveStates + ", lexNanos=" + lexNanos + ", parseNanos=" + parseNanos
+			+ ", accepted=" + accepted + ", limitReached=" + limitReached + ")";
+	}
+}
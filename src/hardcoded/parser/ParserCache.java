@@ -0,0 +1,247 @@
+package hardcoded.parser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import hardcoded.grammar.Grammar;
+import hardcoded.lexer.Tokenizer;
+import hardcoded.parser.GLRParserGenerator.TableType;
+
+/**
+ * A directory that contains the tables of generated parsers so that a grammar only
+ * has to be generated once even if it is loaded by many processes.<br><br>
+ * 
+ * Each table is stored inside a file named after the hash of the grammar, the table
+ * type and the version of the {@link TableFormat}. A table is first written to a
+ * temporary file and then renamed so that processes that share the directory never
+ * read a file that is only partially written. When the directory grows larger than
+ * the maximum size the tables that was used the longest time ago are deleted.
+ * 
+ * @author HardCoded
+ */
+public class ParserCache {
+	private static final String EXTENSION = ".hcpt";
+	private static final String TEMPORARY = ".tmp";
+	
+	/**
+	 * Temporary files older than this was left by a process that did not finish writing them.
+	 */
+	private static final long STALE_MILLIS = TimeUnit.HOURS.toMillis(1);
+	
+	private final Path directory;
+	private final long maxBytes;
+	
+	/**
+	 * Create a cache inside a directory.
+	 * 
+	 * @param directory the directory of the cache. It is created if it does not exist.
+	 * @param maxBytes the largest number of bytes the tables of the cache can use.
+	 * @throws IOException if the directory could not be created.
+	 */
+	public ParserCache(Path directory, long maxBytes) throws IOException {
+		if(directory == null) throw new NullPointerException("The directory was null.");
+		if(maxBytes < 0) throw new IllegalArgumentException("The maximum size was negative.");
+		
+		this.directory = Files.createDirectories(directory);
+		this.maxBytes = maxBytes;
+	}
+	
+	public GLRParser getParser(Grammar grammar, Tokenizer tokenizer) throws IOException {
+		return getParser(new GLRParserGenerator(), grammar, tokenizer);
+	}
+	
+	/**
+	 * Load a parser from the cache or generate it and add it to the cache if it was not found.
+	 * A table that can not be loaded is generated again and replaced.<br><br>
+	 * 
+	 * The table type of the generator is part of the name of the table because it changes the
+	 * saved table. The other options of the generator, like the compression and the listener,
+	 * are applied when the table is loaded or generated.
+	 * 
+	 * @param generator the configured generator that loads or generates the table.
+	 * @param grammar the optimized grammar.
+	 * @param tokenizer the tokenizer that will create the tokens or null to compare group names.
+	 * @return the parser of the grammar.
+	 * @throws IOException if the generated table could not be written to the cache.
+	 */
+	public GLRParser getParser(GLRParserGenerator generator, Grammar grammar, Tokenizer tokenizer) throws IOException {
+		if(generator == null) throw new NullPointerException("The generator was null.");
+		
+		String key = key(grammar, generator.getTableType());
+		Path path = directory.resolve(key + EXTENSION);
+		
+		if(Files.exists(path)) {
+			BasicFileAttributes attributes = null;
+			try {
+				attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				GLRParser parser = generator.loadParser(path, grammar, tokenizer);
+				touch(path);
+				return parser;
+			} catch(NoSuchFileException e) {
+				// The table was evicted by another process.
+			} catch(IOException e) {
+				// The table is corrupted or was written by a different version.
+				if(attributes != null) quarantine(path, attributes);
+			}
+		}
+		
+		GLRParser parser = generator.generateParser(grammar, tokenizer);
+		Path temporary = Files.createTempFile(directory, key, TEMPORARY);
+		try {
+			parser.save(temporary);
+			
+			try {
+				Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch(AtomicMoveNotSupportedException e) {
+				Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch(IOException e) {
+			// Another process could be using the table. The table it wrote is the same as this one.
+			if(!Files.exists(path)) throw e;
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+		
+		evict();
+		return parser;
+	}
+	
+	/**
+	 * Delete the tables that was used the longest time ago until the cache fits inside the
+	 * maximum size. Temporary files that was never finished are also deleted.
+	 * 
+	 * @throws IOException if the directory could not be read.
+	 */
+	public void evict() throws IOException {
+		Map<Path, Long> tables = new HashMap<>();
+		long now = System.currentTimeMillis();
+		long size = 0;
+		
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for(Path path : stream) {
+				String name = path.getFileName().toString();
+				
+				try {
+					if(name.endsWith(TEMPORARY)) {
+						if(now - Files.getLastModifiedTime(path).toMillis() > STALE_MILLIS) deleteTemporary(path);
+					} else if(name.endsWith(EXTENSION)) {
+						// The time is read once because other processes can change it while the tables are sorted.
+						tables.put(path, Files.getLastModifiedTime(path).toMillis());
+						size += Files.size(path);
+					}
+				} catch(NoSuchFileException e) {
+					// The file was removed by another process.
+				}
+			}
+		}
+		
+		if(size <= maxBytes) return;
+		
+		List<Path> oldest = new ArrayList<>(tables.keySet());
+		oldest.sort(Comparator.comparing(tables::get));
+		for(Path path : oldest) {
+			if(size <= maxBytes) break;
+			
+			try {
+				long bytes = Files.size(path);
+				Files.delete(path);
+				size -= bytes;
+			} catch(NoSuchFileException e) {
+				// The file was removed by another process.
+			} catch(IOException e) {
+				// The file is still mapped by a process that does not allow it to be deleted.
+			}
+		}
+	}
+	
+	/**
+	 * Move a table that could not be loaded to a unique temporary name so that it is deleted
+	 * by {@link #evict()}. Another process could have replaced the table with a valid one
+	 * after it was read, so the table is only moved if it is still the same file. The table
+	 * is replaced when the generated parser is saved so a failure here is ignored.
+	 * 
+	 * @param path the table that could not be loaded.
+	 * @param attributes the attributes of the table before it was loaded.
+	 */
+	private void quarantine(Path path, BasicFileAttributes attributes) {
+		try {
+			BasicFileAttributes current = Files.readAttributes(path, BasicFileAttributes.class);
+			boolean same = Objects.equals(current.fileKey(), attributes.fileKey()) && current.size() == attributes.size();
+			if(!same || !current.lastModifiedTime().equals(attributes.lastModifiedTime())) return;
+			
+			Path target = directory.resolve(path.getFileName() + "." + UUID.randomUUID() + TEMPORARY);
+			Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException e) {
+			// The table was removed, replaced or is still mapped by another process.
+		}
+	}
+	
+	/**
+	 * Delete a temporary file. A file that is still mapped by another process can not be
+	 * deleted on some platforms so it is left for the next eviction.
+	 */
+	private static void deleteTemporary(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch(IOException e) {
+			// The file is deleted by a later eviction.
+		}
+	}
+	
+	/**
+	 * Remove every table from the cache.
+	 * 
+	 * @throws IOException if a table could not be deleted.
+	 */
+	public void clear() throws IOException {
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+			for(Path path : stream) Files.deleteIfExists(path);
+		}
+	}
+	
+	public Path getDirectory() {
+		return directory;
+	}
+	
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+	
+	/**
+	 * Returns the name of the table of a grammar.
+	 */
+	private static String key(Grammar grammar, TableType tableType) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			// Every implementation of the Java platform is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+		
+		digest.update(TableFormat.hash(grammar));
+		digest.update((tableType.name() + "/" + TableFormat.VERSION).getBytes(StandardCharsets.UTF_8));
+		
+		StringBuilder sb = new StringBuilder();
+		for(byte b : digest.digest()) sb.append(String.format("%02x", b & 0xff));
+		return sb.toString();
+	}
+	
+	/**
+	 * Mark a table as used so that it is evicted after the tables that has not been used.
+	 */
+	private static void touch(Path path) {
+		try {
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch(IOException e) {
+			// The table is still valid even if the time could not be changed.
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package hardcoded.parser;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The sum of the {@link ParseStatistics} of every parse done by the parsers that use
+ * these metrics. The metrics can be shared between parsers running on many threads and
+ * registered as a MBean so that a service can monitor grammars or inputs that makes
+ * the parser backtrack a lot.
+ * 
+ * <pre>
+ * ParserMetrics metrics = new ParserMetrics();
+ * metrics.register("language");
+ * parser.setMetrics(metrics);
+ * </pre>
+ * 
+ * @author HardCoded
+ * @see GLRParser#setMetrics(ParserMetrics)
+ */
+public class ParserMetrics implements ParserMetricsMBean {
+	private static final String DOMAIN = "hardcoded.parser";
+	
+	private final LongAdder parses = new LongAdder();
+	private final LongAdder failedParses = new LongAdder();
+	private final LongAdder limitedParses = new LongAdder();
+	private final LongAdder tokens = new LongAdder();
+	private final LongAdder shifts = new LongAdder();
+	private final LongAdder reductions = new LongAdder();
+	private final LongAdder forks = new LongAdder();
+	private final LongAdder backtracks = new LongAdder();
+	private final LongAdder lexNanos = new LongAdder();
+	private final LongAdder parseNanos = new LongAdder();
+	private final LongAccumulator maxBacktracks = new LongAccumulator(Math::max, 0);
+	private final LongAccumulator maxStackDepth = new LongAccumulator(Math::max, 0);
+	private final LongAccumulator maxLiveStates = new LongAccumulator(Math::max, 0);
+	private final LongAccumulator maxParseNanos = new LongAccumulator(Math::max, 0);
+	
+	/**
+	 * Add the statistics of a parse to these metrics.
+	 */
+	public void record(ParseStatistics statistics) {
+		parses.increment();
+		if(!statistics.accepted) failedParses.increment();
+		if(statistics.limitReached) limitedParses.increment();
+		tokens.add(statistics.tokens);
+		shifts.add(statistics.shifts);
+		reductions.add(statistics.reductions);
+		forks.add(statistics.forks);
+		backtracks.add(statistics.backtracks);
+		lexNanos.add(statistics.lexNanos);
+		parseNanos.add(statistics.parseNanos);
+		maxBacktracks.accumulate(statistics.backtracks);
+		maxStackDepth.accumulate(statistics.maxStackDepth);
+		maxLiveStates.accumulate(statistics.peakLiveStates);
+		maxParseNanos.accumulate(statistics.parseNanos);
+	}
+	
+	/**
+	 * Register these metrics with the platform MBean server.
+	 * 
+	 * @param name the name of the parser that is used inside the object name.
+	 * @return the object name of the MBean.
+	 * @throws JMException if the MBean could not be registered.
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName objectName = objectName(name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+	
+	/**
+	 * Remove the MBean that was registered with {@link #register(String)}.
+	 * 
+	 * @param name the name that was used when the metrics was registered.
+	 * @throws JMException if the MBean could not be removed.
+	 */
+	public void unregister(String name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+	}
+	
+	private static ObjectName objectName(String name) throws JMException {
+		return new ObjectName(DOMAIN + ":type=ParserMetrics,name=" + ObjectName.quote(name));
+	}
+	
+	public long getParses() { return parses.sum(); }
+	public long getFailedParses() { return failedParses.sum(); }
+	public long getLimitedParses() { return limitedParses.sum(); }
+	public long getTokens() { return tokens.sum(); }
+	public long getShifts() { return shifts.sum(); }
+	public long getReductions() { return reductions.sum(); }
+	public long getForks() { return forks.sum(); }
+	public long getBacktracks() { return backtracks.sum(); }
+	public long getMaxBacktracks() { return maxBacktracks.get(); }
+	public long getMaxStackDepth() { return maxStackDepth.get(); }
+	public long getMaxLiveStates() { return maxLiveStates.get(); }
+	public long getLexMillis() { return TimeUnit.NANOSECONDS.toMillis(lexNanos.sum()); }
+	public long getParseMillis() { return TimeUnit.NANOSECONDS.toMillis(parseNanos.sum()); }
+	public long getMaxParseMillis() { return TimeUnit.NANOSECONDS.toMillis(maxParseNanos.get()); }
+	
+	public void reset() {
+		parses.reset();
+		failedParses.reset();
+		limitedParses.reset();
+		tokens.reset();
+		shifts.reset();
+		reductions.reset();
+		forks.reset();
+		backtracks.reset();
+		lexNanos.reset();
+		parseNanos.reset();
+		maxBacktracks.reset();
+		maxStackDepth.reset();
+		maxLiveStates.reset();
+		maxParseNanos.reset();
+	}
+	
+	@Override
+	public String toString() {
+		return "ParserMetrics(parses=" + getParses() + ", failed=" + getFailedParses() + ", tokens=" + getTokens()
+			+ ", backtracks=" + getBacktracks() + ", maxBacktracks=" + getMaxBacktracks() + ")";
+	}
+}
@@ -0,0 +1,41 @@
+package hardcoded.parser;
+
+/**
+ * The management interface of {@link ParserMetrics}.
+ * 
+ * @author HardCoded
+ */
+public interface ParserMetricsMBean {
+	long getParses();
+	long getFailedParses();
+	
+	/**
+	 * Returns the number of parses that was stopped by {@link GLRParser#setMaxSavedStates(int)}.
+	 */
+	long getLimitedParses();
+	
+	long getTokens();
+	long getShifts();
+	long getReductions();
+	long getForks();
+	long getBacktracks();
+	
+	/**
+	 * Returns the largest number of backtracks of a single parse.
+	 */
+	long getMaxBacktracks();
+	long getMaxStackDepth();
+	long getMaxLiveStates();
+	long getLexMillis();
+	long getParseMillis();
+	
+	/**
+	 * Returns the largest time in milliseconds of a single parse.
+	 */
+	long getMaxParseMillis();
+	
+	/**
+	 * Set every counter to zero.
+	 */
+	void reset();
+}
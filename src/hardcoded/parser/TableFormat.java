@@ -0,0 +1,342 @@
+package hardcoded.parser;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import hardcoded.grammar.Grammar;
+import hardcoded.grammar.Grammar.*;
+import hardcoded.parser.GLRParserGenerator.*;
+
+/**
+ * The binary format used to save a {@link ITable} so that it does not have to be
+ * generated again every time a program starts.<br><br>
+ * 
+ * The file starts with a header that contains the format version and a SHA-256 hash
+ * of the grammar. A table is only loaded if both of them matches. The rest of the file
+ * contains the columns, the productions and the dense tables of the parser. The file is
+ * mapped into memory when it is loaded and the tables are copied straight into the arrays
+ * of the parser.
+ * 
+ * <pre>
+ * int    magic 'HCPT'
+ * int    version
+ * byte[] grammar hash (32 bytes)
+ * byte   table type
+ * string accept item
+ * int    rules, (byte type, byte imported, string value)[]
+ * int    productions, (string item, int size, int rule[])[]
+ * int    states, int terminals, int nonterminals
+ * int[]  action table
+ * int[]  goto table
+ * int    cells, (int actions, (byte type, int index, int production, int words, long lookahead[])[])[]
+ * </pre>
+ * 
+ * A string is stored as its length followed by its UTF-8 bytes where -1 is a null string.
+ * 
+ * @author HardCoded
+ */
+final class TableFormat {
+	private static final int MAGIC = 0x48435054;
+	
+	/**
+	 * The version of the format. This must be changed every time the layout of the file
+	 * or the meaning of the tables is changed.
+	 */
+	static final int VERSION = 1;
+	
+	private TableFormat() {
+	
+	}
+	
+	/**
+	 * Compute the hash of everything inside a grammar that changes the generated table.
+	 * 
+	 * @param grammar the grammar.
+	 * @return the SHA-256 hash of the grammar.
+	 */
+	static byte[] hash(Grammar grammar) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			// Every implementation of the Java platform is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+		
+		try(DataOutputStream out = new DataOutputStream(new DigestOutputStream(new OutputStream() {
+			public void write(int b) {}
+		}, digest))) {
+			writeString(out, grammar.getStartItem());
+			
+			Set<ItemToken> tokens = grammar.getTokens();
+			out.writeInt(tokens.size());
+			for(ItemToken token : tokens) {
+				out.writeBoolean(token.isImported());
+				writeItem(out, token);
+			}
+			
+			Set<Item> items = grammar.getItems();
+			out.writeInt(items.size());
+			for(Item item : items) {
+				writeItem(out, item);
+			}
+		} catch(IOException e) {
+			// The stream does not write anything so this can not happen.
+			throw new UncheckedIOException(e);
+		}
+		
+		return digest.digest();
+	}
+	
+	private static void writeItem(DataOutputStream out, Item item) throws IOException {
+		writeString(out, item.getName());
+		out.writeInt(item.getRules().size());
+		for(RuleList set : item.getRules()) {
+			out.writeInt(set.getRules().size());
+			for(Rule rule : set.getRules()) writeString(out, rule.toString());
+		}
+	}
+	
+	/**
+	 * Write a table to a file.
+	 * 
+	 * @param table the table.
+	 * @param path the file to write.
+	 * @throws IOException if the file could not be written.
+	 */
+	static void write(ITable table, Path path) throws IOException {
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.write(table.grammarHash);
+			out.writeByte(table.getType().ordinal());
+			writeString(out, table.acceptItem());
+			
+			Map<IRule, Integer> rules = new HashMap<>();
+			List<IRule> ruleList = new ArrayList<>();
+			Map<IRuleList, Integer> productions = new HashMap<>();
+			List<IRuleList> productionList = new ArrayList<>();
+			
+			for(IRule rule : table.set) addRule(rule, rules, ruleList);
+			for(IAction[] actions : table.cells) {
+				for(IAction action : actions) {
+					if(!action.isReduce() || productions.containsKey(action.rl)) continue;
+					
+					productions.put(action.rl, productionList.size());
+					productionList.add(action.rl);
+					for(IRule rule : action.rl.rules) addRule(rule, rules, ruleList);
+				}
+			}
+			
+			out.writeInt(ruleList.size());
+			for(IRule rule : ruleList) {
+				out.writeByte(rule.type().ordinal());
+				out.writeBoolean(rule.isImported());
+				writeString(out, rule.value());
+			}
+			
+			out.writeInt(table.set.size());
+			for(IRule rule : table.set) out.writeInt(rules.get(rule));
+			
+			out.writeInt(productionList.size());
+			for(IRuleList rl : productionList) {
+				writeString(out, rl.itemName);
+				out.writeInt(rl.size());
+				for(IRule rule : rl.rules) out.writeInt(rules.get(rule));
+			}
+			
+			out.writeInt(table.rows.size());
+			out.writeInt(table.terminals);
+			out.writeInt(table.nonterminals);
+			writeCells(out, table.actionTable);
+			writeCells(out, table.gotoTable);
+			
+			out.writeInt(table.cells.length);
+			for(IAction[] actions : table.cells) {
+				out.writeInt(actions.length);
+				
+				for(IAction action : actions) {
+					out.writeByte(action.type);
+					out.writeInt(action.index);
+					out.writeInt(action.isReduce() ? productions.get(action.rl):-1);
+					
+					if(action.lookahead == null) {
+						out.writeInt(-1);
+					} else {
+						long[] words = action.lookahead.toLongArray();
+						out.writeInt(words.length);
+						for(long word : words) out.writeLong(word);
+					}
+				}
+			}
+		}
+	}
+	
+	private static void writeCells(DataOutputStream out, CellTable cells) throws IOException {
+		for(int row = 0; row < cells.rows; row++) {
+			for(int column = 0; column < cells.columns; column++) out.writeInt(cells.get(row, column));
+		}
+	}
+	
+	private static void addRule(IRule rule, Map<IRule, Integer> rules, List<IRule> ruleList) {
+		if(rules.containsKey(rule)) return;
+		rules.put(rule, ruleList.size());
+		ruleList.add(rule);
+	}
+	
+	/**
+	 * Read a table from a file.
+	 * 
+	 * @param generator the generator that owns the rules of the table.
+	 * @param grammar the grammar that the table must be generated from.
+	 * @param type the type of table that must be loaded.
+	 * @param path the file to read.
+	 * @return the table.
+	 * @throws IOException if the file could not be read or was not created from the same grammar.
+	 */
+	static ITable read(GLRParserGenerator generator, Grammar grammar, TableType type, Path path) throws IOException {
+		ByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed.
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		try {
+			if(buffer.getInt() != MAGIC) throw new IOException("The file is not a parse table");
+			
+			int version = buffer.getInt();
+			if(version != VERSION) throw new IOException("The parse table has version " + version + " but version " + VERSION + " was expected");
+			
+			byte[] grammarHash = new byte[32];
+			buffer.get(grammarHash);
+			if(!Arrays.equals(grammarHash, hash(grammar))) throw new IOException("The parse table was generated from a different grammar");
+			
+			TableType[] types = TableType.values();
+			int typeIndex = buffer.get();
+			if(typeIndex < 0 || typeIndex >= types.length || types[typeIndex] != type) {
+				throw new IOException("The parse table is not a " + type + " table");
+			}
+			
+			String acceptItem = readString(buffer);
+			
+			IType[] ruleTypes = IType.values();
+			IRule[] rules = new IRule[readCount(buffer, 6)];
+			for(int i = 0; i < rules.length; i++) {
+				IType ruleType = ruleTypes[buffer.get()];
+				boolean imported = buffer.get() != 0;
+				rules[i] = generator.new IRule(ruleType, readString(buffer), imported);
+			}
+			
+			List<IRule> set = new ArrayList<>();
+			int columns = readCount(buffer, 4);
+			for(int i = 0; i < columns; i++) set.add(rules[buffer.getInt()]);
+			
+			IRuleList[] productions = new IRuleList[readCount(buffer, 8)];
+			for(int i = 0; i < productions.length; i++) {
+				String itemName = readString(buffer);
+				List<IRule> list = new ArrayList<>();
+				int size = readCount(buffer, 4);
+				for(int j = 0; j < size; j++) list.add(rules[buffer.getInt()]);
+				
+				// A production is only stored for its reductions so the dot is always at the end.
+				productions[i] = generator.new IRuleList(itemName, list, size);
+			}
+			
+			int states = buffer.getInt();
+			int terminals = buffer.getInt();
+			int nonterminals = buffer.getInt();
+			if(states < 0 || terminals < 0 || nonterminals < 0 || (long)states * (terminals + (long)nonterminals) > buffer.remaining() / 4) {
+				throw new IOException("The parse table is corrupted");
+			}
+			
+			int[] actionTable = new int[Math.multiplyExact(states, terminals)];
+			int[] gotoTable = new int[Math.multiplyExact(states, nonterminals)];
+			buffer.asIntBuffer().get(actionTable);
+			buffer.position(buffer.position() + actionTable.length * 4);
+			buffer.asIntBuffer().get(gotoTable);
+			buffer.position(buffer.position() + gotoTable.length * 4);
+			
+			IAction[][] cells = new IAction[readCount(buffer, 4)][];
+			for(int i = 0; i < cells.length; i++) {
+				cells[i] = new IAction[readCount(buffer, 13)];
+				
+				for(int j = 0; j < cells[i].length; j++) {
+					// Only shift and reduce actions are written.
+					int actionType = buffer.get();
+					if(actionType != 0 && actionType != 1) throw new IOException("The parse table is corrupted");
+					
+					IAction action = generator.new IAction(actionType, buffer.getInt());
+					int production = buffer.getInt();
+					if(action.isReduce()) action.rl = productions[production];
+					
+					int words = buffer.getInt();
+					if(words >= 0) {
+						if(words > buffer.remaining() / 8) throw new IOException("The parse table is corrupted");
+						long[] lookahead = new long[words];
+						buffer.asLongBuffer().get(lookahead);
+						buffer.position(buffer.position() + words * 8);
+						action.lookahead = BitSet.valueOf(lookahead);
+					}
+					
+					cells[i][j] = action;
+				}
+			}
+			
+			if(buffer.hasRemaining()) throw new IOException("The parse table contains unused bytes");
+			
+			ITable table = generator.new ITable(type, acceptItem, set, states, actionTable, gotoTable, cells, grammarHash);
+			if(table.terminals != terminals || table.nonterminals != nonterminals) {
+				throw new IOException("The columns of the parse table does not match the grammar");
+			}
+			
+			return table;
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException | NegativeArraySizeException e) {
+			throw new IOException("The parse table is corrupted", e);
+		}
+	}
+	
+	/**
+	 * Read the number of elements of an array. The count is checked against the bytes that
+	 * are left so that a corrupted count can not allocate more memory than the file could
+	 * contain.
+	 * 
+	 * @param size the smallest number of bytes used by one element.
+	 * @throws IOException if the rest of the file is too small for the count.
+	 */
+	private static int readCount(ByteBuffer buffer, int size) throws IOException {
+		int count = buffer.getInt();
+		if(count < 0 || count > buffer.remaining() / size) throw new IOException("The parse table is corrupted");
+		return count;
+	}
+	
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if(value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static String readString(ByteBuffer buffer) throws IOException {
+		int length = buffer.getInt();
+		if(length < 0) return null;
+		if(length > buffer.remaining()) throw new IOException("The parse table is corrupted");
+		
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,237 @@
+package hardcoded.parser;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+import hardcoded.grammar.Grammar.RegexRule;
+import hardcoded.grammar.Grammar.Rule;
+import hardcoded.grammar.Grammar.RuleList;
+import hardcoded.grammar.Grammar.StringRule;
+import hardcoded.lexer.Token;
+import hardcoded.lexer.TokenSequence;
+import hardcoded.parser.GLRParserGenerator.IRule;
+import hardcoded.parser.GLRParserGenerator.IType;
+import hardcoded.parser.GLRParserGenerator.ITable;
+
+/**
+ * Finds the terminals of a table that each token of the input matches.<br><br>
+ * 
+ * Every token is classified once before the parser starts. The terminals of the table
+ * are sorted by how they are matched when the classifier is created. Strings are found
+ * with a map lookup, imported tokens by their group and the regexes and the tokens
+ * defined inside the grammar are matched with patterns. Tokens
+ * with the same value and group shares the same result so a pattern is only matched
+ * once for each value.
+ * 
+ * @author HardCoded
+ */
+final class TerminalClassifier {
+	private static final int[] NO_TERMINALS = new int[0];
+	
+	private final ITable table;
+	
+	// The number of longs inside the bitset of a token.
+	private final int words;
+	
+	// The terminal ids of strings and special rules that are matched by the value of a token.
+	private final Map<String, int[]> valueTerminals = new HashMap<>();
+	
+	// The terminal ids of imported tokens that are matched by the group id or the group name of a token.
+	private int[][] groupIdTerminals = new int[0][];
+	private final Map<String, int[]> groupTerminals = new HashMap<>();
+	
+	// The terminal id and the patterns and strings of each regex and token defined inside the grammar.
+	private final int[] matcherIds;
+	private final Pattern[][] matcherPatterns;
+	private final String[][] matcherStrings;
+	
+	TerminalClassifier(ITable table) {
+		this.table = table;
+		this.words = (table.terminals + 1 + 63) >>> 6;
+		
+		List<Integer> ids = new ArrayList<>();
+		List<Pattern[]> patterns = new ArrayList<>();
+		List<String[]> strings = new ArrayList<>();
+		
+		for(int id = 0; id < table.terminals; id++) {
+			IRule rule = table.terminalRules[id];
+			
+			if(rule.isImported()) {
+				int groupId = rule.groupId();
+				if(groupId >= 0) {
+					if(groupId >= groupIdTerminals.length) groupIdTerminals = Arrays.copyOf(groupIdTerminals, groupId + 1);
+					groupIdTerminals[groupId] = append(groupIdTerminals[groupId], id);
+				} else {
+					groupTerminals.put(rule.value(), append(groupTerminals.get(rule.value()), id));
+				}
+			} else if(rule.isItemToken()) {
+				List<Pattern> tokenPatterns = new ArrayList<>();
+				List<String> tokenStrings = new ArrayList<>();
+				for(RuleList set : rule.asItem().getRules()) {
+					// Only the first rule of a token is matched.
+					if(set.getRules().isEmpty()) continue;
+					
+					Rule first = set.getRules().get(0);
+					if(first instanceof StringRule) {
+						tokenStrings.add(first.value());
+					} else if(first instanceof RegexRule) {
+						tokenPatterns.add(((RegexRule)first).getPattern());
+					}
+				}
+				
+				if(tokenPatterns.isEmpty() && tokenStrings.isEmpty()) continue;
+				ids.add(id);
+				patterns.add(tokenPatterns.toArray(new Pattern[0]));
+				strings.add(tokenStrings.toArray(new String[0]));
+			} else if(rule.type() == IType.REGEX) {
+				ids.add(id);
+				patterns.add(new Pattern[] { rule.pattern() });
+				strings.add(new String[0]);
+			} else {
+				valueTerminals.put(rule.value(), append(valueTerminals.get(rule.value()), id));
+			}
+		}
+		
+		this.matcherIds = ids.stream().mapToInt(Integer::intValue).toArray();
+		this.matcherPatterns = patterns.toArray(new Pattern[0][]);
+		this.matcherStrings = strings.toArray(new String[0][]);
+	}
+	
+	/**
+	 * The terminals of every token inside a sequence.
+	 */
+	final class Classes {
+		private final Terminals[] tokens;
+		private final Terminals end;
+		
+		private Classes(Terminals[] tokens) {
+			this.tokens = tokens;
+			this.end = new Terminals(table.endOfInput, words);
+		}
+		
+		/**
+		 * Returns the number of tokens.
+		 */
+		int size() {
+			return tokens.length;
+		}
+		
+		/**
+		 * Returns the terminal ids of a token in increasing order or a empty array
+		 * if the position is outside the input.
+		 */
+		int[] get(int position) {
+			if(position < 0 || position >= tokens.length) return NO_TERMINALS;
+			return tokens[position].ids;
+		}
+		
+		/**
+		 * Returns the terminal ids of the token at a position or {@link ITable#endOfInput}
+		 * if the position is the end of the input.
+		 */
+		int[] lookahead(int position) {
+			if(position == tokens.length) return end.ids;
+			return get(position);
+		}
+		
+		/**
+		 * Returns true if the token at a position matches a terminal.
+		 */
+		boolean contains(int position, int id) {
+			if(position < 0 || position > tokens.length) return false;
+			long[] bits = (position == tokens.length ? end:tokens[position]).bits;
+			return (bits[id >>> 6] & (1L << id)) != 0;
+		}
+	}
+	
+	/**
+	 * The terminals of one token as a sorted array for the table lookups and a bitset
+	 * for membership tests.
+	 */
+	private static final class Terminals {
+		private final int[] ids;
+		private final long[] bits;
+		
+		private Terminals(int[] ids, int words) {
+			this.ids = ids;
+			this.bits = new long[words];
+			for(int id : ids) bits[id >>> 6] |= 1L << id;
+		}
+	}
+	
+	/**
+	 * Classify every token of a sequence.
+	 */
+	Classes classify(TokenSequence tokens) {
+		// The terminals matched by a value and the result of each group that has been combined with it.
+		Map<String, Map<Object, Terminals>> cache = new HashMap<>();
+		
+		Terminals[] result = new Terminals[tokens.size()];
+		for(int i = 0; i < result.length; i++) {
+			Token token = tokens.get(i);
+			Map<Object, Terminals> groups = cache.computeIfAbsent(token.toString(), key -> new HashMap<>());
+			
+			Object group = token.groupId() >= 0 ? (Object)token.groupId():token.group();
+			Terminals terminals = groups.get(group);
+			if(terminals == null) {
+				terminals = new Terminals(terminals(token), words);
+				groups.put(group, terminals);
+			}
+			
+			result[i] = terminals;
+		}
+		
+		return new Classes(result);
+	}
+	
+	/**
+	 * Returns the terminal ids that matches a token in increasing order.
+	 */
+	private int[] terminals(Token token) {
+		BitSet set = new BitSet(table.terminals);
+		String value = token.toString();
+		
+		add(set, valueTerminals.get(value));
+		
+		int groupId = token.groupId();
+		if(groupId >= 0 && groupId < groupIdTerminals.length) {
+			add(set, groupIdTerminals[groupId]);
+		}
+		
+		if(token.group() != null) {
+			add(set, groupTerminals.get(token.group()));
+		}
+		
+		if(value != null) {
+			for(int i = 0; i < matcherIds.length; i++) {
+				if(matches(matcherPatterns[i], matcherStrings[i], value)) set.set(matcherIds[i]);
+			}
+		}
+		
+		return set.isEmpty() ? NO_TERMINALS:set.stream().toArray();
+	}
+	
+	private static void add(BitSet set, int[] ids) {
+		if(ids == null) return;
+		for(int id : ids) set.set(id);
+	}
+	
+	private static boolean matches(Pattern[] patterns, String[] strings, String value) {
+		for(String string : strings) {
+			if(string.equals(value)) return true;
+		}
+		
+		for(Pattern pattern : patterns) {
+			if(pattern.matcher(value).matches()) return true;
+		}
+		
+		return false;
+	}
+	
+	private static int[] append(int[] array, int value) {
+		if(array == null) return new int[] { value };
+		int[] result = Arrays.copyOf(array, array.length + 1);
+		result[array.length] = value;
+		return result;
+	}
+}
@@ -0,0 +1,268 @@
+package hardcoded.parser;
+
+import java.util.*;
+
+import hardcoded.errors.grammar.ParserException;
+import hardcoded.lexer.Token;
+import hardcoded.lexer.TokenSequence;
+import hardcoded.parser.GLRParserGenerator.IAction;
+import hardcoded.parser.GLRParserGenerator.ITable;
+import hardcoded.parser.TerminalClassifier.Classes;
+import hardcoded.tree.ParseForest;
+import hardcoded.tree.ParseForest.Node;
+
+/**
+ * https://en.wikipedia.org/wiki/Graph-structured_stack
+ * 
+ * <br>A Tomita style GLR parser that follows every action of the table at the same time.
+ * The stacks of all parses are merged into a graph where each token has at most one
+ * node for each state. Reductions are done on every path of the graph and the symbols
+ * they create are shared inside a {@link ParseForest}. Ambiguous inputs are therefore
+ * parsed in polynomial time without copying any stacks.
+ * 
+ * @author HardCoded
+ */
+final class TomitaParser {
+	private final ITable table;
+	
+	TomitaParser(ITable table) {
+		this.table = table;
+	}
+	
+	private static final class StackNode {
+		private final int id;
+		private final int state;
+		private final int level;
+		private StackEdge edges;
+		
+		private StackNode(int id, int state, int level) {
+			this.id = id;
+			this.state = state;
+			this.level = level;
+		}
+	}
+	
+	private static final class StackEdge {
+		private final StackNode target;
+		private final Node symbol;
+		private final StackEdge next;
+		
+		// The terminal id of a shifted token or the inverted nonterminal id of a reduced item.
+		private final int id;
+		
+		private StackEdge(StackNode target, Node symbol, int id, StackEdge next) {
+			this.target = target;
+			this.symbol = symbol;
+			this.next = next;
+			this.id = id;
+		}
+	}
+	
+	private static final class Reduction {
+		private final StackNode node;
+		private final IAction action;
+		
+		// The first edge of the reduction or null if every edge of the node should be used.
+		private final StackEdge first;
+		
+		private Reduction(StackNode node, IAction action, StackEdge first) {
+			this.node = node;
+			this.action = action;
+			this.first = first;
+		}
+	}
+	
+	/**
+	 * The state of a single call to {@link TomitaParser#parse}.
+	 */
+	private final class Parse {
+		private final StackNode root = new StackNode(0, 0, 0);
+		private final Deque<Reduction> reductions = new ArrayDeque<>();
+		private final ParseListener listener;
+		private final int length;
+		
+		private Map<Integer, StackNode> frontier = new LinkedHashMap<>();
+		
+		// The items that was reduced while the current token was the next token.
+		private Map<Long, Node> symbols = new HashMap<>();
+		
+		// The edges that was added by reductions while the current token was the next token.
+		private Set<Long> edges = new HashSet<>();
+		
+		// True if a empty production has added a edge while the current token was the next token.
+		private boolean emptyEdges;
+		private int nodes = 1;
+		private int level;
+		
+		// The terminal ids of the next token.
+		private int[] lookahead;
+		private Node accepted;
+		
+		private Parse(int length, ParseListener listener) {
+			this.listener = listener;
+			this.length = length;
+			frontier.put(root.state, root);
+		}
+		
+		private void reduceAll(int[] lookahead) {
+			this.lookahead = lookahead;
+			
+			// Clearing a collection takes as long as its capacity so large collections are not reused.
+			if(!symbols.isEmpty()) symbols = new HashMap<>();
+			if(!edges.isEmpty()) edges = new HashSet<>();
+			emptyEdges = false;
+			for(StackNode node : frontier.values()) {
+				for(IAction action : table.getReductions(node.state)) {
+					if(table.isValid(action, lookahead)) reductions.add(new Reduction(node, action, null));
+				}
+			}
+			
+			while(!reductions.isEmpty()) {
+				Reduction reduction = reductions.poll();
+				Node[] children = new Node[reduction.action.symbols.length];
+				if(children.length == 0) {
+					// A empty production does not walk any edges so it only needs to be reduced once for each node.
+					if(reduction.first == null) reduced(reduction.node, reduction.action, children);
+					continue;
+				}
+				
+				if(reduction.first != null) {
+					reduce(reduction.first, reduction.action, children, children.length - 1);
+				} else {
+					for(StackEdge edge = reduction.node.edges; edge != null; edge = edge.next) {
+						reduce(edge, reduction.action, children, children.length - 1);
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Walk every path of the graph that matches the symbols of the reduction.
+		 */
+		private void reduce(StackEdge edge, IAction action, Node[] children, int index) {
+			if(edge.id != action.symbols[index]) return;
+			children[index] = edge.symbol;
+			
+			if(index == 0) {
+				reduced(edge.target, action, children.clone());
+				return;
+			}
+			
+			for(StackEdge next = edge.target.edges; next != null; next = next.next) {
+				reduce(next, action, children, index - 1);
+			}
+		}
+		
+		private void reduced(StackNode start, IAction action, Node[] children) {
+			boolean accept = start == root && level == length && action.rl.itemName.equals(table.acceptItem());
+			IAction[] actions = table.getGoto(start.state, action.item);
+			if(actions == null && !accept) return;
+			
+			// Items without a column can only be the accepted item.
+			long key = ((long)(action.item < 0 ? Integer.MAX_VALUE:action.item) << 32) | start.level;
+			Node symbol = symbols.get(key);
+			if(symbol == null) {
+				symbol = new Node(action.rl.itemName, start.level, level);
+				symbols.put(key, symbol);
+			}
+			
+			symbol.addAlternative(children);
+			if(listener != null) listener.reduce(action.rl.itemName, children.length, level - 1);
+			if(accept) accepted = symbol;
+			if(actions == null) return;
+			
+			int state = actions[0].index;
+			if(!edges.add(((long)state << 32) | start.id)) return;
+			if(start.level == level) emptyEdges = true;
+			
+			StackNode node = frontier.get(state);
+			if(node == null) {
+				node = new StackNode(nodes++, state, level);
+				node.edges = new StackEdge(start, symbol, ~action.item, null);
+				frontier.put(state, node);
+				
+				for(IAction next : table.getReductions(state)) {
+					if(table.isValid(next, lookahead)) reductions.add(new Reduction(node, next, null));
+				}
+			} else {
+				node.edges = new StackEdge(start, symbol, ~action.item, node.edges);
+				
+				// Only the paths that goes through the new edge needs to be reduced again.
+				for(IAction next : table.getReductions(state)) {
+					if(table.isValid(next, lookahead)) reductions.add(new Reduction(node, next, node.edges));
+				}
+				
+				// A path that ends with a empty symbol can pass through the new edge from a node
+				// that has already been reduced so every node needs to be reduced again. The
+				// symbols and edges that already exists are reused so this stops.
+				if(emptyEdges) {
+					for(StackNode other : frontier.values()) {
+						for(IAction next : table.getReductions(other.state)) {
+							if(next.symbols.length > 0 && table.isValid(next, lookahead)) reductions.add(new Reduction(other, next, null));
+						}
+					}
+				}
+			}
+		}
+		
+		private boolean shift(Token token, int[] terminals) {
+			Node leaf = new Node(token.toString(), level, level + 1);
+			Map<Integer, StackNode> next = new LinkedHashMap<>();
+			
+			for(StackNode node : frontier.values()) {
+				for(int id : terminals) {
+					IAction[] actions = table.getAction(node.state, id);
+					if(actions == null) continue;
+					
+					int state = actions[0].index;
+					StackNode shifted = next.get(state);
+					if(shifted == null) {
+						shifted = new StackNode(nodes++, state, level + 1);
+						next.put(state, shifted);
+						if(listener != null) listener.shift(state, token, level);
+					}
+					
+					shifted.edges = new StackEdge(node, leaf, id, shifted.edges);
+				}
+			}
+			
+			if(next.isEmpty()) return false;
+			if(listener != null && next.size() > 1) listener.fork(next.size(), level);
+			frontier = next;
+			level++;
+			return true;
+		}
+	}
+	
+	/**
+	 * Parse a sequence of tokens.
+	 * 
+	 * @param tokens the input.
+	 * @param classes the terminals of each token in the sequence.
+	 * @param listener the listener that receives the steps of the parse or null.
+	 * @return a forest that contains every parse tree of the input.
+	 * @throws ParserException if the input could not be parsed.
+	 */
+	ParseForest parse(TokenSequence tokens, Classes classes, ParseListener listener) {
+		Parse parse = new Parse(classes.size(), listener);
+		
+		for(int i = 0; i < classes.size(); i++) {
+			parse.reduceAll(classes.get(i));
+			
+			Token token = tokens.get(i);
+			if(!parse.shift(token, classes.get(i))) {
+				if(listener != null) listener.error(token, i);
+				throw new ParserException("Error at token: '" + token + "' (line=" + token.line() + ", column=" + token.column() + ")");
+			}
+		}
+		
+		parse.reduceAll(table.endOfInput);
+		if(parse.accepted == null) {
+			if(listener != null) listener.error(null, classes.size());
+			throw new ParserException("Unexpected end of input");
+		}
+		
+		if(listener != null) listener.accept(classes.size());
+		return new ParseForest(parse.accepted);
+	}
+}
@@ -0,0 +1,182 @@
+package hardcoded.tree;
+
+import java.util.*;
+
+import hardcoded.tree.ParseTree.PNode;
+
+/**
+ * https://en.wikipedia.org/wiki/Parse_forest
+ * 
+ * <br>A shared packed parse forest contains every parse tree of an input. Each
+ * {@link Node} is a symbol that spans a range of tokens and a node that can be
+ * derived in more than one way has more than one {@link Packed} alternative.
+ * Nodes are shared between all the trees that uses them so an exponential number
+ * of parse trees can be stored in polynomial space.
+ * 
+ * @author HardCoded
+ */
+public class ParseForest {
+	private final Node root;
+	
+	public ParseForest(Node root) {
+		if(root == null) throw new NullPointerException("The root was null.");
+		this.root = root;
+	}
+	
+	public Node getRoot() {
+		return root;
+	}
+	
+	/**
+	 * Returns true if any node inside this forest has more than one alternative.
+	 */
+	public boolean isAmbiguous() {
+		Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<Node> search = new ArrayDeque<>();
+		search.push(root);
+		visited.add(root);
+		
+		while(!search.isEmpty()) {
+			Node node = search.pop();
+			if(node.isAmbiguous()) return true;
+			
+			for(Packed packed : node.alternatives) {
+				for(Node child : packed.children) {
+					if(visited.add(child)) search.push(child);
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Create a parse tree from the first alternative of every node.<br>
+	 * 
+	 * The children of the first alternative of a node are always created before the
+	 * node itself so this can not loop forever even if the forest contains cycles.
+	 * 
+	 * @return a parse tree with the same layout as the one created by the GLRParser.
+	 */
+	public ParseTree toParseTree() {
+		ParseTree tree = new ParseTree();
+		PNode top = new PNode(root.value);
+		tree.add(top);
+		
+		Deque<Object[]> search = new ArrayDeque<>();
+		search.push(new Object[] { root, top });
+		while(!search.isEmpty()) {
+			Object[] entry = search.pop();
+			Node node = (Node)entry[0];
+			PNode parent = (PNode)entry[1];
+			if(node.alternatives.isEmpty()) continue;
+			
+			for(Node child : node.alternatives.get(0).children) {
+				PNode next = new PNode(child.value);
+				parent.nodes.add(next);
+				search.push(new Object[] { child, next });
+			}
+		}
+		
+		return tree;
+	}
+	
+	@Override
+	public String toString() {
+		return "ParseForest(root=" + root + ")";
+	}
+	
+	public static class Node {
+		private final List<Packed> alternatives;
+		private final String value;
+		private final int start;
+		private final int end;
+		
+		/**
+		 * Create a node that spans a range of tokens.
+		 * 
+		 * @param value the name of the item or the value of the token.
+		 * @param start the index of the first token.
+		 * @param end the index after the last token.
+		 */
+		public Node(String value, int start, int end) {
+			this.alternatives = new ArrayList<>(1);
+			this.value = value;
+			this.start = start;
+			this.end = end;
+		}
+		
+		/**
+		 * Add a way to derive this node. Alternatives with the same children are only added once.
+		 * 
+		 * @param children the children of the alternative.
+		 * @return false if the alternative was already added.
+		 */
+		public boolean addAlternative(Node... children) {
+			for(Packed packed : alternatives) {
+				if(packed.matches(children)) return false;
+			}
+			
+			alternatives.add(new Packed(children));
+			return true;
+		}
+		
+		public List<Packed> getAlternatives() {
+			return Collections.unmodifiableList(alternatives);
+		}
+		
+		/**
+		 * Returns true if this node is a token.
+		 */
+		public boolean isTerminal() {
+			return alternatives.isEmpty();
+		}
+		
+		public boolean isAmbiguous() {
+			return alternatives.size() > 1;
+		}
+		
+		public String value() {
+			return value;
+		}
+		
+		public int getStart() {
+			return start;
+		}
+		
+		public int getEnd() {
+			return end;
+		}
+		
+		@Override
+		public String toString() {
+			return value + "[" + start + ", " + end + "]";
+		}
+	}
+	
+	public static class Packed {
+		private final Node[] children;
+		
+		private Packed(Node[] children) {
+			this.children = children;
+		}
+		
+		private boolean matches(Node[] nodes) {
+			if(children.length != nodes.length) return false;
+			for(int i = 0; i < nodes.length; i++) {
+				if(children[i] != nodes[i]) return false;
+			}
+			
+			return true;
+		}
+		
+		public List<Node> getChildren() {
+			return Collections.unmodifiableList(Arrays.asList(children));
+		}
+		
+		@Override
+		public String toString() {
+			return Arrays.toString(children);
+		}
+	}
+}